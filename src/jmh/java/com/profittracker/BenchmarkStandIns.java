@@ -0,0 +1,79 @@
+package com.profittracker;
+
+import net.runelite.api.Client;
+import net.runelite.api.InventoryID;
+import net.runelite.api.Item;
+import net.runelite.api.ItemContainer;
+
+import java.lang.reflect.Proxy;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Lightweight stand-ins for the RuneLite singletons the plugin is built from, so benchmarks run without a game client.
+ */
+final class BenchmarkStandIns
+{
+    /*
+    Client and ItemContainer are interfaces, answered by proxies that only know the calls the plugin makes.
+    ItemManager is a class that needs the whole client injected, but the plugin only asks it for prices
+    (see ProfitTrackerInventoryValue), so it is stood in for by a price table behind ProfitTrackerPriceSource.
+     */
+
+    // item ids in the generated containers, roughly the range of real tradeable items
+    private static final int ITEM_ID_RANGE = 25000;
+
+    private BenchmarkStandIns()
+    {
+    }
+
+    static Item[] items(int size)
+    {
+        /*
+        a mix of empty slots, single items and stacks, like a real inventory or bank
+         */
+        final Item[] items = new Item[size];
+
+        for (int slot = 0; slot < size; slot++)
+        {
+            items[slot] = slot % 7 == 0
+                    ? new Item(ProfitTrackerInventoryValue.EMPTY_SLOT_ITEMID, 0)
+                    : new Item(1000 + slot * 31 % ITEM_ID_RANGE, slot % 3 == 0 ? 1 : 1 + slot * 13);
+        }
+
+        return items;
+    }
+
+    static ItemContainer container(Item[] items)
+    {
+        return (ItemContainer) Proxy.newProxyInstance(
+                ItemContainer.class.getClassLoader(),
+                new Class<?>[]{ItemContainer.class},
+                (proxy, method, args) -> "getItems".equals(method.getName()) ? items : null);
+    }
+
+    static Client client(Map<InventoryID, ItemContainer> containers)
+    {
+        final Map<InventoryID, ItemContainer> containersById = new EnumMap<>(containers);
+
+        return (Client) Proxy.newProxyInstance(
+                Client.class.getClassLoader(),
+                new Class<?>[]{Client.class},
+                (proxy, method, args) -> "getItemContainer".equals(method.getName()) ? containersById.get(args[0]) : null);
+    }
+
+    static ProfitTrackerPriceSource itemManagerPrices()
+    {
+        /*
+        stands in for ItemManager.getItemPrice: an array lookup, about what a warm ItemManager costs
+         */
+        final long[] prices = new long[ITEM_ID_RANGE + 1000];
+
+        for (int itemId = 0; itemId < prices.length; itemId++)
+        {
+            prices[itemId] = (itemId * 2654435761L >>> 16) % 100_000;
+        }
+
+        return itemId -> itemId >= 0 && itemId < prices.length ? prices[itemId] : 0;
+    }
+}
@@ -0,0 +1,156 @@
+package com.profittracker;
+
+import net.runelite.api.Client;
+import net.runelite.api.InventoryID;
+import net.runelite.api.Item;
+import net.runelite.api.ItemContainer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Measures the shipped valuation path for an inventory (28), an inventory sized container with a few more
+ * slots (39) and a bank (800):
+ *   - baselineCapture: a container seen for the first time, at a session start or when the bank is opened
+ *   - changedSlotTick: a tick with a single changed slot, capture on the client thread, then diff and reconcile
+ *     on the valuation thread
+ *
+ * parallelStream is the whole container valuation the plugin used to do every tick, kept as the reference
+ * the shipped path is compared with. It is not plugin code anymore.
+ *
+ * The contended groups run them while another thread keeps the common ForkJoinPool busy,
+ * the way other plugins using parallel streams would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContainerValueBenchmark
+{
+    @Param({"28", "39", "800"})
+    public int containerSize;
+
+    private Item[] items;
+    private ProfitTrackerPriceSource priceSource;
+    private ProfitTrackerInventoryValue inventoryValue;
+    private ItemContainer container;
+
+    // slot changed by changedSlotTick, and the two items it alternates between
+    private int changedSlot;
+    private Item changedSlotItem;
+    private Item changedSlotOtherItem;
+
+    @Setup
+    public void setUp()
+    {
+        items = BenchmarkStandIns.items(containerSize);
+        priceSource = BenchmarkStandIns.itemManagerPrices();
+        container = BenchmarkStandIns.container(items);
+
+        final Client client = BenchmarkStandIns.client(Collections.singletonMap(InventoryID.INVENTORY, container));
+
+        inventoryValue = new ProfitTrackerInventoryValue(client, priceSource, 0);
+
+        // first capture is the baseline
+        inventoryValue.applyCapture(inventoryValue.captureContainer(InventoryID.INVENTORY));
+
+        changedSlot = containerSize / 2;
+        changedSlotItem = items[changedSlot];
+        changedSlotOtherItem = new Item(changedSlotItem.getId() == ProfitTrackerInventoryValue.EMPTY_SLOT_ITEMID
+                ? 995 : changedSlotItem.getId(), changedSlotItem.getQuantity() + 1);
+    }
+
+    private long parallelStreamItemValue(Item item)
+    {
+        if (item.getId() == ProfitTrackerInventoryValue.EMPTY_SLOT_ITEMID)
+        {
+            return 0;
+        }
+
+        return item.getQuantity() * priceSource.getItemPrice(item.getId());
+    }
+
+    @Benchmark
+    public long parallelStream()
+    {
+        // the previous implementation of calculateContainerValue
+        return Arrays.stream(items).parallel().flatMapToLong(item ->
+                LongStream.of(parallelStreamItemValue(item))
+        ).sum();
+    }
+
+    @Benchmark
+    public long baselineCapture()
+    {
+        // the next capture is a baseline again
+        inventoryValue.forgetSnapshots();
+
+        return inventoryValue.applyCapture(inventoryValue.captureContainer(InventoryID.INVENTORY.getId(), container));
+    }
+
+    @Benchmark
+    public long changedSlotTick()
+    {
+        items[changedSlot] = items[changedSlot] == changedSlotItem ? changedSlotOtherItem : changedSlotItem;
+
+        inventoryValue.applyCapture(inventoryValue.captureContainer(InventoryID.INVENTORY.getId(), container));
+
+        return inventoryValue.reconcileTickDelta(null);
+    }
+
+    @Benchmark
+    @Group("contendedParallelStream")
+    @GroupThreads(1)
+    public long contendedParallelStream()
+    {
+        return parallelStream();
+    }
+
+    @Benchmark
+    @Group("contendedParallelStream")
+    @GroupThreads(1)
+    public long commonPoolLoadForParallelStream()
+    {
+        return commonPoolLoad();
+    }
+
+    @Benchmark
+    @Group("contendedChangedSlotTick")
+    @GroupThreads(1)
+    public long contendedChangedSlotTick()
+    {
+        return changedSlotTick();
+    }
+
+    @Benchmark
+    @Group("contendedChangedSlotTick")
+    @GroupThreads(1)
+    public long commonPoolLoadForChangedSlotTick()
+    {
+        return commonPoolLoad();
+    }
+
+    private static long commonPoolLoad()
+    {
+        // another plugin doing work on the common pool
+        return ForkJoinPool.commonPool().submit(() -> LongStream.range(0, 10_000).parallel().sum()).join();
+    }
+}
@@ -0,0 +1,36 @@
+package com.profittracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of ProfitTrackerGoldDrops.formatGoldDropText, once per gold drop (and per image cache lookup),
+ * for each of its formats: plain, thousands and too big.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GoldDropTextBenchmark
+{
+    @Param({"42", "-9999", "56000", "-750000", "12000000"})
+    public long goldDropValue;
+
+    @Benchmark
+    public String formatGoldDropText()
+    {
+        return ProfitTrackerGoldDrops.formatGoldDropText(goldDropValue);
+    }
+}
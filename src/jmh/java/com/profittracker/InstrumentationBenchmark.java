@@ -0,0 +1,56 @@
+package com.profittracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a ProfitTrackerInstrumentation probe adds to the code it wraps, disabled and enabled.
+ *
+ * Disabled should be indistinguishable from nothing, enabled is two nanoTime calls,
+ * two allocated bytes reads and a histogram update.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstrumentationBenchmark
+{
+    @Param({"false", "true"})
+    public boolean enabled;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        ProfitTrackerInstrumentation.reset();
+        ProfitTrackerInstrumentation.setEnabled(enabled);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        ProfitTrackerInstrumentation.setEnabled(false);
+    }
+
+    @Benchmark
+    public void probe()
+    {
+        final long startNanos = ProfitTrackerInstrumentation.start(ProfitTrackerProbe.GAME_TICK);
+
+        ProfitTrackerInstrumentation.stop(ProfitTrackerProbe.GAME_TICK, startNanos);
+    }
+}
@@ -0,0 +1,124 @@
+package com.profittracker;
+
+import net.runelite.client.ui.overlay.components.LineComponent;
+import net.runelite.client.ui.overlay.components.PanelComponent;
+import net.runelite.client.ui.overlay.components.TitleComponent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.text.DecimalFormat;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per frame cost of ProfitTrackerOverlay.render, drawing to an offscreen image,
+ * and of calculateProfitHourly which render calls every frame.
+ *
+ * rebuildEveryFrame is the previous render implementation, kept here as the baseline.
+ * Run with -prof gc to compare allocation per frame.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class OverlayRenderBenchmark
+{
+    private BufferedImage image;
+    private Graphics2D graphics;
+
+    private ProfitTrackerOverlay overlay;
+
+    private final PanelComponent baselinePanelComponent = new PanelComponent();
+    private long baselineStartTimeMillies;
+
+    private long hourlySecondsElapsed;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        image = new BufferedImage(300, 200, BufferedImage.TYPE_INT_ARGB);
+        graphics = image.createGraphics();
+        graphics.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 12));
+
+        // no breakdown is shown, so no ItemManager is needed
+        overlay = new ProfitTrackerOverlay(new ProfitTrackerConfig()
+        {
+        }, null);
+
+        baselineStartTimeMillies = System.currentTimeMillis();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public Dimension cachedRender()
+    {
+        return overlay.render(graphics);
+    }
+
+    @Benchmark
+    public long calculateProfitHourly()
+    {
+        // seconds change every call, so nothing is constant folded
+        hourlySecondsElapsed = (hourlySecondsElapsed + 1) & 0xFFFF;
+
+        return ProfitTrackerOverlay.calculateProfitHourly(hourlySecondsElapsed, 1234567);
+    }
+
+    @Benchmark
+    public Dimension rebuildEveryFrame()
+    {
+        String titleText = "Profit Tracker:";
+        long profitValue = 1234567;
+        long secondsElapsed = (System.currentTimeMillis() - baselineStartTimeMillies) / 1000;
+        long profitRateValue = ProfitTrackerOverlay.calculateProfitHourly(secondsElapsed, profitValue);
+
+        baselinePanelComponent.getChildren().clear();
+
+        baselinePanelComponent.getChildren().add(TitleComponent.builder()
+                .text(titleText)
+                .color(Color.GREEN)
+                .build());
+
+        baselinePanelComponent.setPreferredSize(new Dimension(
+                graphics.getFontMetrics().stringWidth(titleText) + 40,
+                0));
+
+        baselinePanelComponent.getChildren().add(LineComponent.builder()
+                .left("Time:")
+                .right(String.format("%02d:%02d:%02d", secondsElapsed / 3600, (secondsElapsed / 60) % 60, secondsElapsed % 60))
+                .build());
+
+        baselinePanelComponent.getChildren().add(LineComponent.builder()
+                .left("Profit:")
+                .right(new DecimalFormat("###,###,###").format(profitValue))
+                .build());
+
+        baselinePanelComponent.getChildren().add(LineComponent.builder()
+                .left("Rate:")
+                .right(profitRateValue + "K/H")
+                .build());
+
+        return baselinePanelComponent.render(graphics);
+    }
+}
@@ -0,0 +1,58 @@
+package com.profittracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of ProfitTrackerRateEngine per profitable tick: add the profit, move on and calculate the rates,
+ * with ticks this many milliseconds apart.
+ *
+ * 600 is a profit every game tick, 60000 a profit a minute (the engine moves on 60 seconds at once).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RateEngineBenchmark
+{
+    @Param({"600", "60000"})
+    public long tickMillis;
+
+    private ProfitTrackerRateEngine rateEngine;
+    private long timeMillis;
+    private long profit;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        rateEngine = new ProfitTrackerRateEngine();
+        rateEngine.reset(0);
+    }
+
+    @Benchmark
+    public ProfitTrackerRates addAndGetRates()
+    {
+        timeMillis += tickMillis;
+
+        // profit changes every call, so rates do too
+        profit = (profit * 31 + 17) & 0xFFFFF;
+
+        rateEngine.add(timeMillis, profit);
+
+        return rateEngine.getRates();
+    }
+}
@@ -0,0 +1,55 @@
+package com.profittracker;
+
+/**
+ * The ProfitTrackerBreakdown class holds the items that gained and lost the most value in the session, for display.
+ */
+public class ProfitTrackerBreakdown {
+    static final ProfitTrackerBreakdown EMPTY = new ProfitTrackerBreakdown(
+            new int[0], new long[0], new int[0], new long[0]);
+
+    // best first
+    private final int[] gainerItemIds;
+    private final long[] gainerValues;
+
+    // worst first
+    private final int[] loserItemIds;
+    private final long[] loserValues;
+
+    ProfitTrackerBreakdown(int[] gainerItemIds, long[] gainerValues, int[] loserItemIds, long[] loserValues)
+    {
+        this.gainerItemIds = gainerItemIds;
+        this.gainerValues = gainerValues;
+        this.loserItemIds = loserItemIds;
+        this.loserValues = loserValues;
+    }
+
+    public int getGainerCount()
+    {
+        return gainerItemIds.length;
+    }
+
+    public int getGainerItemId(int index)
+    {
+        return gainerItemIds[index];
+    }
+
+    public long getGainerValue(int index)
+    {
+        return gainerValues[index];
+    }
+
+    public int getLoserCount()
+    {
+        return loserItemIds.length;
+    }
+
+    public int getLoserItemId(int index)
+    {
+        return loserItemIds[index];
+    }
+
+    public long getLoserValue(int index)
+    {
+        return loserValues[index];
+    }
+}
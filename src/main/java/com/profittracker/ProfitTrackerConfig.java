@@ -3,6 +3,8 @@ package com.profittracker;
 import net.runelite.client.config.Config;
 import net.runelite.client.config.ConfigGroup;
 import net.runelite.client.config.ConfigItem;
+import net.runelite.client.config.Range;
+import net.runelite.client.config.Units;
 
 /**
  * The ProfitTrackerConfig class is used to provide user preferences to the ProfitTrackerPlugin.
@@ -20,5 +22,221 @@ public interface ProfitTrackerConfig extends Config
     {
         return true;
     }
+
+    @ConfigItem(
+            keyName = "goldDropStyle",
+            name = "Gold drop style",
+            description = "Overlay draws gold drops itself, XP drop shows them as xp drops"
+    )
+    default ProfitTrackerGoldDropStyle goldDropStyle()
+    {
+        return ProfitTrackerGoldDropStyle.OVERLAY;
+    }
+
+    @Range(
+            max = 10000
+    )
+    @Units(Units.MILLISECONDS)
+    @ConfigItem(
+            keyName = "goldDropCoalesceMillis",
+            name = "Gold drop merge window",
+            description = "Value changes within this time of a gold drop are added to it instead of shown separately"
+    )
+    default int goldDropCoalesceMillis()
+    {
+        return 600;
+    }
+
+    @Range(
+            min = 1,
+            max = 10
+    )
+    @ConfigItem(
+            keyName = "goldDropsPerSecond",
+            name = "Max gold drops per second",
+            description = "Gold drops beyond this wait in queue"
+    )
+    default int goldDropsPerSecond()
+    {
+        return 2;
+    }
+
+    @ConfigItem(
+            keyName = "rateWindow",
+            name = "Profit rate over",
+            description = "Time the profit rate is calculated over: the whole session, a recent window or a moving average"
+    )
+    default ProfitTrackerRateWindow rateWindow()
+    {
+        return ProfitTrackerRateWindow.SESSION;
+    }
+
+    @Range(
+            max = 60
+    )
+    @Units(Units.MINUTES)
+    @ConfigItem(
+            keyName = "idlePauseMinutes",
+            name = "Pause timer when idle",
+            description = "Stop the session timer after this long without item changes, so idle time doesn't lower the profit rate. 0 to never pause"
+    )
+    default int idlePauseMinutes()
+    {
+        return 5;
+    }
+
+    @ConfigItem(
+            keyName = "profitGraph",
+            name = "Show profit graph",
+            description = "Show a graph of profit over the session"
+    )
+    default boolean profitGraph()
+    {
+        return true;
+    }
+
+    @ConfigItem(
+            keyName = "supplyCost",
+            name = "Show supply cost",
+            description = "Split profit into loot and supplies used up (potion doses, food, runes, ammo)"
+    )
+    default boolean supplyCost()
+    {
+        return true;
+    }
+
+    @ConfigItem(
+            keyName = "priceMode",
+            name = "Price mode",
+            description = "What items are valued at: Grand Exchange price, high alchemy value or store value"
+    )
+    default ProfitTrackerPriceMode priceMode()
+    {
+        return ProfitTrackerPriceMode.GRAND_EXCHANGE;
+    }
+
+    @ConfigItem(
+            keyName = "priceOverrides",
+            name = "Custom prices",
+            description = "Prices used instead of the price mode, as itemId=price separated by commas or new lines"
+    )
+    default String priceOverrides()
+    {
+        return "";
+    }
+
+    @ConfigItem(
+            keyName = "resumeSession",
+            name = "Resume session",
+            description = "Continue the last session after a client restart or plugin toggle, instead of starting a new one"
+    )
+    default boolean resumeSession()
+    {
+        return true;
+    }
+
+    @Range(
+            max = 24 * 60
+    )
+    @Units(Units.MINUTES)
+    @ConfigItem(
+            keyName = "priceRefreshMinutes",
+            name = "Price refresh interval",
+            description = "How often cached item prices are looked up again, 0 to never refresh"
+    )
+    default int priceRefreshMinutes()
+    {
+        return 30;
+    }
+
+    @Range(
+            max = 10
+    )
+    @ConfigItem(
+            keyName = "breakdownSize",
+            name = "Items breakdown",
+            description = "Number of top gaining and top losing items to show, 0 to hide"
+    )
+    default int breakdownSize()
+    {
+        return 3;
+    }
+
+    @ConfigItem(
+            keyName = "recordEvents",
+            name = "Record events",
+            description = "Record game events to .runelite/profit-tracker/recordings for offline replay. Applies when the plugin starts"
+    )
+    default boolean recordEvents()
+    {
+        return false;
+    }
+
+    @ConfigItem(
+            keyName = "exportEvents",
+            name = "Export item events",
+            description = "Write every item gained or lost to .runelite/profit-tracker/exports. Applies when the plugin starts"
+    )
+    default boolean exportEvents()
+    {
+        return false;
+    }
+
+    @ConfigItem(
+            keyName = "exportFormat",
+            name = "Export format",
+            description = "File format of exported item events"
+    )
+    default ProfitTrackerExportFormat exportFormat()
+    {
+        return ProfitTrackerExportFormat.CSV;
+    }
+
+    @Range(
+            min = 1,
+            max = 1024
+    )
+    @ConfigItem(
+            keyName = "exportFileMegabytes",
+            name = "Export file size (MB)",
+            description = "Exported events continue in a new file once a file reaches this size"
+    )
+    default int exportFileMegabytes()
+    {
+        return 16;
+    }
+
+    @ConfigItem(
+            keyName = "debugTrace",
+            name = "Debug trace",
+            description = "Log every valuation, container event, click and gold drop to the client log"
+    )
+    default boolean debugTrace()
+    {
+        return false;
+    }
+
+    @ConfigItem(
+            keyName = "instrumentation",
+            name = "Timings overlay",
+            description = "Time the plugin's event handlers and overlay, and show p50/p99/max in a debug overlay"
+    )
+    default boolean instrumentation()
+    {
+        return false;
+    }
+
+    @Range(
+            max = 60
+    )
+    @ConfigItem(
+            keyName = "instrumentationSummaryMinutes",
+            name = "Timings log interval",
+            description = "Minutes between timing summaries in the client log while timing, 0 to log only when the plugin stops"
+    )
+    default int instrumentationSummaryMinutes()
+    {
+        return 5;
+    }
 }
 
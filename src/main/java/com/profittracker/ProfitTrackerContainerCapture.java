@@ -0,0 +1,36 @@
+package com.profittracker;
+
+/**
+ * The ProfitTrackerContainerCapture class is an immutable copy of a container's contents and prices,
+ * taken on the client thread and valued on the valuation thread.
+ */
+public class ProfitTrackerContainerCapture {
+    final int containerId;
+
+    // per slot, arrays are never modified after capture
+    final int[] itemIds;
+    final int[] quantities;
+    final long[] unitPrices;
+
+    // noted items and placeholders as the item itself, canonicalizing is client thread only
+    final int[] canonicalIds;
+
+    ProfitTrackerContainerCapture(int containerId, int[] itemIds, int[] quantities, long[] unitPrices, int[] canonicalIds)
+    {
+        this.containerId = containerId;
+        this.itemIds = itemIds;
+        this.quantities = quantities;
+        this.unitPrices = unitPrices;
+        this.canonicalIds = canonicalIds;
+    }
+
+    public int getContainerId()
+    {
+        return containerId;
+    }
+
+    public int size()
+    {
+        return itemIds.length;
+    }
+}
@@ -0,0 +1,92 @@
+package com.profittracker;
+
+import java.util.Arrays;
+
+/**
+ * The ProfitTrackerContainerSnapshot class keeps the last seen contents of a single item container,
+ * slot by slot, together with the value each slot was priced at.
+ */
+public class ProfitTrackerContainerSnapshot {
+    /*
+    Primitive per slot state, so diffing a container against its previous contents
+    does not allocate anything and only changed slots need to be priced again.
+     */
+
+    // enough for inventory (28) and equipment (14), grown on demand for bigger containers (bank is 800+)
+    private static final int INITIAL_CAPACITY = 28;
+
+    private final int containerId;
+
+    int[] itemIds;
+    int[] quantities;
+    long[] slotValues;
+
+    // the item changes of a slot are by canonical id, so a noted item moving to the bank is a transfer
+    int[] canonicalIds;
+
+    // number of slots holding valid information
+    int size;
+
+    // sum of slotValues
+    long totalValue;
+
+    // false until the contents were seen once, the first contents seen are a baseline and not a change
+    boolean observed;
+
+    public ProfitTrackerContainerSnapshot(int containerId)
+    {
+        this.containerId = containerId;
+
+        itemIds = new int[INITIAL_CAPACITY];
+        quantities = new int[INITIAL_CAPACITY];
+        slotValues = new long[INITIAL_CAPACITY];
+        canonicalIds = new int[INITIAL_CAPACITY];
+
+        clear();
+    }
+
+    public int getContainerId()
+    {
+        return containerId;
+    }
+
+    public long getTotalValue()
+    {
+        return totalValue;
+    }
+
+    void ensureCapacity(int capacity)
+    {
+        if (capacity <= itemIds.length)
+        {
+            return;
+        }
+
+        final int oldCapacity = itemIds.length;
+        final int newCapacity = Math.max(capacity, oldCapacity * 2);
+
+        itemIds = Arrays.copyOf(itemIds, newCapacity);
+        quantities = Arrays.copyOf(quantities, newCapacity);
+        slotValues = Arrays.copyOf(slotValues, newCapacity);
+        canonicalIds = Arrays.copyOf(canonicalIds, newCapacity);
+
+        // new slots are empty
+        Arrays.fill(itemIds, oldCapacity, newCapacity, ProfitTrackerInventoryValue.EMPTY_SLOT_ITEMID);
+        Arrays.fill(canonicalIds, oldCapacity, newCapacity, ProfitTrackerInventoryValue.EMPTY_SLOT_ITEMID);
+    }
+
+    public void clear()
+    {
+        /*
+        Forget everything, next contents seen are a new baseline
+         */
+        Arrays.fill(itemIds, ProfitTrackerInventoryValue.EMPTY_SLOT_ITEMID);
+        Arrays.fill(canonicalIds, ProfitTrackerInventoryValue.EMPTY_SLOT_ITEMID);
+        Arrays.fill(quantities, 0);
+        Arrays.fill(slotValues, 0);
+
+        size = 0;
+        totalValue = 0;
+        observed = false;
+    }
+}
@@ -0,0 +1,111 @@
+package com.profittracker;
+
+import net.runelite.client.ui.overlay.Overlay;
+import net.runelite.client.ui.overlay.OverlayPosition;
+import net.runelite.client.ui.overlay.components.LineComponent;
+import net.runelite.client.ui.overlay.components.PanelComponent;
+import net.runelite.client.ui.overlay.components.TitleComponent;
+
+import javax.inject.Inject;
+import java.awt.*;
+
+/**
+ * The ProfitTrackerDebugOverlay class shows what ProfitTrackerInstrumentation measured, when it is enabled.
+ */
+public class ProfitTrackerDebugOverlay extends Overlay {
+    /*
+    A line per probe: p50 / p99 / max in microseconds, and bytes allocated per call if counted.
+    Lines are updated once a second, not every frame, so the overlay barely adds to what it measures.
+     */
+
+    private static final String TITLE_TEXT = "Profit Tracker timings (us)";
+
+    private static final long UPDATE_INTERVAL_MILLIS = 1000;
+
+    private static final ProfitTrackerProbe[] PROBES = ProfitTrackerProbe.values();
+
+    private final PanelComponent panelComponent = new PanelComponent();
+    private final LineComponent[] probeLines = new LineComponent[PROBES.length];
+
+    private long lastUpdateMillis;
+
+    private Font renderedFont;
+    private final Dimension preferredSize = new Dimension();
+
+    @Inject
+    ProfitTrackerDebugOverlay()
+    {
+        setPosition(OverlayPosition.TOP_LEFT);
+
+        panelComponent.getChildren().add(TitleComponent.builder()
+                .text(TITLE_TEXT)
+                .color(Color.YELLOW)
+                .build());
+
+        panelComponent.getChildren().add(LineComponent.builder()
+                .left("")
+                .right(ProfitTrackerInstrumentation.isCountingAllocations() ? "p50 / p99 / max, B" : "p50 / p99 / max")
+                .build());
+
+        for (int i = 0; i < PROBES.length; i++)
+        {
+            probeLines[i] = LineComponent.builder()
+                    .left(PROBES[i].toString())
+                    .right("-")
+                    .build();
+
+            panelComponent.getChildren().add(probeLines[i]);
+        }
+    }
+
+    @Override
+    public Dimension render(Graphics2D graphics)
+    {
+        if (!ProfitTrackerInstrumentation.isEnabled())
+        {
+            return null;
+        }
+
+        final long nowMillis = System.currentTimeMillis();
+
+        if (nowMillis - lastUpdateMillis >= UPDATE_INTERVAL_MILLIS)
+        {
+            updateLines();
+            lastUpdateMillis = nowMillis;
+        }
+
+        if (graphics.getFont() != renderedFont)
+        {
+            preferredSize.setSize(graphics.getFontMetrics().stringWidth(TITLE_TEXT) + 80, 0);
+            panelComponent.setPreferredSize(preferredSize);
+            renderedFont = graphics.getFont();
+        }
+
+        return panelComponent.render(graphics);
+    }
+
+    private void updateLines()
+    {
+        for (int i = 0; i < PROBES.length; i++)
+        {
+            final ProfitTrackerLatencyHistogram histogram = ProfitTrackerInstrumentation.getHistogram(PROBES[i]);
+
+            if (histogram.getCount() == 0)
+            {
+                probeLines[i].setRight("-");
+                continue;
+            }
+
+            String text = ProfitTrackerInstrumentation.formatMicros(histogram.percentileNanos(50))
+                    + " / " + ProfitTrackerInstrumentation.formatMicros(histogram.percentileNanos(99))
+                    + " / " + ProfitTrackerInstrumentation.formatMicros(histogram.getMaxNanos());
+
+            if (ProfitTrackerInstrumentation.isCountingAllocations())
+            {
+                text += ", " + histogram.getAllocatedBytesPerSample();
+            }
+
+            probeLines[i].setRight(text);
+        }
+    }
+}
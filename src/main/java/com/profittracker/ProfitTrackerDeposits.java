@@ -0,0 +1,89 @@
+package com.profittracker;
+
+import java.util.Arrays;
+
+/**
+ * The ProfitTrackerDeposits class remembers the items recently deposited with a deposit box.
+ */
+public class ProfitTrackerDeposits {
+    /*
+    With a deposit box the bank isn't loaded, so items deposited leave the inventory (or equipment, looting bag)
+    and show up nowhere. Only the items a deposit was clicked for are taken as moved to the bank,
+    whatever else leaves while the box is open (food eaten, runes cast) is still a loss.
+
+    A click is remembered for DEPOSIT_MATCH_TICKS, the items leave a tick or so after it.
+    Item ids are canonical, like the tick's item changes they are matched against.
+
+    Client thread only.
+     */
+
+    // a whole inventory, equipment or looting bag at once, with room to spare
+    private static final int MAX_DEPOSIT_CLICKS = 64;
+    private static final int DEPOSIT_MATCH_TICKS = 2;
+
+    private final int[] clickItemIds = new int[MAX_DEPOSIT_CLICKS];
+    private final int[] clickTicks = new int[MAX_DEPOSIT_CLICKS];
+    private int clickCount;
+    private int clickNext;
+
+    public void depositClicked(int itemId, int tick)
+    {
+        /*
+        a deposit was clicked on itemId, or itemId was in a container deposited as a whole
+         */
+        clickItemIds[clickNext] = itemId;
+        clickTicks[clickNext] = tick;
+        clickNext = (clickNext + 1) % MAX_DEPOSIT_CLICKS;
+        clickCount = Math.min(clickCount + 1, MAX_DEPOSIT_CLICKS);
+    }
+
+    public int[] getDepositedItemIds(int tick)
+    {
+        /*
+        items deposited within the last DEPOSIT_MATCH_TICKS, distinct, or null if none
+         */
+        if (clickCount == 0)
+        {
+            return null;
+        }
+
+        final int[] itemIds = new int[clickCount];
+        int count = 0;
+
+        for (int i = 0; i < clickCount; i++)
+        {
+            if (tick - clickTicks[i] <= DEPOSIT_MATCH_TICKS && tick >= clickTicks[i])
+            {
+                itemIds[count++] = clickItemIds[i];
+            }
+        }
+
+        if (count == 0)
+        {
+            // all too old, nothing to look at until the next deposit
+            clickCount = 0;
+            clickNext = 0;
+            return null;
+        }
+
+        Arrays.sort(itemIds, 0, count);
+
+        int distinct = 0;
+
+        for (int i = 0; i < count; i++)
+        {
+            if (distinct == 0 || itemIds[i] != itemIds[distinct - 1])
+            {
+                itemIds[distinct++] = itemIds[i];
+            }
+        }
+
+        return Arrays.copyOf(itemIds, distinct);
+    }
+
+    public void clear()
+    {
+        clickCount = 0;
+        clickNext = 0;
+    }
+}
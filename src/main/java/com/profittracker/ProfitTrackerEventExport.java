@@ -0,0 +1,442 @@
+package com.profittracker;
+
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.InventoryID;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ProfitTrackerEventExport class writes every item gained or lost to CSV or JSON Lines files,
+ * for looking at sessions in other tools.
+ */
+@Slf4j
+public class ProfitTrackerEventExport {
+    /*
+    An event is an item's net change in a tick, as ProfitTrackerTransferReconciler adds it to the ledger
+    (items only moved between containers are not events):
+
+        session    session start time, millis
+        time       tick time, millis
+        tick       client tick count
+        item_id    item id
+        container  container it came into (gain) or left (loss)
+        quantity   quantity delta
+        value      value delta, in gold at the time
+
+    Same buffering as ProfitTrackerSessionJournal: the valuation thread appends fixed width binary records
+    to a direct buffer under a short lock, a writer thread swaps it out every second.
+    The writer turns the batch into text in a reused buffer, without String.format or per event objects,
+    so hours of events are written in a fraction of a second. The client thread is never involved.
+
+    Files are named events-<plugin start millis>-<part>, a new part is started once a file reaches maxFileBytes.
+     */
+
+    static final int RECORD_SIZE = 8 + 8 + 4 + 4 + 4 + 8 + 8;
+
+    private static final long FLUSH_INTERVAL_MILLIS = 1000;
+
+    // longest close waits for the last write
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+    // records buffered between flushes before the buffer needs to grow
+    private static final int INITIAL_BUFFERED_RECORDS = 1024;
+
+    // text is written out whenever this much is formatted
+    private static final int TEXT_BUFFER_SIZE = 256 * 1024;
+
+    // longest line of either format, with every number at its longest
+    private static final int MAX_LINE_SIZE = 256;
+
+    private static final byte[] CSV_HEADER = "session,time,tick,item_id,container,quantity,value\n"
+            .getBytes(StandardCharsets.US_ASCII);
+
+    private final File directory;
+    private final ProfitTrackerExportFormat format;
+    private final long maxFileBytes;
+    private final long startMillis;
+    private final ScheduledExecutorService writerExecutor;
+
+    /*
+    Valuation thread only: the tick events are appended for, see beginTick
+     */
+    private long tickSessionMillis;
+    private long tickMillis;
+    private int tick;
+
+    /*
+    Guarded by this
+     */
+    private ByteBuffer pendingBuffer;
+
+    /*
+    Writer thread only
+     */
+    private ByteBuffer writingBuffer;
+    private final byte[] text = new byte[TEXT_BUFFER_SIZE];
+    private final ByteBuffer textBuffer = ByteBuffer.wrap(text);
+    private int textLength;
+    private final byte[] digits = new byte[20];
+    private FileChannel channel;
+    private File file;
+    private int part;
+    private long fileBytes;
+
+    public ProfitTrackerEventExport(File directory, ProfitTrackerExportFormat format, long maxFileBytes)
+    {
+        this.directory = directory;
+        this.format = format;
+        this.maxFileBytes = maxFileBytes;
+
+        startMillis = System.currentTimeMillis();
+
+        pendingBuffer = ByteBuffer.allocateDirect(INITIAL_BUFFERED_RECORDS * RECORD_SIZE);
+        writingBuffer = ByteBuffer.allocateDirect(INITIAL_BUFFERED_RECORDS * RECORD_SIZE);
+
+        writerExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "profit-tracker-export");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        writerExecutor.scheduleWithFixedDelay(this::flush,
+                FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public void beginTick(long sessionStartMillis, int tick, long timeMillis)
+    {
+        /*
+        valuation thread: events appended from now on happened in this tick
+         */
+        tickSessionMillis = sessionStartMillis;
+        this.tick = tick;
+        tickMillis = timeMillis;
+    }
+
+    public void append(int itemId, int containerId, long quantityDelta, long valueDelta)
+    {
+        /*
+        valuation thread: an item gained or lost in the current tick
+         */
+        synchronized (this)
+        {
+            if (pendingBuffer.remaining() < RECORD_SIZE)
+            {
+                // writer fell behind, make room rather than block or lose events
+                ByteBuffer grown = ByteBuffer.allocateDirect(pendingBuffer.capacity() * 2);
+                pendingBuffer.flip();
+                grown.put(pendingBuffer);
+                pendingBuffer = grown;
+            }
+
+            pendingBuffer.putLong(tickSessionMillis);
+            pendingBuffer.putLong(tickMillis);
+            pendingBuffer.putInt(tick);
+            pendingBuffer.putInt(itemId);
+            pendingBuffer.putInt(containerId);
+            pendingBuffer.putLong(quantityDelta);
+            pendingBuffer.putLong(valueDelta);
+        }
+    }
+
+    void flush()
+    {
+        /*
+        runs on the writer thread.
+        swap buffers under the lock, then format and write without holding it
+         */
+        synchronized (this)
+        {
+            if (pendingBuffer.position() == 0)
+            {
+                return;
+            }
+
+            ByteBuffer swap = pendingBuffer;
+            pendingBuffer = writingBuffer;
+            writingBuffer = swap;
+
+            pendingBuffer.clear();
+        }
+
+        writingBuffer.flip();
+
+        try
+        {
+            while (writingBuffer.remaining() >= RECORD_SIZE)
+            {
+                if (TEXT_BUFFER_SIZE - textLength < MAX_LINE_SIZE)
+                {
+                    writeText();
+                }
+
+                formatRecord();
+            }
+
+            writeText();
+        }
+        catch (IOException e)
+        {
+            log.warn("Unable to write profit event export {}", file, e);
+
+            // start over with a new file next time
+            closeFile();
+            textLength = 0;
+        }
+        finally
+        {
+            writingBuffer.clear();
+        }
+    }
+
+    private void formatRecord()
+    {
+        final long sessionMillis = writingBuffer.getLong();
+        final long timeMillis = writingBuffer.getLong();
+        final int recordTick = writingBuffer.getInt();
+        final int itemId = writingBuffer.getInt();
+        final int containerId = writingBuffer.getInt();
+        final long quantityDelta = writingBuffer.getLong();
+        final long valueDelta = writingBuffer.getLong();
+
+        if (format == ProfitTrackerExportFormat.CSV)
+        {
+            putLong(sessionMillis);
+            text[textLength++] = ',';
+            putLong(timeMillis);
+            text[textLength++] = ',';
+            putLong(recordTick);
+            text[textLength++] = ',';
+            putLong(itemId);
+            text[textLength++] = ',';
+            putAscii(containerName(containerId));
+            text[textLength++] = ',';
+            putLong(quantityDelta);
+            text[textLength++] = ',';
+            putLong(valueDelta);
+        }
+        else
+        {
+            putAscii("{\"session\":");
+            putLong(sessionMillis);
+            putAscii(",\"time\":");
+            putLong(timeMillis);
+            putAscii(",\"tick\":");
+            putLong(recordTick);
+            putAscii(",\"itemId\":");
+            putLong(itemId);
+            putAscii(",\"container\":\"");
+            putAscii(containerName(containerId));
+            putAscii("\",\"quantity\":");
+            putLong(quantityDelta);
+            putAscii(",\"value\":");
+            putLong(valueDelta);
+            text[textLength++] = '}';
+        }
+
+        text[textLength++] = '\n';
+    }
+
+    private static String containerName(int containerId)
+    {
+        if (containerId == InventoryID.INVENTORY.getId())
+        {
+            return "inventory";
+        }
+
+        if (containerId == InventoryID.EQUIPMENT.getId())
+        {
+            return "equipment";
+        }
+
+        if (containerId == InventoryID.BANK.getId())
+        {
+            return "bank";
+        }
+
+        if (containerId == InventoryID.LOOTING_BAG.getId())
+        {
+            return "looting_bag";
+        }
+
+        if (containerId == InventoryID.SEED_VAULT.getId())
+        {
+            return "seed_vault";
+        }
+
+        if (containerId == ProfitTrackerInventoryValue.GROUP_STORAGE_CONTAINER_ID)
+        {
+            return "group_storage";
+        }
+
+        if (containerId == ProfitTrackerInventoryValue.RUNE_POUCH_CONTAINER_ID)
+        {
+            return "rune_pouch";
+        }
+
+        if (containerId == ProfitTrackerInventoryValue.GROUND_CONTAINER_ID)
+        {
+            return "ground";
+        }
+
+        return "unknown";
+    }
+
+    private void putAscii(String ascii)
+    {
+        for (int i = 0; i < ascii.length(); i++)
+        {
+            text[textLength++] = (byte) ascii.charAt(i);
+        }
+    }
+
+    private void putLong(long value)
+    {
+        /*
+        decimal digits of value, Long.toString without the String
+         */
+        if (value == Long.MIN_VALUE)
+        {
+            putAscii(Long.toString(value));
+            return;
+        }
+
+        if (value < 0)
+        {
+            text[textLength++] = '-';
+            value = -value;
+        }
+
+        int count = 0;
+
+        do
+        {
+            digits[count++] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        while (value != 0);
+
+        while (count > 0)
+        {
+            text[textLength++] = digits[--count];
+        }
+    }
+
+    private void writeText() throws IOException
+    {
+        /*
+        write what is formatted to the current file, starting a new file first if it would get too big
+         */
+        if (textLength == 0)
+        {
+            return;
+        }
+
+        if (channel != null && fileBytes > 0 && fileBytes + textLength > maxFileBytes)
+        {
+            closeFile();
+            part++;
+        }
+
+        if (channel == null)
+        {
+            openFile();
+        }
+
+        fileBytes += textLength;
+
+        textBuffer.clear();
+        textBuffer.limit(textLength);
+
+        while (textBuffer.hasRemaining())
+        {
+            channel.write(textBuffer);
+        }
+
+        textLength = 0;
+    }
+
+    private void openFile() throws IOException
+    {
+        if (!directory.exists() && !directory.mkdirs())
+        {
+            throw new IOException("unable to create " + directory);
+        }
+
+        file = new File(directory, "events-" + startMillis + "-" + part + format.getFileExtension());
+
+        channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+        fileBytes = channel.size();
+
+        if (fileBytes == 0 && format == ProfitTrackerExportFormat.CSV)
+        {
+            final ByteBuffer header = ByteBuffer.wrap(CSV_HEADER);
+
+            while (header.hasRemaining())
+            {
+                channel.write(header);
+            }
+
+            fileBytes = CSV_HEADER.length;
+        }
+    }
+
+    private void closeFile()
+    {
+        if (channel == null)
+        {
+            return;
+        }
+
+        try
+        {
+            channel.close();
+        }
+        catch (IOException e)
+        {
+            log.warn("Unable to close profit event export {}", file, e);
+        }
+
+        channel = null;
+    }
+
+    public void close()
+    {
+        /*
+        write what is left and stop the writer thread
+         */
+        writerExecutor.execute(() -> {
+            flush();
+            closeFile();
+        });
+
+        writerExecutor.shutdown();
+
+        // a new instance may open the same files right away, this one must be done with them
+        awaitWriter();
+    }
+
+    private void awaitWriter()
+    {
+        try
+        {
+            if (!writerExecutor.awaitTermination(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS))
+            {
+                log.warn("Timed out writing the end of the profit event export to {}", directory);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
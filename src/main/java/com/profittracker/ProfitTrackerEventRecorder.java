@@ -0,0 +1,425 @@
+package com.profittracker;
+
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.Client;
+import net.runelite.api.GameState;
+import net.runelite.api.InventoryID;
+import net.runelite.api.Item;
+import net.runelite.api.ItemContainer;
+import net.runelite.api.Varbits;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ProfitTrackerEventRecorder class records the events the plugin reacts to, with container contents and prices,
+ * so a session can be replayed offline (see ProfitTrackerReplay in the tests).
+ */
+@Slf4j
+public class ProfitTrackerEventRecorder {
+    /*
+    Recording file:
+
+        int  MAGIC, int VERSION, long recording start time
+
+    followed by records, a byte type and then:
+
+        RECORD_TICK           int tick, long timeMillis
+        RECORD_CONTAINER      int containerId, int slots, slots * (int itemId, int quantity)
+        RECORD_MENU           int id, int actionParam, int widgetId
+        RECORD_SCRIPT         int scriptId
+        RECORD_PRICE          int itemId, long price        - a price the plugin loaded, from then on
+        RECORD_GAME_STATE     int state
+        RECORD_SESSION_RESET  -                             - reset clicked on the overlay
+        RECORD_PROFIT         long tickProfit               - what the plugin calculated, to check a replay against
+        RECORD_STARTUP        -                             - plugin started, state before it is recorded above
+        RECORD_RUNE_POUCH     6 * int                       - rune pouch varbits, RUNE_POUCH_VARBITS order
+        RECORD_CANONICAL      int itemId, int canonicalId   - a canonical id the plugin loaded, like prices
+        RECORD_DROP           int itemId                    - Drop clicked on an item
+        RECORD_ITEM_SPAWNED   int x, int y, int plane, int itemId, int quantity, byte onPlayerTile
+        RECORD_ITEM_DESPAWNED int x, int y, int plane, int itemId, int quantity
+        RECORD_DEPOSIT        int itemId                    - deposited with the deposit box, one per item
+        RECORD_ITEM_QUANTITY_CHANGED int x, int y, int plane, int itemId, int oldQuantity, int newQuantity,
+                              byte onPlayerTile
+
+    VERSION 1 recordings are the same without RECORD_CANONICAL, VERSION 2 without RECORD_DROP and the item
+    spawn records, VERSION 3 without RECORD_DEPOSIT, VERSION 4 without RECORD_ITEM_QUANTITY_CHANGED.
+
+    Same buffering as ProfitTrackerSessionJournal: records are appended to a buffer under a short lock,
+    from the client thread (and the valuation thread for profits), and written by a writer thread every second.
+     */
+
+    static final int MAGIC = 0x50545243;
+    static final int VERSION = 5;
+
+    static final byte RECORD_TICK = 1;
+    static final byte RECORD_CONTAINER = 2;
+    static final byte RECORD_MENU = 3;
+    static final byte RECORD_SCRIPT = 4;
+    static final byte RECORD_PRICE = 5;
+    static final byte RECORD_GAME_STATE = 6;
+    static final byte RECORD_SESSION_RESET = 7;
+    static final byte RECORD_PROFIT = 8;
+    static final byte RECORD_STARTUP = 9;
+    static final byte RECORD_RUNE_POUCH = 10;
+    static final byte RECORD_CANONICAL = 11;
+    static final byte RECORD_DROP = 12;
+    static final byte RECORD_ITEM_SPAWNED = 13;
+    static final byte RECORD_ITEM_DESPAWNED = 14;
+    static final byte RECORD_DEPOSIT = 15;
+    static final byte RECORD_ITEM_QUANTITY_CHANGED = 16;
+
+    static final Varbits[] RUNE_POUCH_VARBITS = {
+            Varbits.RUNE_POUCH_RUNE1, Varbits.RUNE_POUCH_RUNE2, Varbits.RUNE_POUCH_RUNE3,
+            Varbits.RUNE_POUCH_AMOUNT1, Varbits.RUNE_POUCH_AMOUNT2, Varbits.RUNE_POUCH_AMOUNT3
+    };
+
+    // containers that exist before the plugin starts, recorded with the startup
+    private static final InventoryID[] STARTUP_CONTAINERS = {
+            InventoryID.INVENTORY,
+            InventoryID.EQUIPMENT,
+            InventoryID.BANK,
+            InventoryID.LOOTING_BAG,
+            InventoryID.SEED_VAULT,
+    };
+
+    private static final long FLUSH_INTERVAL_MILLIS = 1000;
+
+    // longest close waits for the last write
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private final File recordingFile;
+    private final ScheduledExecutorService writerExecutor;
+
+    /*
+    Guarded by this
+     */
+    private ByteBuffer pendingBuffer;
+
+    /*
+    Writer thread only
+     */
+    private ByteBuffer writingBuffer;
+    private FileChannel channel;
+
+    public ProfitTrackerEventRecorder(File recordingFile)
+    {
+        this.recordingFile = recordingFile;
+
+        pendingBuffer = ByteBuffer.allocateDirect(INITIAL_BUFFER_SIZE);
+        writingBuffer = ByteBuffer.allocateDirect(INITIAL_BUFFER_SIZE);
+
+        pendingBuffer.putInt(MAGIC);
+        pendingBuffer.putInt(VERSION);
+        pendingBuffer.putLong(System.currentTimeMillis());
+
+        writerExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "profit-tracker-recorder");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        writerExecutor.scheduleWithFixedDelay(this::flush,
+                FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public void recordStartUp(Client client)
+    {
+        /*
+        client thread: whatever the plugin can see when it starts
+         */
+        recordGameState(client.getGameState());
+
+        for (InventoryID containerId : STARTUP_CONTAINERS)
+        {
+            final ItemContainer container = client.getItemContainer(containerId);
+
+            if (container != null)
+            {
+                recordContainer(containerId.getId(), container);
+            }
+        }
+
+        recordRunePouch(client);
+
+        synchronized (this)
+        {
+            reserve(1).put(RECORD_STARTUP);
+        }
+    }
+
+    public void recordTick(int tick, long timeMillis)
+    {
+        synchronized (this)
+        {
+            reserve(1 + 4 + 8).put(RECORD_TICK).putInt(tick).putLong(timeMillis);
+        }
+    }
+
+    public void recordContainer(int containerId, ItemContainer container)
+    {
+        final Item[] items = container == null ? new Item[0] : container.getItems();
+
+        synchronized (this)
+        {
+            final ByteBuffer buffer = reserve(1 + 4 + 4 + items.length * 8);
+
+            buffer.put(RECORD_CONTAINER).putInt(containerId).putInt(items.length);
+
+            for (Item item : items)
+            {
+                buffer.putInt(item.getId()).putInt(item.getQuantity());
+            }
+        }
+    }
+
+    public void recordMenu(int id, int actionParam, int widgetId)
+    {
+        synchronized (this)
+        {
+            reserve(1 + 4 + 4 + 4).put(RECORD_MENU).putInt(id).putInt(actionParam).putInt(widgetId);
+        }
+    }
+
+    public void recordScript(int scriptId)
+    {
+        synchronized (this)
+        {
+            reserve(1 + 4).put(RECORD_SCRIPT).putInt(scriptId);
+        }
+    }
+
+    public long recordPrice(int itemId, long price)
+    {
+        /*
+        returns the price, so it can wrap a price lookup
+         */
+        synchronized (this)
+        {
+            reserve(1 + 4 + 8).put(RECORD_PRICE).putInt(itemId).putLong(price);
+        }
+
+        return price;
+    }
+
+    public int recordCanonicalId(int itemId, int canonicalId)
+    {
+        /*
+        returns the canonical id, so it can wrap a lookup
+         */
+        synchronized (this)
+        {
+            reserve(1 + 4 + 4).put(RECORD_CANONICAL).putInt(itemId).putInt(canonicalId);
+        }
+
+        return canonicalId;
+    }
+
+    public void recordGameState(GameState gameState)
+    {
+        synchronized (this)
+        {
+            reserve(1 + 4).put(RECORD_GAME_STATE).putInt(gameState.getState());
+        }
+    }
+
+    public void recordSessionReset()
+    {
+        synchronized (this)
+        {
+            reserve(1).put(RECORD_SESSION_RESET);
+        }
+    }
+
+    public void recordProfit(long tickProfit)
+    {
+        /*
+        valuation thread
+         */
+        synchronized (this)
+        {
+            reserve(1 + 8).put(RECORD_PROFIT).putLong(tickProfit);
+        }
+    }
+
+    public void recordDrop(int itemId)
+    {
+        synchronized (this)
+        {
+            reserve(1 + 4).put(RECORD_DROP).putInt(itemId);
+        }
+    }
+
+    public void recordDeposit(int itemId)
+    {
+        synchronized (this)
+        {
+            reserve(1 + 4).put(RECORD_DEPOSIT).putInt(itemId);
+        }
+    }
+
+    public void recordItemQuantityChanged(int x, int y, int plane, int itemId, int oldQuantity, int newQuantity,
+                                          boolean onPlayerTile)
+    {
+        synchronized (this)
+        {
+            reserve(1 + 6 * 4 + 1).put(RECORD_ITEM_QUANTITY_CHANGED).putInt(x).putInt(y).putInt(plane)
+                    .putInt(itemId).putInt(oldQuantity).putInt(newQuantity).put((byte) (onPlayerTile ? 1 : 0));
+        }
+    }
+
+    public void recordItemSpawned(int x, int y, int plane, int itemId, int quantity, boolean onPlayerTile)
+    {
+        synchronized (this)
+        {
+            reserve(1 + 5 * 4 + 1).put(RECORD_ITEM_SPAWNED).putInt(x).putInt(y).putInt(plane)
+                    .putInt(itemId).putInt(quantity).put((byte) (onPlayerTile ? 1 : 0));
+        }
+    }
+
+    public void recordItemDespawned(int x, int y, int plane, int itemId, int quantity)
+    {
+        synchronized (this)
+        {
+            reserve(1 + 5 * 4).put(RECORD_ITEM_DESPAWNED).putInt(x).putInt(y).putInt(plane)
+                    .putInt(itemId).putInt(quantity);
+        }
+    }
+
+    public void recordRunePouch(Client client)
+    {
+        synchronized (this)
+        {
+            final ByteBuffer buffer = reserve(1 + RUNE_POUCH_VARBITS.length * 4);
+
+            buffer.put(RECORD_RUNE_POUCH);
+
+            for (Varbits varbit : RUNE_POUCH_VARBITS)
+            {
+                buffer.putInt(client.getVar(varbit));
+            }
+        }
+    }
+
+    private ByteBuffer reserve(int recordSize)
+    {
+        /*
+        pending buffer with room for the record, guarded by this
+         */
+        if (pendingBuffer.remaining() < recordSize)
+        {
+            // writer fell behind or a bank sized container, make room rather than block or lose records
+            ByteBuffer grown = ByteBuffer.allocateDirect(Math.max(pendingBuffer.capacity() * 2,
+                    pendingBuffer.position() + recordSize));
+            pendingBuffer.flip();
+            grown.put(pendingBuffer);
+            pendingBuffer = grown;
+        }
+
+        return pendingBuffer;
+    }
+
+    private void flush()
+    {
+        /*
+        runs on the writer thread.
+        swap buffers under the lock, then write without holding it
+         */
+        synchronized (this)
+        {
+            if (pendingBuffer.position() == 0)
+            {
+                return;
+            }
+
+            ByteBuffer swap = pendingBuffer;
+            pendingBuffer = writingBuffer;
+            writingBuffer = swap;
+
+            pendingBuffer.clear();
+        }
+
+        writingBuffer.flip();
+
+        try
+        {
+            if (channel == null)
+            {
+                File directory = recordingFile.getParentFile();
+
+                if (directory != null && !directory.exists() && !directory.mkdirs())
+                {
+                    throw new IOException("unable to create " + directory);
+                }
+
+                channel = FileChannel.open(recordingFile.toPath(),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            }
+
+            while (writingBuffer.hasRemaining())
+            {
+                channel.write(writingBuffer);
+            }
+        }
+        catch (IOException e)
+        {
+            log.warn("Unable to write event recording {}", recordingFile, e);
+        }
+        finally
+        {
+            writingBuffer.clear();
+        }
+    }
+
+    public void close()
+    {
+        /*
+        write what is left and stop the writer thread
+         */
+        writerExecutor.execute(() -> {
+            flush();
+
+            if (channel != null)
+            {
+                try
+                {
+                    channel.close();
+                }
+                catch (IOException e)
+                {
+                    log.warn("Unable to close event recording {}", recordingFile, e);
+                }
+
+                channel = null;
+            }
+        });
+
+        writerExecutor.shutdown();
+
+        // a new instance may open the same file right away, this one must be done with it
+        awaitWriter();
+    }
+
+    private void awaitWriter()
+    {
+        try
+        {
+            if (!writerExecutor.awaitTermination(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS))
+            {
+                log.warn("Timed out writing the end of the event recording {}", recordingFile);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.profittracker;
+
+/**
+ * The ProfitTrackerExportFormat enum selects the file format ProfitTrackerEventExport writes.
+ */
+public enum ProfitTrackerExportFormat
+{
+    CSV("CSV", ".csv"),
+    JSON_LINES("JSON Lines", ".jsonl");
+
+    private final String name;
+    private final String fileExtension;
+
+    ProfitTrackerExportFormat(String name, String fileExtension)
+    {
+        this.name = name;
+        this.fileExtension = fileExtension;
+    }
+
+    public String getFileExtension()
+    {
+        return fileExtension;
+    }
+
+    @Override
+    public String toString()
+    {
+        return name;
+    }
+}
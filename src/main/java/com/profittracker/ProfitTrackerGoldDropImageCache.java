@@ -0,0 +1,258 @@
+package com.profittracker;
+
+import net.runelite.api.ItemID;
+import net.runelite.client.game.ItemManager;
+import net.runelite.client.util.AsyncBufferedImage;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * The ProfitTrackerGoldDropImageCache class keeps gold drop images (coin stack + value text) ready to draw.
+ */
+public class ProfitTrackerGoldDropImageCache {
+    /*
+    Three levels, each built from the one below only when missing:
+      1. coin stack image per denomination tier, from ItemManager, loaded once
+      2. glyph image per character and color, rasterized once per font
+      3. whole drop image per drop text and sign, coin + glyphs, in an LRU of bounded size
+
+    So showing a drop that was shown before is a single image blit. Callers may hold on to a drop image
+    until the generation changes, which it does whenever drop images are thrown away.
+
+    Client thread only (overlay render and ItemManager image loading both run there).
+     */
+
+    // the coin stack image changes at these quantities, see the coins item
+    private static final int[] COIN_TIER_QUANTITIES = {1, 2, 3, 4, 5, 25, 100, 250, 1000, 10000};
+
+    private static final int MAX_DROP_IMAGES = 64;
+
+    // glyphs are only rasterized for these characters, drop text never has others
+    private static final int GLYPH_CHARS = 128;
+
+    private static final Color PROFIT_COLOR = Color.GREEN;
+    private static final Color LOSS_COLOR = Color.RED;
+
+    // gap between coin image and text
+    private static final int TEXT_GAP = 2;
+
+    // coin stack image of a quantity
+    private final IntFunction<AsyncBufferedImage> coinImageLoader;
+
+    private final AsyncBufferedImage[] coinImages = new AsyncBufferedImage[COIN_TIER_QUANTITIES.length];
+
+    // indexed by character, one set per color
+    private final BufferedImage[] profitGlyphs = new BufferedImage[GLYPH_CHARS];
+    private final BufferedImage[] lossGlyphs = new BufferedImage[GLYPH_CHARS];
+    private Font glyphFont;
+    private FontMetrics glyphMetrics;
+    private int glyphAscent;
+    private int glyphHeight;
+
+    // access ordered, so the eldest entry is the least recently drawn
+    private final Map<String, BufferedImage> dropImages = new LinkedHashMap<String, BufferedImage>(MAX_DROP_IMAGES, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, BufferedImage> eldest)
+        {
+            return size() > MAX_DROP_IMAGES;
+        }
+    };
+
+    /*
+    Statistics
+     */
+    private long hits;
+    private long misses;
+
+    private int generation;
+
+    ProfitTrackerGoldDropImageCache(ItemManager itemManager)
+    {
+        this(quantity -> itemManager.getImage(ItemID.COINS_995, quantity, false));
+    }
+
+    ProfitTrackerGoldDropImageCache(IntFunction<AsyncBufferedImage> coinImageLoader)
+    {
+        this.coinImageLoader = coinImageLoader;
+    }
+
+    public BufferedImage getDropImage(long goldDropValue, Font font)
+    {
+        /*
+        image of a whole gold drop, built on first use
+         */
+
+        if (font != glyphFont)
+        {
+            // all glyphs and drop images were rasterized with the old font
+            setGlyphFont(font);
+        }
+
+        final String text = ProfitTrackerGoldDrops.formatGoldDropText(goldDropValue);
+
+        // text decides the coin tier, but not always the color: big gains and losses are both "ALOT"
+        final String key = (goldDropValue > 0 ? '+' : '-') + text;
+
+        BufferedImage dropImage = dropImages.get(key);
+
+        if (dropImage != null)
+        {
+            hits++;
+            return dropImage;
+        }
+
+        misses++;
+
+        dropImage = composeDropImage(text, goldDropValue);
+        dropImages.put(key, dropImage);
+
+        return dropImage;
+    }
+
+    private void setGlyphFont(Font font)
+    {
+        Arrays.fill(profitGlyphs, null);
+        Arrays.fill(lossGlyphs, null);
+        clearDropImages();
+
+        glyphFont = font;
+
+        // font metrics need a graphics context, any image will do
+        final BufferedImage scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D graphics = scratch.createGraphics();
+        final FontMetrics metrics = graphics.getFontMetrics(font);
+
+        glyphMetrics = metrics;
+        glyphAscent = metrics.getAscent();
+
+        // +1 for the shadow
+        glyphHeight = metrics.getAscent() + metrics.getDescent() + 1;
+
+        graphics.dispose();
+    }
+
+    private BufferedImage composeDropImage(String text, long goldDropValue)
+    {
+        final BufferedImage coinImage = getCoinImage(goldDropValue);
+        final BufferedImage[] glyphs = goldDropValue > 0 ? profitGlyphs : lossGlyphs;
+        final Color color = goldDropValue > 0 ? PROFIT_COLOR : LOSS_COLOR;
+
+        int textWidth = 0;
+
+        for (int i = 0; i < text.length(); i++)
+        {
+            textWidth += getGlyph(glyphs, text.charAt(i), color).getWidth();
+        }
+
+        final int width = coinImage.getWidth() + TEXT_GAP + textWidth;
+        final int height = Math.max(coinImage.getHeight(), glyphHeight);
+
+        final BufferedImage dropImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D graphics = dropImage.createGraphics();
+
+        graphics.drawImage(coinImage, 0, (height - coinImage.getHeight()) / 2, null);
+
+        int x = coinImage.getWidth() + TEXT_GAP;
+        final int y = (height - glyphHeight) / 2;
+
+        for (int i = 0; i < text.length(); i++)
+        {
+            final BufferedImage glyph = getGlyph(glyphs, text.charAt(i), color);
+
+            graphics.drawImage(glyph, x, y, null);
+            x += glyph.getWidth();
+        }
+
+        graphics.dispose();
+
+        return dropImage;
+    }
+
+    private BufferedImage getGlyph(BufferedImage[] glyphs, char character, Color color)
+    {
+        /*
+        character rasterized with a shadow, like other overlay text
+         */
+        final int index = character < GLYPH_CHARS ? character : '?';
+
+        BufferedImage glyph = glyphs[index];
+
+        if (glyph != null)
+        {
+            return glyph;
+        }
+
+        final int advance = glyphMetrics.charWidth((char) index);
+
+        // +1 for the shadow
+        glyph = new BufferedImage(Math.max(1, advance + 1), glyphHeight, BufferedImage.TYPE_INT_ARGB);
+
+        final Graphics2D graphics = glyph.createGraphics();
+        final String glyphText = String.valueOf((char) index);
+
+        graphics.setFont(glyphFont);
+        graphics.setColor(Color.BLACK);
+        graphics.drawString(glyphText, 1, glyphAscent + 1);
+        graphics.setColor(color);
+        graphics.drawString(glyphText, 0, glyphAscent);
+        graphics.dispose();
+
+        glyphs[index] = glyph;
+
+        return glyph;
+    }
+
+    private BufferedImage getCoinImage(long goldDropValue)
+    {
+        final long quantity = Math.abs(goldDropValue);
+
+        // largest tier not above the quantity
+        int tier = 0;
+
+        while (tier + 1 < COIN_TIER_QUANTITIES.length && COIN_TIER_QUANTITIES[tier + 1] <= quantity)
+        {
+            tier++;
+        }
+
+        AsyncBufferedImage coinImage = coinImages[tier];
+
+        if (coinImage == null)
+        {
+            coinImage = coinImageLoader.apply(COIN_TIER_QUANTITIES[tier]);
+
+            // drops composed before the image loaded have a blank coin, build them again
+            coinImage.onLoaded(this::clearDropImages);
+
+            coinImages[tier] = coinImage;
+        }
+
+        return coinImage;
+    }
+
+    private void clearDropImages()
+    {
+        dropImages.clear();
+        generation++;
+    }
+
+    public int getGeneration()
+    {
+        return generation;
+    }
+
+    public long getHits()
+    {
+        return hits;
+    }
+
+    public long getMisses()
+    {
+        return misses;
+    }
+}
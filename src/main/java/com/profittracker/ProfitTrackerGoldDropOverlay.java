@@ -0,0 +1,156 @@
+package com.profittracker;
+
+import net.runelite.client.game.ItemManager;
+import net.runelite.client.ui.overlay.Overlay;
+import net.runelite.client.ui.overlay.OverlayLayer;
+import net.runelite.client.ui.overlay.OverlayPosition;
+
+import javax.inject.Inject;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * The ProfitTrackerGoldDropOverlay class draws gold drops rising and fading out, like xp drops,
+ * without going through the xp drop widgets.
+ */
+public class ProfitTrackerGoldDropOverlay extends Overlay {
+    /*
+    Drops on screen are kept in a small ring buffer, newest at the bottom.
+    A frame draws one cached image per drop, see ProfitTrackerGoldDropImageCache. Each drop keeps its image,
+    so the cache is only asked once per drop, and again when the font changed or the cache threw its images away.
+
+    Drops are added by ProfitTrackerGoldDrops on the client thread, and overlays render on it too,
+    so nothing here is synchronized.
+     */
+
+    private static final int MAX_VISIBLE_DROPS = 8;
+
+    private static final long DROP_DURATION_MILLIS = 2000;
+
+    // drops fade out during the last part of their life
+    private static final long FADE_MILLIS = 500;
+
+    // how far a drop rises during its life
+    private static final int RISE_HEIGHT = 80;
+
+    private final ProfitTrackerGoldDropImageCache imageCache;
+
+    private final long[] dropValues = new long[MAX_VISIBLE_DROPS];
+    private final long[] dropStartMillis = new long[MAX_VISIBLE_DROPS];
+    private int dropHead;
+    private int dropCount;
+
+    // null until first drawn
+    private final BufferedImage[] dropImages = new BufferedImage[MAX_VISIBLE_DROPS];
+    private Font dropImageFont;
+    private int dropImageGeneration;
+
+    private final Dimension size = new Dimension();
+
+    @Inject
+    ProfitTrackerGoldDropOverlay(ItemManager itemManager)
+    {
+        setPosition(OverlayPosition.TOP_RIGHT);
+        setLayer(OverlayLayer.ABOVE_WIDGETS);
+
+        imageCache = new ProfitTrackerGoldDropImageCache(itemManager);
+    }
+
+    public void addDrop(long goldDropValue, long nowMillis)
+    {
+        if (dropCount == MAX_VISIBLE_DROPS)
+        {
+            // make room by removing the oldest drop, it is almost gone anyway
+            dropHead = (dropHead + 1) % MAX_VISIBLE_DROPS;
+            dropCount--;
+        }
+
+        final int slot = (dropHead + dropCount) % MAX_VISIBLE_DROPS;
+
+        dropValues[slot] = goldDropValue;
+        dropStartMillis[slot] = nowMillis;
+        dropImages[slot] = null;
+        dropCount++;
+    }
+
+    @Override
+    public Dimension render(Graphics2D graphics)
+    {
+        final long now = System.currentTimeMillis();
+
+        // forget drops that finished
+        while (dropCount > 0 && now - dropStartMillis[dropHead] >= DROP_DURATION_MILLIS)
+        {
+            dropHead = (dropHead + 1) % MAX_VISIBLE_DROPS;
+            dropCount--;
+        }
+
+        if (dropCount == 0)
+        {
+            return null;
+        }
+
+        final Font font = graphics.getFont();
+        final Composite composite = graphics.getComposite();
+
+        if (font != dropImageFont || imageCache.getGeneration() != dropImageGeneration)
+        {
+            // rasterized with another font, or composed before a coin image loaded
+            Arrays.fill(dropImages, null);
+            dropImageFont = font;
+            dropImageGeneration = imageCache.getGeneration();
+        }
+
+        int width = 0;
+        int height = 0;
+
+        for (int i = 0; i < dropCount; i++)
+        {
+            final int slot = (dropHead + i) % MAX_VISIBLE_DROPS;
+
+            if (dropImages[slot] == null)
+            {
+                dropImages[slot] = imageCache.getDropImage(dropValues[slot], font);
+            }
+
+            final BufferedImage dropImage = dropImages[slot];
+
+            width = Math.max(width, dropImage.getWidth());
+            height = Math.max(height, dropImage.getHeight());
+        }
+
+        for (int i = 0; i < dropCount; i++)
+        {
+            final int slot = (dropHead + i) % MAX_VISIBLE_DROPS;
+            final long age = now - dropStartMillis[slot];
+            final BufferedImage dropImage = dropImages[slot];
+
+            final int y = RISE_HEIGHT - (int) (age * RISE_HEIGHT / DROP_DURATION_MILLIS);
+
+            if (age > DROP_DURATION_MILLIS - FADE_MILLIS)
+            {
+                final float alpha = Math.max(0f, (DROP_DURATION_MILLIS - age) / (float) FADE_MILLIS);
+                graphics.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha));
+            }
+            else
+            {
+                graphics.setComposite(composite);
+            }
+
+            // right aligned, like xp drops
+            graphics.drawImage(dropImage, width - dropImage.getWidth(), y, null);
+        }
+
+        graphics.setComposite(composite);
+
+        size.setSize(width, RISE_HEIGHT + height);
+
+        return size;
+    }
+
+    public ProfitTrackerGoldDropImageCache getImageCache()
+    {
+        return imageCache;
+    }
+}
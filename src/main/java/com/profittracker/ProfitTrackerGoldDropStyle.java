@@ -0,0 +1,26 @@
+package com.profittracker;
+
+/**
+ * The ProfitTrackerGoldDropStyle enum selects how gold drops are displayed.
+ */
+public enum ProfitTrackerGoldDropStyle
+{
+    // drawn by ProfitTrackerGoldDropOverlay from cached images
+    OVERLAY("Overlay"),
+
+    // fake xp drops with the icon and text replaced
+    XP_DROP("XP drop");
+
+    private final String name;
+
+    ProfitTrackerGoldDropStyle(String name)
+    {
+        this.name = name;
+    }
+
+    @Override
+    public String toString()
+    {
+        return name;
+    }
+}
@@ -19,7 +19,12 @@ import static net.runelite.api.widgets.WidgetInfo.TO_GROUP;
 public class ProfitTrackerGoldDrops {
     /*
        Implement gold drops.
-       We do this by using the XPDrop mechanism, namely the Fake XPDrop script,
+       Two styles, see ProfitTrackerGoldDropStyle:
+         OVERLAY - drawn by ProfitTrackerGoldDropOverlay from cached coin stack and text images,
+                   xp drop widgets are never touched so this coexists with XpDropPlugin.
+         XP_DROP - described below.
+
+       XP_DROP style uses the XPDrop mechanism, namely the Fake XPDrop script,
        which is intended to generate xp drops for maxed out skills.
        Fake XP Drops are composed of a skill sprite,
         and a text widget with a mod icon (<img=11> in text)
@@ -28,12 +33,14 @@ public class ProfitTrackerGoldDrops {
 
        Flow is:
 
-       1. create xp drop using runScript (see requestGoldDrop)
-       2. getting in the middle of the drop, changing icon and text (see handleXpDrop)
+       1. queue the gold drop value (see requestGoldDrop)
+       2. create xp drop using runScript, rate limited (see onClientTick),
+          or hand it to the overlay in OVERLAY style
+       3. getting in the middle of the drop, changing icon and text (see handleXpDrop)
 
-       A more correct way to do this is probably by calling Item.GetImage with wanted
-       coin quantity, which will give us correct coin icon and correct text,
-       and simply drawing that image ourselfs somehow. Instead of using xp drop mechanism.
+       Drops requested in quick succession are coalesced into one, within a window,
+       and at most one fake xp drop is in flight at a time, so each value is paired
+       with the xp drop that was created for it.
      */
 
     /*
@@ -50,27 +57,72 @@ public class ProfitTrackerGoldDrops {
     // since we don't use this value, but we use currentGoldDropValue
     private static final int XPDROP_VALUE = 6;
 
+    // gold drops waiting to be shown, oldest are dropped beyond this
+    private static final int MAX_QUEUED_GOLD_DROPS = 16;
+
+    // a fake xp drop not paired with its script by then was never shown, don't wait for it anymore
+    private static final long IN_FLIGHT_TIMEOUT_MILLIS = 1200;
+
     /*
     Singletons which will be provided at creation by the plugin
      */
     private final ItemManager itemManager;
     private final Client client;
+    private final ProfitTrackerGoldDropOverlay goldDropOverlay;
+
+    /*
+    Queue of gold drops not shown yet, ring buffer of value and time first requested
+     */
+    private final long[] queuedValues = new long[MAX_QUEUED_GOLD_DROPS];
+    private final long[] queuedMillis = new long[MAX_QUEUED_GOLD_DROPS];
+    private int queueHead;
+    private int queueSize;
 
-    /* var currentGoldDropValue will have
-    the gold value of the current ongoing gold drop. 2 purposes:
+    /* var inFlightGoldDropValue will have
+    the gold value of the current ongoing gold drop, when isGoldDropInFlight. 2 purposes:
       1. to know the value later when we actually use it,
       2. to know to catch the next fake xpdrop in onScriptPreFired
     */
-    private long currentGoldDropValue;
+    private boolean isGoldDropInFlight;
+    private long inFlightGoldDropValue;
+    private long inFlightSinceMillis;
 
-    ProfitTrackerGoldDrops(Client client, ItemManager itemManager)
+    /*
+    Settings
+     */
+    private ProfitTrackerGoldDropStyle style;
+    private long coalesceWindowMillis;
+    private int maxDropsPerSecond;
+
+    // token bucket for the rate limit, in thousandths of a drop
+    private long rateTokens;
+    private long rateTokensMillis;
+
+    /*
+    Statistics
+     */
+    private long requestedCount;
+    private long coalescedCount;
+    private long droppedCount;
+    private long shownCount;
+
+    // coin sprite override is only needed by XP_DROP style, registered the first time it's used
+    private boolean isCoinSpritePrepared;
+
+    ProfitTrackerGoldDrops(Client client, ItemManager itemManager, ProfitTrackerGoldDropOverlay goldDropOverlay)
     {
         this.client = client;
         this.itemManager = itemManager;
+        this.goldDropOverlay = goldDropOverlay;
+
+        style = ProfitTrackerGoldDropStyle.OVERLAY;
+        isCoinSpritePrepared = false;
 
-        prepareCoinSprite();
+        isGoldDropInFlight = false;
+        inFlightGoldDropValue = 0L;
 
-        currentGoldDropValue = 0L;
+        coalesceWindowMillis = 0;
+        maxDropsPerSecond = 1;
 
     }
 
@@ -87,6 +139,12 @@ public class ProfitTrackerGoldDrops {
             return;
         }
 
+        if (style != ProfitTrackerGoldDropStyle.XP_DROP && !isGoldDropInFlight)
+        {
+            // never touched any xp drop widget, nothing to fix up
+            return;
+        }
+
         // Get xpdrop widget id using the stack
         // taken from XpDropPlugin!
 
@@ -97,12 +155,18 @@ public class ProfitTrackerGoldDrops {
 
         final int widgetId = intStack[intStackSize - 4];
 
-        // extract information from currentGoldDropValue
-        boolean isThisGoldDrop =   (currentGoldDropValue != 0);
-        long     goldDropValue =     currentGoldDropValue;
+        // extract information from the in flight gold drop
+        boolean isThisGoldDrop =   isGoldDropInFlight;
+        long     goldDropValue =     inFlightGoldDropValue;
 
         // done with this gold drop anyway
-        currentGoldDropValue = 0;
+        isGoldDropInFlight = false;
+        inFlightGoldDropValue = 0;
+
+        if (isThisGoldDrop)
+        {
+            shownCount++;
+        }
 
         handleXpDrop(widgetId, isThisGoldDrop, goldDropValue);
 
@@ -128,7 +192,7 @@ public class ProfitTrackerGoldDrops {
 
         if (xpDropWidgetChildren.length < 1)
         {
-            log.error(String.format("Unexpected xpDropWidgets length! %d", xpDropWidgetChildren.length));
+            log.error("Unexpected xpDropWidgets length! {}", xpDropWidgetChildren.length);
             return;
         }
 
@@ -140,9 +204,8 @@ public class ProfitTrackerGoldDrops {
 
             if (xpDropWidgetChildren.length < 2)
             {
-                log.error(String.format(
-                        "Unexpected xpDropWidgetChildren length for a gold drop! length! %d",
-                        xpDropWidgetChildren.length));
+                log.error("Unexpected xpDropWidgetChildren length for a gold drop! length! {}",
+                        xpDropWidgetChildren.length);
                 return;
             }
 
@@ -214,23 +277,184 @@ public class ProfitTrackerGoldDrops {
     public void requestGoldDrop(long amount)
     {
         /*
-        We create gold drops by faking a fake xp drop :)
+        Queue a gold drop, shown by onClientTick.
+        Merged into the last queued drop if that one was requested within the coalesce window.
+         */
+
+        ProfitTrackerTrace.trace("goldDrop: {}", amount);
+
+        final long now = System.currentTimeMillis();
+
+        requestedCount++;
+
+        if (queueSize > 0)
+        {
+            final int tail = (queueHead + queueSize - 1) % MAX_QUEUED_GOLD_DROPS;
+
+            if (now - queuedMillis[tail] < coalesceWindowMillis)
+            {
+                queuedValues[tail] += amount;
+                coalescedCount++;
+                return;
+            }
+        }
+
+        if (queueSize == MAX_QUEUED_GOLD_DROPS)
+        {
+            // nobody wants to see a drop that old anymore
+            queueHead = (queueHead + 1) % MAX_QUEUED_GOLD_DROPS;
+            queueSize--;
+            droppedCount++;
+        }
+
+        final int slot = (queueHead + queueSize) % MAX_QUEUED_GOLD_DROPS;
+
+        queuedValues[slot] = amount;
+        queuedMillis[slot] = now;
+        queueSize++;
+    }
+
+    public void onClientTick()
+    {
+        /*
+        Show the oldest queued gold drop, if its coalesce window passed,
+        no other gold drop is in flight, and the rate limit allows it
+         */
+
+        if (queueSize == 0 && !isGoldDropInFlight)
+        {
+            return;
+        }
+
+        final long now = System.currentTimeMillis();
+
+        if (isGoldDropInFlight)
+        {
+            if (now - inFlightSinceMillis < IN_FLIGHT_TIMEOUT_MILLIS)
+            {
+                // wait for its script, see onScriptPreFired
+                return;
+            }
+
+            // xp drop never showed up
+            isGoldDropInFlight = false;
+            droppedCount++;
+        }
+
+        while (queueSize > 0 && queuedValues[queueHead] == 0)
+        {
+            // coalesced drops cancelled each other out, nothing to show
+            queueHead = (queueHead + 1) % MAX_QUEUED_GOLD_DROPS;
+            queueSize--;
+        }
+
+        if (queueSize == 0 || now - queuedMillis[queueHead] < coalesceWindowMillis)
+        {
+            return;
+        }
+
+        if (!takeRateToken(now))
+        {
+            return;
+        }
+
+        final long amount = queuedValues[queueHead];
+
+        queueHead = (queueHead + 1) % MAX_QUEUED_GOLD_DROPS;
+        queueSize--;
+
+        if (style == ProfitTrackerGoldDropStyle.OVERLAY)
+        {
+            // drawn from cached images, no script and no widgets
+            goldDropOverlay.addDrop(amount, now);
+            shownCount++;
+        }
+        else
+        {
+            runGoldDropScript(amount, now);
+        }
+    }
+
+    private boolean takeRateToken(long now)
+    {
+        /*
+        token bucket allowing maxDropsPerSecond, with a burst of 1
          */
+        final long tokenCost = 1000;
+
+        rateTokens = Math.min(tokenCost, rateTokens + (now - rateTokensMillis) * maxDropsPerSecond);
+        rateTokensMillis = now;
 
-        log.info(String.format("goldDrop: %d", amount));
+        if (rateTokens < tokenCost)
+        {
+            return false;
+        }
+
+        rateTokens -= tokenCost;
+        return true;
+    }
+
+    private void runGoldDropScript(long amount, long now)
+    {
+        /*
+        We create gold drops by faking a fake xp drop :)
+         */
 
         // save the value and mark an ongoing gold drop
-        currentGoldDropValue = amount;
+        isGoldDropInFlight = true;
+        inFlightGoldDropValue = amount;
+        inFlightSinceMillis = now;
 
         // Create a fake xp drop. the 2 last arguments don't matter:
         // 1. skill ordinal - we will replace the icon anyway
         // 2. value - since we want to be able to pass negative numbers, we pass the value using
-        // currentGoldDropValue instead of this argument
+        // inFlightGoldDropValue instead of this argument
 
         client.runScript(XPDROP_DISABLED, XPDROP_SKILL, XPDROP_VALUE);
 
     }
 
+    public void setStyle(ProfitTrackerGoldDropStyle style)
+    {
+        this.style = style;
+
+        if (style == ProfitTrackerGoldDropStyle.XP_DROP && !isCoinSpritePrepared)
+        {
+            prepareCoinSprite();
+            isCoinSpritePrepared = true;
+        }
+    }
+
+    public void setCoalesceWindowMillis(long coalesceWindowMillis)
+    {
+        this.coalesceWindowMillis = coalesceWindowMillis;
+    }
+
+    public void setMaxDropsPerSecond(int maxDropsPerSecond)
+    {
+        this.maxDropsPerSecond = Math.max(1, maxDropsPerSecond);
+    }
+
+    public long getRequestedCount()
+    {
+        return requestedCount;
+    }
+
+    public long getCoalescedCount()
+    {
+        return coalescedCount;
+    }
+
+    public long getDroppedCount()
+    {
+        return droppedCount;
+    }
+
+    public long getShownCount()
+    {
+        return shownCount;
+    }
+
     private void resetXpDropTextColor(Widget xpDropTextWidget)
     {
         // taken from XpDropPlugin
@@ -240,7 +464,7 @@ public class ProfitTrackerGoldDrops {
         xpDropTextWidget.setTextColor(color);
     }
 
-    private String formatGoldDropText(long goldDropValue)
+    static String formatGoldDropText(long goldDropValue)
     {
         // format gold value runescape style
         // up to 10,000K
@@ -0,0 +1,450 @@
+package com.profittracker;
+
+import java.util.Arrays;
+
+/**
+ * The ProfitTrackerGroundItems class keeps the items we dropped, by tile, until they are picked up or gone.
+ */
+public class ProfitTrackerGroundItems {
+    /*
+    Dropping an item takes it out of the inventory, and picking it up puts it back. To the container diff alone
+    that is a loss and then a profit. So items we drop are tracked as if the ground were one more container:
+      - an item spawning shortly after we clicked Drop on it is ours, it went into the ground (+)
+      - one of ours despawning went out of the ground (-), picked up by us it's a transfer,
+        taken by someone else or timed out it's a loss, booked then
+    The changes go to the listener, and from there into the tick's item changes like any container's.
+
+    A drop is only matched to a Drop click of the same item within DROP_MATCH_TICKS,
+    and if the player is known, on the player's tile. Items others drop and loot from kills are never ours.
+
+    Index: tile -> chain of drops on that tile. The tile map is open addressing (linear probing, deleted
+    by shifting back), the drops are primitive arrays linked by index, unused ones on a free list.
+    Bounded to MAX_DROPS, when full the drop that expires first is evicted. A drop expires GROUND_TICKS
+    after it was made, when the game has surely removed it. Despawns we never see (logged out, hopped worlds,
+    far away) end that way. Game ticks rather than time, so a replay expires the same drops.
+
+    Drops made before the session started are baseline: picked up they are a transfer,
+    but expiring or evicted they vanish without a loss.
+
+    Despawns while not logged in (logging out, hopping, loading a new scene) mark the drop unloaded.
+    The items spawn again if still there, and are matched to an unloaded drop by tile, item and quantity.
+    Only to an unloaded one: the same item dropped again on the same tile is a new drop.
+
+    Stackable items dropped onto a stack of the same item merge into it, only its quantity changes.
+    A drop is the whole stack on the ground, matched by its quantity, and the part of it that is ours:
+    dropped onto a stack that isn't ours, picking the stack up gains the rest.
+
+    Client thread only.
+     */
+
+    interface Listener
+    {
+        // an item of ours went onto (quantityDelta > 0) or off (< 0) the ground
+        void groundChanged(int itemId, int quantityDelta);
+    }
+
+    static final int MAX_DROPS = 256;
+
+    // items dropped stay on the ground 3 minutes (300 ticks), a little longer to be sure
+    static final int GROUND_TICKS = 330;
+
+    // drop clicks remembered, and how many ticks after a click its item may spawn
+    private static final int MAX_DROP_CLICKS = 32;
+    private static final int DROP_MATCH_TICKS = 2;
+
+    // no tile packs to this, marks a free table slot
+    private static final int FREE_KEY = Integer.MIN_VALUE;
+
+    private static final int NO_DROP = -1;
+
+    private final Listener listener;
+
+    /*
+    Tile -> first drop on it, at most half full
+     */
+    private final int[] tileKeys = new int[MAX_DROPS * 2];
+    private final int[] tileHeads = new int[MAX_DROPS * 2];
+    private final int tileMask = MAX_DROPS * 2 - 1;
+
+    /*
+    Drops, by index
+     */
+    private final int[] dropTiles = new int[MAX_DROPS];
+    private final int[] dropItemIds = new int[MAX_DROPS];
+    private final int[] dropQuantities = new int[MAX_DROPS];
+    private final int[] dropOwnQuantities = new int[MAX_DROPS];
+    private final int[] dropExpiryTicks = new int[MAX_DROPS];
+    private final boolean[] dropBaselines = new boolean[MAX_DROPS];
+
+    // despawned with the scene, may spawn again
+    private final boolean[] dropUnloaded = new boolean[MAX_DROPS];
+
+    // next drop on the same tile, or next free drop
+    private final int[] dropNexts = new int[MAX_DROPS];
+    private int freeHead;
+    private int dropCount;
+
+    // none expire before this
+    private int nextExpiryTick = Integer.MAX_VALUE;
+
+    /*
+    Drop clicks, a ring
+     */
+    private final int[] clickItemIds = new int[MAX_DROP_CLICKS];
+    private final int[] clickTicks = new int[MAX_DROP_CLICKS];
+    private int clickCount;
+    private int clickNext;
+
+    public ProfitTrackerGroundItems(Listener listener)
+    {
+        this.listener = listener;
+
+        Arrays.fill(tileKeys, FREE_KEY);
+        Arrays.fill(dropExpiryTicks, Integer.MAX_VALUE);
+
+        for (int i = 0; i < MAX_DROPS; i++)
+        {
+            dropNexts[i] = i + 1 < MAX_DROPS ? i + 1 : NO_DROP;
+        }
+    }
+
+    static int packTile(int x, int y, int plane)
+    {
+        return plane << 28 | x << 14 | y;
+    }
+
+    private static int hash(int key)
+    {
+        // neighbouring tiles differ in the low bits, spread them over the table
+        final int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int findSlot(int tile)
+    {
+        int slot = hash(tile) & tileMask;
+
+        while (tileKeys[slot] != FREE_KEY && tileKeys[slot] != tile)
+        {
+            slot = (slot + 1) & tileMask;
+        }
+
+        return slot;
+    }
+
+    public void dropClicked(int itemId, int tick)
+    {
+        /*
+        Drop was clicked on itemId, it spawns on the player's tile within a tick or so
+         */
+        clickItemIds[clickNext] = itemId;
+        clickTicks[clickNext] = tick;
+        clickNext = (clickNext + 1) % MAX_DROP_CLICKS;
+        clickCount = Math.min(clickCount + 1, MAX_DROP_CLICKS);
+    }
+
+    private boolean takeDropClick(int itemId, int tick)
+    {
+        /*
+        forget a recent Drop click on itemId, false if there is none
+         */
+        for (int i = 0; i < clickCount; i++)
+        {
+            if (clickItemIds[i] == itemId && tick - clickTicks[i] <= DROP_MATCH_TICKS && tick >= clickTicks[i])
+            {
+                // one click, one drop
+                clickItemIds[i] = ProfitTrackerInventoryValue.EMPTY_SLOT_ITEMID;
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public void itemSpawned(int tile, boolean onPlayerTile, int itemId, int quantity, int tick)
+    {
+        /*
+        an item appeared on tile. onPlayerTile - it's where the player stands, or the player isn't known
+         */
+        final int unloadedDrop = findDrop(tile, itemId, quantity, true);
+
+        if (unloadedDrop != NO_DROP)
+        {
+            // one of ours, seen again after the scene was loaded
+            dropUnloaded[unloadedDrop] = false;
+            return;
+        }
+
+        if (!onPlayerTile || !takeDropClick(itemId, tick))
+        {
+            return;
+        }
+
+        addDrop(tile, itemId, quantity, quantity, tick + GROUND_TICKS);
+
+        listener.groundChanged(itemId, quantity);
+    }
+
+    public void itemQuantityChanged(int tile, boolean onPlayerTile, int itemId, int oldQuantity, int newQuantity, int tick)
+    {
+        /*
+        a stack on tile grew or shrank, a stackable item dropped onto it grows it
+         */
+        final int drop = findDrop(tile, itemId, oldQuantity, false);
+        final boolean dropped = newQuantity > oldQuantity && onPlayerTile && takeDropClick(itemId, tick);
+
+        if (drop == NO_DROP)
+        {
+            if (dropped)
+            {
+                // ours is only what was added
+                addDrop(tile, itemId, newQuantity, newQuantity - oldQuantity, tick + GROUND_TICKS);
+                listener.groundChanged(itemId, newQuantity - oldQuantity);
+            }
+
+            return;
+        }
+
+        dropQuantities[drop] = newQuantity;
+
+        if (dropped)
+        {
+            dropOwnQuantities[drop] += newQuantity - oldQuantity;
+            dropExpiryTicks[drop] = tick + GROUND_TICKS;
+            listener.groundChanged(itemId, newQuantity - oldQuantity);
+        }
+        else if (newQuantity < dropOwnQuantities[drop])
+        {
+            // less left than we dropped, some of ours is gone
+            final int lost = dropOwnQuantities[drop] - newQuantity;
+
+            dropOwnQuantities[drop] = newQuantity;
+
+            if (!dropBaselines[drop])
+            {
+                listener.groundChanged(itemId, -lost);
+            }
+        }
+    }
+
+    public void itemDespawned(int tile, int itemId, int quantity, boolean loggedIn)
+    {
+        /*
+        an item disappeared from tile, picked up or timed out
+         */
+        if (dropCount == 0)
+        {
+            return;
+        }
+
+        final int drop = findDrop(tile, itemId, quantity, false);
+
+        if (drop == NO_DROP)
+        {
+            return;
+        }
+
+        if (!loggedIn)
+        {
+            // the scene is being unloaded, the item is still there
+            dropUnloaded[drop] = true;
+            return;
+        }
+
+        final int ownQuantity = dropOwnQuantities[drop];
+
+        removeDrop(drop);
+
+        // picked up by us: the inventory gained it back in the same tick, and it's a transfer
+        listener.groundChanged(itemId, -ownQuantity);
+    }
+
+    public void expire(int tick)
+    {
+        /*
+        every tick: drops that must be gone by now are lost
+         */
+        if (tick < nextExpiryTick)
+        {
+            return;
+        }
+
+        nextExpiryTick = Integer.MAX_VALUE;
+
+        // unused drops never expire
+        for (int drop = 0; drop < MAX_DROPS; drop++)
+        {
+            if (dropExpiryTicks[drop] <= tick)
+            {
+                loseDrop(drop);
+            }
+            else
+            {
+                nextExpiryTick = Math.min(nextExpiryTick, dropExpiryTicks[drop]);
+            }
+        }
+    }
+
+    public void startSession()
+    {
+        /*
+        drops so far happened before the session, they aren't its losses
+         */
+        Arrays.fill(dropBaselines, true);
+    }
+
+    public int size()
+    {
+        return dropCount;
+    }
+
+    private int findDrop(int tile, int itemId, int quantity, boolean unloaded)
+    {
+        final int tileSlot = findSlot(tile);
+
+        if (tileKeys[tileSlot] == FREE_KEY)
+        {
+            return NO_DROP;
+        }
+
+        for (int drop = tileHeads[tileSlot]; drop != NO_DROP; drop = dropNexts[drop])
+        {
+            if (dropItemIds[drop] == itemId && dropQuantities[drop] == quantity && dropUnloaded[drop] == unloaded)
+            {
+                return drop;
+            }
+        }
+
+        return NO_DROP;
+    }
+
+    private void addDrop(int tile, int itemId, int quantity, int ownQuantity, int expiryTick)
+    {
+        if (freeHead == NO_DROP)
+        {
+            evictFirstExpiring();
+        }
+
+        final int drop = freeHead;
+        freeHead = dropNexts[drop];
+
+        dropTiles[drop] = tile;
+        dropItemIds[drop] = itemId;
+        dropQuantities[drop] = quantity;
+        dropOwnQuantities[drop] = ownQuantity;
+        dropExpiryTicks[drop] = expiryTick;
+        dropBaselines[drop] = false;
+        dropUnloaded[drop] = false;
+
+        final int tileSlot = findSlot(tile);
+
+        if (tileKeys[tileSlot] == FREE_KEY)
+        {
+            tileKeys[tileSlot] = tile;
+            dropNexts[drop] = NO_DROP;
+        }
+        else
+        {
+            dropNexts[drop] = tileHeads[tileSlot];
+        }
+
+        tileHeads[tileSlot] = drop;
+        dropCount++;
+
+        nextExpiryTick = Math.min(nextExpiryTick, expiryTick);
+    }
+
+    private void evictFirstExpiring()
+    {
+        /*
+        index is full, which only a lot of dropping in a short time does.
+        All drops are in use, so all have an expiry
+         */
+        int first = 0;
+
+        for (int drop = 1; drop < MAX_DROPS; drop++)
+        {
+            if (dropExpiryTicks[drop] < dropExpiryTicks[first])
+            {
+                first = drop;
+            }
+        }
+
+        loseDrop(first);
+    }
+
+    private void loseDrop(int drop)
+    {
+        /*
+        drop is gone without us seeing it
+         */
+        final int itemId = dropItemIds[drop];
+        final int quantity = dropOwnQuantities[drop];
+        final boolean baseline = dropBaselines[drop];
+
+        removeDrop(drop);
+
+        if (!baseline)
+        {
+            listener.groundChanged(itemId, -quantity);
+        }
+    }
+
+    private void removeDrop(int drop)
+    {
+        final int tileSlot = findSlot(dropTiles[drop]);
+
+        // unlink from its tile
+        if (tileHeads[tileSlot] == drop)
+        {
+            tileHeads[tileSlot] = dropNexts[drop];
+        }
+        else
+        {
+            int previous = tileHeads[tileSlot];
+
+            while (dropNexts[previous] != drop)
+            {
+                previous = dropNexts[previous];
+            }
+
+            dropNexts[previous] = dropNexts[drop];
+        }
+
+        if (tileHeads[tileSlot] == NO_DROP)
+        {
+            removeTile(tileSlot);
+        }
+
+        dropExpiryTicks[drop] = Integer.MAX_VALUE;
+        dropNexts[drop] = freeHead;
+        freeHead = drop;
+        dropCount--;
+    }
+
+    private void removeTile(int tileSlot)
+    {
+        /*
+        free tileSlot, shifting back later tiles of the same probe run so they stay reachable
+         */
+        int free = tileSlot;
+        int slot = (tileSlot + 1) & tileMask;
+
+        while (tileKeys[slot] != FREE_KEY)
+        {
+            final int home = hash(tileKeys[slot]) & tileMask;
+
+            // slot's tile may move to free if its home isn't cyclically in (free, slot]
+            if (((slot - home) & tileMask) >= ((slot - free) & tileMask))
+            {
+                tileKeys[free] = tileKeys[slot];
+                tileHeads[free] = tileHeads[slot];
+                free = slot;
+            }
+
+            slot = (slot + 1) & tileMask;
+        }
+
+        tileKeys[free] = FREE_KEY;
+    }
+}
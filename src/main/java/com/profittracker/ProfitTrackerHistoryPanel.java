@@ -0,0 +1,313 @@
+package com.profittracker;
+
+import net.runelite.client.callback.ClientThread;
+import net.runelite.client.game.ItemManager;
+import net.runelite.client.ui.ColorScheme;
+import net.runelite.client.ui.PluginPanel;
+
+import javax.swing.BorderFactory;
+import javax.swing.BoxLayout;
+import javax.swing.DefaultComboBoxModel;
+import javax.swing.JButton;
+import javax.swing.JComboBox;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Cursor;
+import java.awt.GridLayout;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The ProfitTrackerHistoryPanel class lists finished sessions from ProfitTrackerSessionHistory, a page at a time.
+ */
+public class ProfitTrackerHistoryPanel extends PluginPanel {
+    /*
+    Nothing is kept but the page shown. Queries run on the history thread, results are shown on the Swing thread,
+    item names are looked up on the client thread.
+
+    Refreshed when the panel is opened and when a session was archived while it is open.
+     */
+
+    private static final int PAGE_SIZE = 10;
+
+    // top items shown for a selected session
+    private static final int DETAIL_ITEMS = 5;
+
+    private static final String ALL_AREAS = "All areas";
+
+    private final ProfitTrackerSessionHistory sessionHistory;
+    private final ClientThread clientThread;
+    private final ItemManager itemManager;
+
+    private final JLabel totalsLabel = new JLabel();
+    private final JComboBox<String> areaComboBox = new JComboBox<>();
+    private final JPanel sessionsPanel = new JPanel(new GridLayout(0, 1, 0, 4));
+    private final JButton previousButton = new JButton("<");
+    private final JButton nextButton = new JButton(">");
+    private final JLabel pageLabel = new JLabel("", JLabel.CENTER);
+    private final JLabel detailsLabel = new JLabel();
+
+    // Swing thread only
+    private int page;
+    private int regionId = ProfitTrackerSessionHistory.NO_REGION;
+    private boolean active;
+    private boolean updatingAreas;
+    private int[] shownRegions = new int[0];
+
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+
+    ProfitTrackerHistoryPanel(ProfitTrackerSessionHistory sessionHistory, ClientThread clientThread,
+                              ItemManager itemManager)
+    {
+        this.sessionHistory = sessionHistory;
+        this.clientThread = clientThread;
+        this.itemManager = itemManager;
+
+        setLayout(new BorderLayout(0, 8));
+
+        final JPanel header = new JPanel();
+        header.setLayout(new BoxLayout(header, BoxLayout.Y_AXIS));
+        header.add(new JLabel("Session history"));
+        header.add(totalsLabel);
+        header.add(areaComboBox);
+
+        areaComboBox.addActionListener(event ->
+        {
+            if (updatingAreas)
+            {
+                return;
+            }
+
+            final int area = areaComboBox.getSelectedIndex();
+
+            // first entry is all areas
+            regionId = area <= 0 ? ProfitTrackerSessionHistory.NO_REGION : shownRegions[area - 1];
+            page = 0;
+            refresh();
+        });
+
+        final JPanel pager = new JPanel(new BorderLayout());
+        pager.add(previousButton, BorderLayout.WEST);
+        pager.add(pageLabel, BorderLayout.CENTER);
+        pager.add(nextButton, BorderLayout.EAST);
+
+        previousButton.addActionListener(event ->
+        {
+            page--;
+            refresh();
+        });
+
+        nextButton.addActionListener(event ->
+        {
+            page++;
+            refresh();
+        });
+
+        final JPanel footer = new JPanel(new BorderLayout(0, 8));
+        footer.add(pager, BorderLayout.NORTH);
+        footer.add(detailsLabel, BorderLayout.CENTER);
+
+        add(header, BorderLayout.NORTH);
+        add(sessionsPanel, BorderLayout.CENTER);
+        add(footer, BorderLayout.SOUTH);
+
+        sessionHistory.setArchivedListener(() -> SwingUtilities.invokeLater(() ->
+        {
+            if (active)
+            {
+                refresh();
+            }
+        }));
+    }
+
+    @Override
+    public void onActivate()
+    {
+        active = true;
+        refresh();
+    }
+
+    @Override
+    public void onDeactivate()
+    {
+        active = false;
+    }
+
+    private void refresh()
+    {
+        /*
+        Swing thread: query the page on the history thread, show it when done
+         */
+        final int queryPage = Math.max(0, page);
+        final int queryRegionId = regionId;
+
+        sessionHistory.execute(() ->
+        {
+            final ProfitTrackerSessionTotals totals = sessionHistory.sumSessions(0, Long.MAX_VALUE, queryRegionId);
+            final List<ProfitTrackerSessionSummary> sessions = sessionHistory.listSessions(0, Long.MAX_VALUE,
+                    queryRegionId, queryPage * PAGE_SIZE, PAGE_SIZE);
+            final int[] regions = sessionHistory.listRegions();
+
+            SwingUtilities.invokeLater(() -> show(queryPage, totals, sessions, regions));
+        });
+    }
+
+    private void show(int shownPage, ProfitTrackerSessionTotals totals, List<ProfitTrackerSessionSummary> sessions,
+                      int[] regions)
+    {
+        page = shownPage;
+
+        totalsLabel.setText(totals.getSessionCount() + " sessions, "
+                + ProfitTrackerOverlay.FormatIntegerWithCommas(totals.getProfit()) + " gp, "
+                + hourlyRate(totals.getProfit(), totals.getActiveMillis()) + "K/H");
+
+        updateAreas(regions);
+
+        sessionsPanel.removeAll();
+
+        for (ProfitTrackerSessionSummary session : sessions)
+        {
+            sessionsPanel.add(buildSessionRow(session));
+        }
+
+        final int pages = Math.max(1, (totals.getSessionCount() + PAGE_SIZE - 1) / PAGE_SIZE);
+
+        pageLabel.setText((page + 1) + " / " + pages);
+        previousButton.setEnabled(page > 0);
+        nextButton.setEnabled(page + 1 < pages);
+
+        revalidate();
+        repaint();
+    }
+
+    private void updateAreas(int[] regions)
+    {
+        final DefaultComboBoxModel<String> areas = new DefaultComboBoxModel<>();
+        areas.addElement(ALL_AREAS);
+
+        for (int region : regions)
+        {
+            areas.addElement("Region " + region);
+        }
+
+        areas.setSelectedItem(regionId == ProfitTrackerSessionHistory.NO_REGION ? ALL_AREAS : "Region " + regionId);
+
+        shownRegions = regions;
+
+        // setting the model fires the action listener, which would query again
+        updatingAreas = true;
+        areaComboBox.setModel(areas);
+        updatingAreas = false;
+    }
+
+    private JPanel buildSessionRow(ProfitTrackerSessionSummary session)
+    {
+        final JPanel row = new JPanel(new GridLayout(2, 1));
+        row.setBackground(ColorScheme.DARKER_GRAY_COLOR);
+        row.setBorder(BorderFactory.createEmptyBorder(4, 6, 4, 6));
+        row.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+
+        final JLabel dateLabel = new JLabel(dateFormat.format(new Date(session.getStartMillis()))
+                + "  " + formatDuration(session.getActiveMillis()));
+
+        final JLabel profitLabel = new JLabel(ProfitTrackerOverlay.FormatIntegerWithCommas(session.getProfit())
+                + " gp  " + hourlyRate(session.getProfit(), session.getActiveMillis()) + "K/H");
+        profitLabel.setForeground(session.getProfit() >= 0 ? Color.GREEN : Color.RED);
+
+        row.add(dateLabel);
+        row.add(profitLabel);
+
+        row.addMouseListener(new MouseAdapter()
+        {
+            @Override
+            public void mouseClicked(MouseEvent event)
+            {
+                showDetails(session);
+            }
+        });
+
+        return row;
+    }
+
+    private void showDetails(ProfitTrackerSessionSummary session)
+    {
+        /*
+        items are only read when a session is selected: history thread reads and picks the top items,
+        client thread names them, Swing thread shows them
+         */
+        sessionHistory.execute(() ->
+        {
+            final int[] itemIds = new int[session.getItemCount()];
+            final long[] quantities = new long[session.getItemCount()];
+            final long[] values = new long[session.getItemCount()];
+
+            final int count = sessionHistory.readItems(session, itemIds, quantities, values);
+
+            final ProfitTrackerItemLedger ledger = new ProfitTrackerItemLedger();
+
+            for (int i = 0; i < count; i++)
+            {
+                ledger.add(itemIds[i], quantities[i], values[i]);
+            }
+
+            final int[] topIds = new int[DETAIL_ITEMS];
+            final long[] topQuantities = new long[DETAIL_ITEMS];
+            final long[] topValues = new long[DETAIL_ITEMS];
+
+            final StringBuilder details = new StringBuilder("<html>");
+
+            final int gainers = ledger.selectTopGainers(DETAIL_ITEMS, topIds, topQuantities, topValues);
+            final int[] gainerIds = topIds.clone();
+            final long[] gainerValues = topValues.clone();
+
+            final int losers = ledger.selectTopLosers(DETAIL_ITEMS, topIds, topQuantities, topValues);
+
+            clientThread.invokeLater(() ->
+            {
+                details.append("Top gains:<br>");
+
+                for (int i = 0; i < gainers; i++)
+                {
+                    appendItem(details, gainerIds[i], gainerValues[i]);
+                }
+
+                details.append("Top losses:<br>");
+
+                for (int i = 0; i < losers; i++)
+                {
+                    appendItem(details, topIds[i], topValues[i]);
+                }
+
+                details.append("</html>");
+
+                SwingUtilities.invokeLater(() -> detailsLabel.setText(details.toString()));
+            });
+        });
+    }
+
+    private void appendItem(StringBuilder details, int itemId, long value)
+    {
+        details.append(itemManager.getItemComposition(itemId).getName())
+                .append(": ")
+                .append(ProfitTrackerOverlay.FormatIntegerWithCommas(value))
+                .append("<br>");
+    }
+
+    private static long hourlyRate(long profit, long activeMillis)
+    {
+        return ProfitTrackerOverlay.calculateProfitHourly(activeMillis / 1000, profit);
+    }
+
+    private static String formatDuration(long millis)
+    {
+        final long minutes = millis / 60000;
+
+        return minutes / 60 + "h " + minutes % 60 + "m";
+    }
+}
@@ -0,0 +1,198 @@
+package com.profittracker;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * The ProfitTrackerInstrumentation class times the plugin's event handlers and overlay rendering,
+ * off unless enabled in the config.
+ */
+@Slf4j
+public final class ProfitTrackerInstrumentation {
+    /*
+    Probes wrap code running on the client thread:
+
+        final long startNanos = ProfitTrackerInstrumentation.start(ProfitTrackerProbe.GAME_TICK);
+        ...
+        ProfitTrackerInstrumentation.stop(ProfitTrackerProbe.GAME_TICK, startNanos);
+
+    Disabled, start and stop are a flag check each, like ProfitTrackerTrace.
+    Enabled, each call is timed with System.nanoTime into the probe's ProfitTrackerLatencyHistogram,
+    and when the JVM can tell (HotSpot), the bytes the client thread allocated meanwhile are counted too.
+
+    Everything is client thread only: probes, the debug overlay reading the histograms, the periodic summary.
+    Only the enabled flag is set from elsewhere. A probe started before it was enabled is not counted.
+     */
+
+    private static final ProfitTrackerProbe[] PROBES = ProfitTrackerProbe.values();
+
+    private static final ProfitTrackerLatencyHistogram[] histograms = new ProfitTrackerLatencyHistogram[PROBES.length];
+
+    // thread allocated bytes when each probe started
+    private static final long[] startAllocatedBytes = new long[PROBES.length];
+
+    // null when the JVM doesn't count allocated bytes per thread
+    private static final com.sun.management.ThreadMXBean allocationCounter = allocationCounter();
+
+    private static volatile boolean enabled;
+
+    private static long summaryIntervalMillis;
+    private static long lastSummaryMillis;
+
+    static
+    {
+        for (int i = 0; i < PROBES.length; i++)
+        {
+            histograms[i] = new ProfitTrackerLatencyHistogram();
+        }
+    }
+
+    private ProfitTrackerInstrumentation()
+    {
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter()
+    {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        if (threads instanceof com.sun.management.ThreadMXBean)
+        {
+            final com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+
+            if (counter.isThreadAllocatedMemorySupported() && counter.isThreadAllocatedMemoryEnabled())
+            {
+                return counter;
+            }
+        }
+
+        return null;
+    }
+
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled)
+    {
+        ProfitTrackerInstrumentation.enabled = enabled;
+    }
+
+    public static boolean isCountingAllocations()
+    {
+        return allocationCounter != null;
+    }
+
+    public static void setSummaryIntervalMillis(long summaryIntervalMillis)
+    {
+        /*
+        how often summaryIfDue logs, 0 for never
+         */
+        ProfitTrackerInstrumentation.summaryIntervalMillis = summaryIntervalMillis;
+    }
+
+    public static long start(ProfitTrackerProbe probe)
+    {
+        /*
+        start time to pass to stop, 0 when disabled
+         */
+        if (!enabled)
+        {
+            return 0;
+        }
+
+        if (allocationCounter != null)
+        {
+            startAllocatedBytes[probe.ordinal()] = allocationCounter.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+
+        return System.nanoTime();
+    }
+
+    public static void stop(ProfitTrackerProbe probe, long startNanos)
+    {
+        if (startNanos == 0 || !enabled)
+        {
+            return;
+        }
+
+        final ProfitTrackerLatencyHistogram histogram = histograms[probe.ordinal()];
+
+        histogram.record(System.nanoTime() - startNanos);
+
+        if (allocationCounter != null)
+        {
+            histogram.addAllocatedBytes(allocationCounter.getThreadAllocatedBytes(Thread.currentThread().getId())
+                    - startAllocatedBytes[probe.ordinal()]);
+        }
+    }
+
+    public static ProfitTrackerLatencyHistogram getHistogram(ProfitTrackerProbe probe)
+    {
+        return histograms[probe.ordinal()];
+    }
+
+    public static void reset()
+    {
+        for (ProfitTrackerLatencyHistogram histogram : histograms)
+        {
+            histogram.reset();
+        }
+
+        lastSummaryMillis = 0;
+    }
+
+    public static void summaryIfDue(long nowMillis)
+    {
+        /*
+        log the summary every summaryIntervalMillis while enabled
+         */
+        if (!enabled || summaryIntervalMillis <= 0)
+        {
+            return;
+        }
+
+        if (lastSummaryMillis == 0)
+        {
+            // first call, start counting from now
+            lastSummaryMillis = nowMillis;
+            return;
+        }
+
+        if (nowMillis - lastSummaryMillis >= summaryIntervalMillis)
+        {
+            logSummary();
+            lastSummaryMillis = nowMillis;
+        }
+    }
+
+    public static void logSummary()
+    {
+        /*
+        one line per probe that ran
+         */
+        for (ProfitTrackerProbe probe : PROBES)
+        {
+            final ProfitTrackerLatencyHistogram histogram = histograms[probe.ordinal()];
+
+            if (histogram.getCount() == 0)
+            {
+                continue;
+            }
+
+            log.info("{}: {} calls, mean {} us, p50 {} us, p99 {} us, max {} us, {} bytes allocated per call",
+                    probe, histogram.getCount(), formatMicros(histogram.getMeanNanos()),
+                    formatMicros(histogram.percentileNanos(50)), formatMicros(histogram.percentileNanos(99)),
+                    formatMicros(histogram.getMaxNanos()),
+                    allocationCounter != null ? histogram.getAllocatedBytesPerSample() : "?");
+        }
+    }
+
+    static String formatMicros(long nanos)
+    {
+        // most handlers take a few microseconds, keep one decimal
+        return nanos / 1000 + "." + nanos / 100 % 10;
+    }
+}
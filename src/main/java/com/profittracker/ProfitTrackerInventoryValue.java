@@ -2,10 +2,9 @@ package com.profittracker;
 
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.*;
-import net.runelite.client.game.ItemManager;
 
 import java.util.Arrays;
-import java.util.stream.LongStream;
+import java.util.function.Consumer;
 
 @Slf4j
 public class ProfitTrackerInventoryValue {
@@ -13,30 +12,120 @@ public class ProfitTrackerInventoryValue {
     Provide functional methods for calculating inventory value
      */
     /*
+    Threads:
+      - prices, captures and full container valuations are client thread only (ItemManager, price cache)
+      - snapshots, tick delta, reconciler and ledger belong to the valuation thread, see ProfitTrackerValuationPipeline
+     */
+    /*
+    Tracked containers:
+    everything the player owns that we can see, so moving items between them (banking etc.) nets to zero.
+    Each has a snapshot, and is only valued again slot by slot when it changes -
+    the bank is 800+ slots and is never valued as a whole after it was first seen.
+    A container seen for the first time is a baseline, its contents are not profit.
+     */
+    /*
     Singletons which will be provided at creation by the plugin
      */
 
     static final int EMPTY_SLOT_ITEMID = -1;
 
-    private final ItemManager itemManager;
+    // contents of inventory and equipment not known, see calculateSnapshotHash
+    static final long NO_SNAPSHOT_HASH = 0;
+    private static final long CONTENT_HASH_SEED = 1;
+
+    // not in InventoryID of this client version
+    static final int GROUP_STORAGE_CONTAINER_ID = 659;
+
+    // rune pouch is varbits, not a container. Real container ids are never negative
+    static final int RUNE_POUCH_CONTAINER_ID = -2;
+
+    // items we dropped, see ProfitTrackerGroundItems. Changes only, it has no snapshot
+    static final int GROUND_CONTAINER_ID = -3;
+
+    private static final int[] TRACKED_CONTAINER_IDS = {
+            InventoryID.INVENTORY.getId(),
+            InventoryID.EQUIPMENT.getId(),
+            InventoryID.BANK.getId(),
+            InventoryID.LOOTING_BAG.getId(),
+            InventoryID.SEED_VAULT.getId(),
+            GROUP_STORAGE_CONTAINER_ID,
+            RUNE_POUCH_CONTAINER_ID,
+    };
+
+    // containers that can be looked up for a session baseline, the rest are seen only when they change
+    private static final InventoryID[] BASELINE_CONTAINERS = {
+            InventoryID.INVENTORY,
+            InventoryID.EQUIPMENT,
+            InventoryID.BANK,
+            InventoryID.LOOTING_BAG,
+            InventoryID.SEED_VAULT,
+    };
+
+    private final ProfitTrackerPriceCache priceCache;
     private final Client client;
 
-    public ProfitTrackerInventoryValue( Client client, ItemManager itemManager) {
+    /*
+    Last seen contents of the tracked containers, used to price only changed slots.
+    Same order as TRACKED_CONTAINER_IDS
+     */
+    private final ProfitTrackerContainerSnapshot[] snapshots;
+
+    /*
+    Client thread: last capture of each tracked container, a slot still holding the same item
+    reuses its unit price instead of looking it up again
+     */
+    private final ProfitTrackerContainerCapture[] lastCaptures;
+
+    // price cache refresh count the last captures were priced at, their prices are stale after a refresh
+    private long lastCapturesRefreshes;
+
+    private final ProfitTrackerRunePouch runePouch;
+
+    /*
+    Item changes found by the diff this tick, and their sum over the session
+     */
+    private final ProfitTrackerTickDelta tickDelta;
+    private final ProfitTrackerItemLedger itemLedger;
+    private final ProfitTrackerTransferReconciler transferReconciler;
+
+    // which net changes were supplies used up, and their cost in the last reconciled tick
+    private final ProfitTrackerSupplyClassifier supplyClassifier;
+    private long tickSupplyCost;
+
+    public ProfitTrackerInventoryValue( Client client, ProfitTrackerPriceSource priceSource, long priceRefreshMillis) {
         this.client = client;
-        this.itemManager = itemManager;
+
+        // same items are valued again and again, only ask priceSource for prices we don't know
+        this.priceCache = new ProfitTrackerPriceCache(priceSource, ProfitTrackerPriceCache.DEFAULT_MAX_SIZE, priceRefreshMillis);
+
+        snapshots = new ProfitTrackerContainerSnapshot[TRACKED_CONTAINER_IDS.length];
+        lastCaptures = new ProfitTrackerContainerCapture[TRACKED_CONTAINER_IDS.length];
+
+        for (int i = 0; i < TRACKED_CONTAINER_IDS.length; i++)
+        {
+            snapshots[i] = new ProfitTrackerContainerSnapshot(TRACKED_CONTAINER_IDS[i]);
+        }
+
+        runePouch = new ProfitTrackerRunePouch();
+
+        tickDelta = new ProfitTrackerTickDelta();
+        itemLedger = new ProfitTrackerItemLedger();
+        transferReconciler = new ProfitTrackerTransferReconciler();
+
+        // item name tables are built once, here rather than on the client thread
+        supplyClassifier = new ProfitTrackerSupplyClassifier();
+        transferReconciler.setSupplyClassifier(supplyClassifier);
     }
 
-    private long calculateItemValue(Item item) {
+    private long calculateItemValue(int itemId, int quantity) {
         /*
-        Calculate GE value of single item
+        Calculate GE value of a quantity of a single item id
          */
 
-        int itemId = item.getId();
-
         if (itemId < -1)
         {
             // unexpected
-            log.info("Bad item id!" + itemId);
+            log.warn("Bad item id! {}", itemId);
             return 0;
 
         }
@@ -46,63 +135,597 @@ public class ProfitTrackerInventoryValue {
             return 0;
         }
 
-        log.info(String.format("calculateItemValue itemId = %d", itemId));
+        ProfitTrackerTrace.trace("calculateItemValue itemId = {}", itemId);
 
         // multiply quantity  by GE value
-        return item.getQuantity() * (itemManager.getItemPrice(itemId));
+        // price is a long, a full stack of an expensive item overflows an int
+        return quantity * priceCache.getItemPrice(itemId);
+    }
+
+    public long calculateGroundValue(int itemId, int quantity)
+    {
+        /*
+        client thread: value of a quantity of an item we dropped or that left the ground
+         */
+        return calculateItemValue(itemId, quantity);
+    }
+
+    public void addGroundChange(int itemId, int quantityDelta, long valueDelta)
+    {
+        /*
+        valuation thread: an item of ours went onto or off the ground this tick,
+        matched against the inventory like a container change
+         */
+        tickDelta.add(GROUND_CONTAINER_ID, itemId, quantityDelta, valueDelta);
+    }
+
+    public ProfitTrackerPriceCache getPriceCache()
+    {
+        return priceCache;
+    }
+
+    public void setPriceSource(ProfitTrackerPriceSource priceSource)
+    {
+        /*
+        client thread: price from priceSource from now on (price mode or overrides changed).
+        Captured unit prices are stale with the cache, see capture
+         */
+        priceCache.setLoader(priceSource);
+    }
+
+    public ProfitTrackerPriceTable buildPriceTable(int[] itemIds)
+    {
+        /*
+        client thread: current prices of itemIds (sorted, distinct), in one pass, to revalue the session with
+         */
+        final long[] prices = new long[itemIds.length];
+
+        for (int i = 0; i < itemIds.length; i++)
+        {
+            prices[i] = calculateItemValue(itemIds[i], 1);
+        }
+
+        return new ProfitTrackerPriceTable(itemIds, prices);
+    }
+
+    public void refreshPricesIfDue(long nowMillis)
+    {
+        /*
+        called once per tick, forget cached prices if they are old enough
+         */
+        priceCache.refreshIfDue(nowMillis);
+    }
+
+    public ProfitTrackerContainerCapture captureContainer(InventoryID containerId)
+    {
+        /*
+        client thread: copy current contents of a container, see captureContainer below
+         */
+        return captureContainer(containerId.getId(), client.getItemContainer(containerId));
     }
 
-    public long calculateContainerValue(InventoryID ContainerID)
+    public ProfitTrackerContainerCapture captureContainer(int containerId, ItemContainer container)
     {
         /*
-        calculate total inventory value
+        client thread: copy the container contents, with the unit price of each slot.
+        Prices are looked up here since ItemManager is client thread only, mostly from the cache.
          */
 
-        long newInventoryValue;
+        // a missing container is the same as an empty one
+        final Item[] items = container == null ? new Item[0] : container.getItems();
+
+        final int[] itemIds = new int[items.length];
+        final int[] quantities = new int[items.length];
+
+        for (int slot = 0; slot < items.length; slot++)
+        {
+            itemIds[slot] = items[slot].getId();
+            quantities[slot] = items[slot].getQuantity();
+        }
+
+        return capture(containerId, itemIds, quantities);
+    }
+
+    public int warmUpBaselinePrices()
+    {
+        /*
+        client thread, at a session start: load the prices of everything captureBaseline is about to price,
+        in one batched pass, deduplicated across containers and canonicalized (noted items, placeholders) once.
+        Placeholders and other empty stacks are left out, they are never priced.
+        Returns how many prices were loaded
+         */
+        int count = 0;
+
+        for (InventoryID containerId : BASELINE_CONTAINERS)
+        {
+            final ItemContainer container = client.getItemContainer(containerId);
+
+            if (container != null)
+            {
+                count += container.getItems().length;
+            }
+        }
+
+        final int[] itemIds = new int[count + ProfitTrackerRunePouch.SLOTS];
+
+        count = 0;
 
-        ItemContainer container = client.getItemContainer(ContainerID);
+        for (InventoryID containerId : BASELINE_CONTAINERS)
+        {
+            final ItemContainer container = client.getItemContainer(containerId);
+
+            if (container == null)
+            {
+                continue;
+            }
+
+            for (Item item : container.getItems())
+            {
+                if (item.getId() > EMPTY_SLOT_ITEMID && item.getQuantity() > 0)
+                {
+                    itemIds[count++] = item.getId();
+                }
+            }
+        }
+
+        runePouch.update(client);
 
-        if (container == null)
+        for (int slot = 0; slot < ProfitTrackerRunePouch.SLOTS; slot++)
         {
+            if (runePouch.getItemId(slot) > EMPTY_SLOT_ITEMID && runePouch.getQuantity(slot) > 0)
+            {
+                itemIds[count++] = runePouch.getItemId(slot);
+            }
+        }
+
+        return priceCache.warmUp(itemIds, count);
+    }
+
+    public void captureBaseline(Consumer<ProfitTrackerContainerCapture> submit)
+    {
+        /*
+        client thread: capture every tracked container that can be looked up right now, for a session start
+         */
+        for (InventoryID containerId : BASELINE_CONTAINERS)
+        {
+            final ItemContainer container = client.getItemContainer(containerId);
+
+            // inventory and equipment always exist, missing ones are empty.
+            // Others are only known once opened, missing ones are not seen yet
+            if (container != null || containerId == InventoryID.INVENTORY || containerId == InventoryID.EQUIPMENT)
+            {
+                submit.accept(captureContainer(containerId.getId(), container));
+            }
+        }
+
+        runePouch.update(client);
+        submit.accept(captureRunePouch());
+    }
+
+    public ProfitTrackerContainerCapture captureRunePouchIfChanged()
+    {
+        /*
+        client thread, on varbit changes: a capture of the rune pouch if its contents changed, null otherwise
+         */
+        return runePouch.update(client) ? captureRunePouch() : null;
+    }
+
+    private ProfitTrackerContainerCapture captureRunePouch()
+    {
+        final int[] itemIds = new int[ProfitTrackerRunePouch.SLOTS];
+        final int[] quantities = new int[ProfitTrackerRunePouch.SLOTS];
+
+        for (int slot = 0; slot < ProfitTrackerRunePouch.SLOTS; slot++)
+        {
+            itemIds[slot] = runePouch.getItemId(slot);
+            quantities[slot] = runePouch.getQuantity(slot);
+        }
+
+        return capture(RUNE_POUCH_CONTAINER_ID, itemIds, quantities);
+    }
+
+    private ProfitTrackerContainerCapture capture(int containerId, int[] itemIds, int[] quantities)
+    {
+        /*
+        price and canonicalize the captured slots. A slot holding the same item as in the last capture
+        of this container keeps its unit price and canonical id, so a bank change prices only the changed slots
+         */
+        if (priceCache.getRefreshes() != lastCapturesRefreshes)
+        {
+            Arrays.fill(lastCaptures, null);
+            lastCapturesRefreshes = priceCache.getRefreshes();
+        }
+
+        final int index = indexOfContainer(containerId);
+        final ProfitTrackerContainerCapture lastCapture = index >= 0 ? lastCaptures[index] : null;
+
+        final long[] unitPrices = new long[itemIds.length];
+        final int[] canonicalIds = new int[itemIds.length];
+
+        for (int slot = 0; slot < itemIds.length; slot++)
+        {
+            if (quantities[slot] <= 0)
+            {
+                // bank placeholders, an empty rune pouch slot: worth nothing whatever the price, and never a change
+                unitPrices[slot] = 0;
+                canonicalIds[slot] = itemIds[slot];
+            }
+            else if (lastCapture != null && slot < lastCapture.size() && lastCapture.itemIds[slot] == itemIds[slot]
+                    && lastCapture.quantities[slot] > 0)
+            {
+                unitPrices[slot] = lastCapture.unitPrices[slot];
+                canonicalIds[slot] = lastCapture.canonicalIds[slot];
+            }
+            else
+            {
+                unitPrices[slot] = calculateItemValue(itemIds[slot], 1);
+                canonicalIds[slot] = priceCache.canonicalize(itemIds[slot]);
+            }
+        }
+
+        final ProfitTrackerContainerCapture capture = new ProfitTrackerContainerCapture(containerId, itemIds, quantities,
+                unitPrices, canonicalIds);
+
+        if (index >= 0)
+        {
+            lastCaptures[index] = capture;
+        }
+
+        return capture;
+    }
+
+
+    public long applyCapture(ProfitTrackerContainerCapture capture)
+    {
+        /*
+        valuation thread: calculate how much the container value changed since its snapshot,
+        and update the snapshot to the captured contents.
+        Only slots that differ from the snapshot are valued.
+        Each slot change is also attributed to its canonical item ids in tickDelta.
+         */
+
+        final ProfitTrackerContainerSnapshot snapshot = getSnapshot(capture.containerId);
+
+        if (snapshot == null)
+        {
+            // not a tracked container
             return 0;
         }
 
-        Item[] items = container.getItems();
+        final int itemCount = capture.size();
+
+        if (!snapshot.observed)
+        {
+            // first time this container is seen, take it as is
+            return applyBaseline(snapshot, capture);
+        }
+
+        // container may shrink or grow, look at all slots of both old and new contents
+        final int slotCount = Math.max(itemCount, snapshot.size);
+
+        long valueDelta = 0;
+
+        snapshot.ensureCapacity(slotCount);
+
+        for (int slot = 0; slot < slotCount; slot++)
+        {
+            final int itemId;
+            final int canonicalId;
+            final int quantity;
+            final long slotValue;
+
+            if (slot < itemCount)
+            {
+                itemId = capture.itemIds[slot];
+                canonicalId = capture.canonicalIds[slot];
+                quantity = capture.quantities[slot];
+            }
+            else
+            {
+                itemId = EMPTY_SLOT_ITEMID;
+                canonicalId = EMPTY_SLOT_ITEMID;
+                quantity = 0;
+            }
+
+            if (snapshot.itemIds[slot] == itemId && snapshot.quantities[slot] == quantity)
+            {
+                // slot didn't change, nothing to value
+                continue;
+            }
+
+            slotValue = slot < itemCount ? quantity * capture.unitPrices[slot] : 0;
+
+            valueDelta += slotValue - snapshot.slotValues[slot];
+
+            attributeSlotChange(capture.containerId, snapshot.canonicalIds[slot], snapshot.quantities[slot],
+                    snapshot.slotValues[slot], canonicalId, quantity, slotValue);
 
-        newInventoryValue = Arrays.stream(items).parallel().flatMapToLong(item ->
-                LongStream.of(calculateItemValue(item))
-        ).sum();
+            snapshot.itemIds[slot] = itemId;
+            snapshot.canonicalIds[slot] = canonicalId;
+            snapshot.quantities[slot] = quantity;
+            snapshot.slotValues[slot] = slotValue;
+        }
+
+        snapshot.size = itemCount;
+        snapshot.totalValue += valueDelta;
 
-        return newInventoryValue;
+        return valueDelta;
     }
 
+    private long applyBaseline(ProfitTrackerContainerSnapshot snapshot, ProfitTrackerContainerCapture capture)
+    {
+        /*
+        valuation thread: set the snapshot to the captured contents without counting any change
+         */
+        final int itemCount = capture.size();
+
+        snapshot.clear();
+        snapshot.ensureCapacity(itemCount);
+
+        for (int slot = 0; slot < itemCount; slot++)
+        {
+            snapshot.itemIds[slot] = capture.itemIds[slot];
+            snapshot.canonicalIds[slot] = capture.canonicalIds[slot];
+            snapshot.quantities[slot] = capture.quantities[slot];
+            snapshot.slotValues[slot] = capture.quantities[slot] * capture.unitPrices[slot];
+            snapshot.totalValue += snapshot.slotValues[slot];
+        }
 
-    public long calculateInventoryValue()
+        snapshot.size = itemCount;
+        snapshot.observed = true;
+
+        return 0;
+    }
+
+    public int[] collectSessionItemIds()
     {
         /*
-        calculate total inventory value
+        valuation thread: every item in the ledger or a snapshot, sorted and distinct, the items a revalue prices
          */
+        int count = itemLedger.size();
+
+        for (ProfitTrackerContainerSnapshot snapshot : snapshots)
+        {
+            count += snapshot.size;
+        }
 
-        return calculateContainerValue(InventoryID.INVENTORY);
+        final int[] itemIds = new int[count];
+        final long[] ledgerQuantities = new long[itemLedger.size()];
+        final long[] ledgerValues = new long[itemLedger.size()];
 
+        count = itemLedger.copyTo(itemIds, ledgerQuantities, ledgerValues);
+
+        for (ProfitTrackerContainerSnapshot snapshot : snapshots)
+        {
+            for (int slot = 0; slot < snapshot.size; slot++)
+            {
+                if (snapshot.itemIds[slot] != EMPTY_SLOT_ITEMID && snapshot.quantities[slot] > 0)
+                {
+                    itemIds[count++] = snapshot.itemIds[slot];
+                }
+            }
+        }
+
+        Arrays.sort(itemIds, 0, count);
+
+        int distinct = 0;
+
+        for (int i = 0; i < count; i++)
+        {
+            if (distinct == 0 || itemIds[i] != itemIds[distinct - 1])
+            {
+                itemIds[distinct++] = itemIds[i];
+            }
+        }
+
+        return Arrays.copyOf(itemIds, distinct);
     }
 
-    public long calculateEquipmentValue()
+    public long revalue(ProfitTrackerPriceTable priceTable)
     {
         /*
-        calculate total equipment value
+        valuation thread: value the snapshots and the ledger at the prices in priceTable,
+        items not in it keep their value. Returns how much the session's profit changed
          */
-        return calculateContainerValue(InventoryID.EQUIPMENT);
+        for (ProfitTrackerContainerSnapshot snapshot : snapshots)
+        {
+            long totalValue = 0;
+
+            for (int slot = 0; slot < snapshot.size; slot++)
+            {
+                final int index = priceTable.indexOf(snapshot.itemIds[slot]);
+
+                if (index >= 0)
+                {
+                    snapshot.slotValues[slot] = snapshot.quantities[slot] * priceTable.getPrice(index);
+                }
+
+                totalValue += snapshot.slotValues[slot];
+            }
+
+            snapshot.totalValue = totalValue;
+        }
+
+        // profit is the sum of the ledger (and whatever a resumed session started at)
+        return itemLedger.revalue(priceTable);
     }
 
-    public long calculateInventoryAndEquipmentValue()
+    public void forgetSnapshots()
     {
         /*
-        calculate total inventory + equipment value
+        valuation thread: next contents seen of every container are a new baseline (logged out, maybe another account)
          */
+        for (ProfitTrackerContainerSnapshot snapshot : snapshots)
+        {
+            snapshot.clear();
+        }
+    }
 
-        return calculateInventoryValue() + calculateEquipmentValue();
+    public long calculateSnapshotHash()
+    {
+        /*
+        valuation thread: hash of inventory + equipment contents as of the last tick,
+        NO_SNAPSHOT_HASH while they are not known (logged out)
+         */
+        final ProfitTrackerContainerSnapshot inventory = getSnapshot(InventoryID.INVENTORY.getId());
+        final ProfitTrackerContainerSnapshot equipment = getSnapshot(InventoryID.EQUIPMENT.getId());
+
+        if (!inventory.observed)
+        {
+            return NO_SNAPSHOT_HASH;
+        }
+
+        final long hash = contentHash(inventory.itemIds, inventory.quantities, inventory.size);
+
+        return contentHash(hash, equipment.itemIds, equipment.quantities, equipment.size);
     }
 
+    public long calculateContainerHash()
+    {
+        /*
+        client thread: the same hash of inventory + equipment, from their current contents.
+        Missing containers are empty, like for the session baseline
+         */
+        final long hash = contentHash(CONTENT_HASH_SEED, client.getItemContainer(InventoryID.INVENTORY));
+
+        return contentHash(hash, client.getItemContainer(InventoryID.EQUIPMENT));
+    }
+
+    private static long contentHash(long hash, ItemContainer container)
+    {
+        final Item[] items = container == null ? new Item[0] : container.getItems();
+
+        final int[] itemIds = new int[items.length];
+        final int[] quantities = new int[items.length];
 
+        for (int slot = 0; slot < items.length; slot++)
+        {
+            itemIds[slot] = items[slot].getId();
+            quantities[slot] = items[slot].getQuantity();
+        }
+
+        return contentHash(hash, itemIds, quantities, items.length);
+    }
+
+    private static long contentHash(int[] itemIds, int[] quantities, int size)
+    {
+        return contentHash(CONTENT_HASH_SEED, itemIds, quantities, size);
+    }
+
+    private static long contentHash(long hash, int[] itemIds, int[] quantities, int size)
+    {
+        /*
+        item ids and quantities by slot, values are not included.
+        Empty slots are left out, so a container of more or fewer trailing empty slots hashes the same
+         */
+        for (int slot = 0; slot < size; slot++)
+        {
+            if (itemIds[slot] == EMPTY_SLOT_ITEMID || quantities[slot] == 0)
+            {
+                continue;
+            }
+
+            hash = 31 * hash + slot;
+            hash = 31 * hash + itemIds[slot];
+            hash = 31 * hash + quantities[slot];
+        }
+
+        // end of the container, so items can't shift from one container into the next and hash the same
+        return 31 * hash + EMPTY_SLOT_ITEMID;
+    }
+
+    private static int indexOfContainer(int containerId)
+    {
+        for (int i = 0; i < TRACKED_CONTAINER_IDS.length; i++)
+        {
+            if (TRACKED_CONTAINER_IDS[i] == containerId)
+            {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private ProfitTrackerContainerSnapshot getSnapshot(int containerId)
+    {
+        final int index = indexOfContainer(containerId);
+
+        return index >= 0 ? snapshots[index] : null;
+    }
+
+    public boolean isTrackedContainer(int containerId)
+    {
+        return indexOfContainer(containerId) >= 0;
+    }
+
+    private void attributeSlotChange(int containerId,
+                                     int oldItemId, int oldQuantity, long oldValue,
+                                     int newItemId, int newQuantity, long newValue)
+    {
+        if (oldItemId == newItemId)
+        {
+            // same item, quantity changed
+            tickDelta.add(containerId, newItemId, (long) newQuantity - oldQuantity, newValue - oldValue);
+            return;
+        }
+
+        // item replaced, old one is gone and new one appeared
+        if (oldItemId != EMPTY_SLOT_ITEMID)
+        {
+            tickDelta.add(containerId, oldItemId, -oldQuantity, -oldValue);
+        }
+
+        if (newItemId != EMPTY_SLOT_ITEMID)
+        {
+            tickDelta.add(containerId, newItemId, newQuantity, newValue);
+        }
+    }
+
+    public ProfitTrackerItemLedger getItemLedger()
+    {
+        return itemLedger;
+    }
+
+    public ProfitTrackerTransferReconciler getTransferReconciler()
+    {
+        return transferReconciler;
+    }
+
+    public long reconcileTickDelta(int[] depositedItemIds)
+    {
+        /*
+        valuation thread, end of tick: the tick's profit, items moved between containers cancelled out.
+        Net item changes are added to the ledger, the supplies among them are the tick's supply cost.
+        depositedItemIds - canonical ids of items deposited with the deposit box, or null. What left of them went to the bank
+         */
+        final long tickProfit = transferReconciler.reconcile(tickDelta, depositedItemIds, itemLedger);
+        tickSupplyCost = supplyClassifier.endTick();
+
+        tickDelta.clear();
+
+        if (depositedItemIds != null)
+        {
+            // bank changed without us seeing it, take it as is next time it's opened
+            getSnapshot(InventoryID.BANK.getId()).clear();
+        }
+
+        return tickProfit;
+    }
+
+    public long getTickSupplyCost()
+    {
+        /*
+        value of supplies used up in the last reconciled tick, part of (not in addition to) its profit
+         */
+        return tickSupplyCost;
+    }
+
+    public void discardTickDelta()
+    {
+        /*
+        the item changes seen so far don't count as profit (session start)
+         */
+        tickDelta.clear();
+    }
 }
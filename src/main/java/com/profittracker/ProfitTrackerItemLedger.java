@@ -0,0 +1,299 @@
+package com.profittracker;
+
+import java.util.Arrays;
+
+/**
+ * The ProfitTrackerItemLedger class accumulates, per item id, the quantity and value gained or lost in a session.
+ */
+public class ProfitTrackerItemLedger {
+    /*
+    int -> (long quantity, long value) open addressing map (linear probing) over primitive arrays.
+    Entries are never removed during a session, the table doubles when half full,
+    so thousands of distinct items cost a few arrays and no boxing.
+
+    Top gainers / losers are selected with a bounded heap of size N, O(items * log N),
+    and only when the ledger changed since the last selection, never per frame.
+     */
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    // no item has this id, marks a free table slot
+    private static final int FREE_KEY = Integer.MIN_VALUE;
+
+    private int[] keys;
+    private long[] quantities;
+    private long[] values;
+    private int mask;
+    private int size;
+
+    // scratch heap for top N selection, reused between selections
+    private int[] heapSlots = new int[0];
+
+    public ProfitTrackerItemLedger()
+    {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    private void allocate(int capacity)
+    {
+        keys = new int[capacity];
+        quantities = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+
+        Arrays.fill(keys, FREE_KEY);
+    }
+
+    private static int hash(int key)
+    {
+        // item ids are sequential, spread them over the table
+        final int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int findSlot(int key)
+    {
+        int slot = hash(key) & mask;
+
+        while (keys[slot] != FREE_KEY && keys[slot] != key)
+        {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    public void add(int itemId, long quantityDelta, long valueDelta)
+    {
+        int slot = findSlot(itemId);
+
+        if (keys[slot] == FREE_KEY)
+        {
+            if ((size + 1) * 2 > keys.length)
+            {
+                grow();
+                slot = findSlot(itemId);
+            }
+
+            keys[slot] = itemId;
+            size++;
+        }
+
+        quantities[slot] += quantityDelta;
+        values[slot] += valueDelta;
+    }
+
+    private void grow()
+    {
+        final int[] oldKeys = keys;
+        final long[] oldQuantities = quantities;
+        final long[] oldValues = values;
+
+        allocate(oldKeys.length * 2);
+
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            if (oldKeys[i] != FREE_KEY)
+            {
+                final int slot = findSlot(oldKeys[i]);
+
+                keys[slot] = oldKeys[i];
+                quantities[slot] = oldQuantities[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public int copyTo(int[] outItemIds, long[] outQuantities, long[] outValues)
+    {
+        /*
+        every entry, in no particular order. The arrays must hold size() entries
+         */
+        int count = 0;
+
+        for (int slot = 0; slot < keys.length; slot++)
+        {
+            if (keys[slot] != FREE_KEY)
+            {
+                outItemIds[count] = keys[slot];
+                outQuantities[count] = quantities[slot];
+                outValues[count] = values[slot];
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    public long revalue(ProfitTrackerPriceTable priceTable)
+    {
+        /*
+        value every item found in priceTable at its price there, the rest keep their value.
+        Returns how much the ledger's total value changed
+         */
+        long valueDelta = 0;
+
+        for (int slot = 0; slot < keys.length; slot++)
+        {
+            if (keys[slot] == FREE_KEY)
+            {
+                continue;
+            }
+
+            final int index = priceTable.indexOf(keys[slot]);
+
+            if (index >= 0)
+            {
+                final long value = quantities[slot] * priceTable.getPrice(index);
+
+                valueDelta += value - values[slot];
+                values[slot] = value;
+            }
+        }
+
+        return valueDelta;
+    }
+
+    public void clear()
+    {
+        Arrays.fill(keys, FREE_KEY);
+        Arrays.fill(quantities, 0);
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    public int selectTopGainers(int limit, int[] outItemIds, long[] outQuantities, long[] outValues)
+    {
+        /*
+        items with the highest positive value, highest first.
+        returns number of items written to the out arrays
+         */
+        return selectTop(limit, 1, outItemIds, outQuantities, outValues);
+    }
+
+    public int selectTopLosers(int limit, int[] outItemIds, long[] outQuantities, long[] outValues)
+    {
+        /*
+        items with the lowest negative value, lowest first.
+        returns number of items written to the out arrays
+         */
+        return selectTop(limit, -1, outItemIds, outQuantities, outValues);
+    }
+
+    private int selectTop(int limit, int sign, int[] outItemIds, long[] outQuantities, long[] outValues)
+    {
+        /*
+        keep a min heap (by sign * value) of the best limit entries seen so far,
+        an entry better than the heap root replaces it
+         */
+
+        if (heapSlots.length < limit)
+        {
+            heapSlots = new int[limit];
+        }
+
+        int heapSize = 0;
+
+        for (int slot = 0; slot < keys.length; slot++)
+        {
+            if (keys[slot] == FREE_KEY)
+            {
+                continue;
+            }
+
+            final long score = sign * values[slot];
+
+            if (score <= 0)
+            {
+                continue;
+            }
+
+            if (heapSize < limit)
+            {
+                heapSlots[heapSize] = slot;
+                siftUp(heapSize, sign);
+                heapSize++;
+            }
+            else if (heapSize > 0 && score > sign * values[heapSlots[0]])
+            {
+                heapSlots[0] = slot;
+                siftDown(0, heapSize, sign);
+            }
+        }
+
+        // pop smallest first, write from the back so output is best first
+        final int count = heapSize;
+
+        while (heapSize > 0)
+        {
+            final int slot = heapSlots[0];
+
+            heapSize--;
+            outItemIds[heapSize] = keys[slot];
+            outQuantities[heapSize] = quantities[slot];
+            outValues[heapSize] = values[slot];
+
+            heapSlots[0] = heapSlots[heapSize];
+            siftDown(0, heapSize, sign);
+        }
+
+        return count;
+    }
+
+    private void siftUp(int index, int sign)
+    {
+        final int slot = heapSlots[index];
+        final long score = sign * values[slot];
+
+        while (index > 0)
+        {
+            final int parent = (index - 1) >>> 1;
+
+            if (sign * values[heapSlots[parent]] <= score)
+            {
+                break;
+            }
+
+            heapSlots[index] = heapSlots[parent];
+            index = parent;
+        }
+
+        heapSlots[index] = slot;
+    }
+
+    private void siftDown(int index, int heapSize, int sign)
+    {
+        final int slot = heapSlots[index];
+        final long score = sign * values[slot];
+
+        while (true)
+        {
+            int child = index * 2 + 1;
+
+            if (child >= heapSize)
+            {
+                break;
+            }
+
+            if (child + 1 < heapSize && sign * values[heapSlots[child + 1]] < sign * values[heapSlots[child]])
+            {
+                child++;
+            }
+
+            if (sign * values[heapSlots[child]] >= score)
+            {
+                break;
+            }
+
+            heapSlots[index] = heapSlots[child];
+            index = child;
+        }
+
+        heapSlots[index] = slot;
+    }
+}
@@ -0,0 +1,56 @@
+package com.profittracker;
+
+import net.runelite.api.ItemID;
+import net.runelite.client.game.ItemManager;
+
+/**
+ * The ProfitTrackerItemPrices class prices items from ItemManager, in one of the ProfitTrackerPriceMode modes.
+ */
+public class ProfitTrackerItemPrices implements ProfitTrackerPriceSource {
+    /*
+    Client thread only, like ItemManager.
+    Item ids come canonicalized from ProfitTrackerPriceCache, so a noted item is priced as the item itself.
+     */
+
+    private final ItemManager itemManager;
+    private final ProfitTrackerPriceMode priceMode;
+
+    public ProfitTrackerItemPrices(ItemManager itemManager, ProfitTrackerPriceMode priceMode)
+    {
+        this.itemManager = itemManager;
+        this.priceMode = priceMode;
+    }
+
+    @Override
+    public long getItemPrice(int itemId)
+    {
+        if (priceMode == ProfitTrackerPriceMode.GRAND_EXCHANGE)
+        {
+            return itemManager.getItemPrice(itemId);
+        }
+
+        // money is worth what it is whatever the mode, ItemManager does the same
+        if (itemId == ItemID.COINS_995)
+        {
+            return 1;
+        }
+
+        if (itemId == ItemID.PLATINUM_TOKEN)
+        {
+            return 1000;
+        }
+
+        if (priceMode == ProfitTrackerPriceMode.HIGH_ALCHEMY)
+        {
+            return itemManager.getItemComposition(itemId).getHaPrice();
+        }
+
+        return itemManager.getItemComposition(itemId).getPrice();
+    }
+
+    @Override
+    public int canonicalize(int itemId)
+    {
+        return itemManager.canonicalize(itemId);
+    }
+}
@@ -0,0 +1,137 @@
+package com.profittracker;
+
+import java.util.Arrays;
+
+/**
+ * The ProfitTrackerLatencyHistogram class counts durations in fixed buckets,
+ * so percentiles can be read without keeping every sample.
+ */
+public class ProfitTrackerLatencyHistogram {
+    /*
+    Log-linear buckets over nanoseconds: below 16 ns a bucket per value,
+    above that every power of two is split into 8 equal buckets.
+    A percentile is reported as the upper end of its bucket, at most 1/8 (12.5%) over.
+    488 buckets cover every positive long, so a sample never falls outside.
+
+    Recording is a few shifts and an array increment, nothing is allocated.
+
+    Not thread safe, see ProfitTrackerInstrumentation.
+     */
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    static final int BUCKETS = (63 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+
+    private long count;
+    private long totalNanos;
+    private long maxNanos;
+    private long allocatedBytes;
+
+    public void record(long nanos)
+    {
+        // clock steps backwards are not real durations
+        final long value = Math.max(0, nanos);
+
+        counts[bucketIndex(value)]++;
+        count++;
+        totalNanos += value;
+        maxNanos = Math.max(maxNanos, value);
+    }
+
+    public void addAllocatedBytes(long bytes)
+    {
+        allocatedBytes += bytes;
+    }
+
+    static int bucketIndex(long value)
+    {
+        if (value < SUB_BUCKETS)
+        {
+            return (int) value;
+        }
+
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+
+        // top SUB_BUCKET_BITS + 1 bits of value, 8 to 15
+        final int mantissa = (int) (value >>> (exponent - SUB_BUCKET_BITS));
+
+        return (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + mantissa;
+    }
+
+    static long bucketUpperBound(int index)
+    {
+        if (index < 2 * SUB_BUCKETS)
+        {
+            return index;
+        }
+
+        final int shift = (index >> SUB_BUCKET_BITS) - 1;
+        final long mantissa = SUB_BUCKETS + (index & (SUB_BUCKETS - 1));
+
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    public long percentileNanos(double percentile)
+    {
+        /*
+        duration percentile of the samples are at or under, 0 without samples
+         */
+        if (count == 0)
+        {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+
+        long seen = 0;
+
+        for (int index = 0; index < BUCKETS; index++)
+        {
+            seen += counts[index];
+
+            if (seen >= rank)
+            {
+                return Math.min(bucketUpperBound(index), maxNanos);
+            }
+        }
+
+        return maxNanos;
+    }
+
+    public long getCount()
+    {
+        return count;
+    }
+
+    public long getMaxNanos()
+    {
+        return maxNanos;
+    }
+
+    public long getMeanNanos()
+    {
+        return count == 0 ? 0 : totalNanos / count;
+    }
+
+    public long getAllocatedBytes()
+    {
+        return allocatedBytes;
+    }
+
+    public long getAllocatedBytesPerSample()
+    {
+        return count == 0 ? 0 : allocatedBytes / count;
+    }
+
+    public void reset()
+    {
+        Arrays.fill(counts, 0);
+        count = 0;
+        totalNanos = 0;
+        maxNanos = 0;
+        allocatedBytes = 0;
+    }
+}
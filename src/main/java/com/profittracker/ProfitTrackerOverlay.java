@@ -1,38 +1,131 @@
 package com.profittracker;
+import net.runelite.client.game.ItemManager;
 import net.runelite.client.ui.overlay.Overlay;
+import net.runelite.client.ui.overlay.OverlayMenuEntry;
 import net.runelite.client.ui.overlay.OverlayPosition;
+import net.runelite.client.ui.overlay.components.ComponentConstants;
+import net.runelite.client.ui.overlay.components.ImageComponent;
 import net.runelite.client.ui.overlay.components.LineComponent;
 import net.runelite.client.ui.overlay.components.PanelComponent;
 import net.runelite.client.ui.overlay.components.TitleComponent;
 
 import javax.inject.Inject;
-import javax.swing.*;
 import java.awt.*;
+import java.awt.image.BufferedImage;
 
 import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+import static net.runelite.api.MenuAction.RUNELITE_OVERLAY;
 /**
  * The ProfitTrackerOverlay class is used to display profit values for the user
  */
 public class ProfitTrackerOverlay extends Overlay {
-    private long profitValue;
-    private long startTimeMillies;
-    private boolean inProfitTrackSession;
+    private static final String TITLE_TEXT = "Profit Tracker:";
+
+    static final String RESET_OPTION = "Reset";
+
+    private static final int PROFIT_GRAPH_HEIGHT = 40;
+
+    // reused by FormatIntegerWithCommas, guarded by its own lock
+    private static final DecimalFormat COMMAS_FORMAT = new DecimalFormat("###,###,###");
+
+    // published by the valuation thread, replaced as a whole
+    private volatile ProfitTrackerOverlayState state;
 
     private final ProfitTrackerConfig ptConfig;
+    private final ItemManager itemManager;
     private final PanelComponent panelComponent = new PanelComponent();
 
+    /*
+    Render runs every frame, but what it shows changes at most once a second.
+    So components are kept between frames, and only rebuilt when the value they display changes.
+     */
+    private final TitleComponent titleComponent;
+    private final TitleComponent notInSessionComponent;
+    private LineComponent timeLineComponent;
+    private LineComponent profitLineComponent;
+    private LineComponent lootLineComponent;
+    private LineComponent supplyLineComponent;
+    private LineComponent rateLineComponent;
+    private final List<LineComponent> breakdownComponents = new ArrayList<>();
+    private ImageComponent profitGraphComponent;
+    private final ProfitTrackerProfitGraphImage profitGraphImage = new ProfitTrackerProfitGraphImage();
+
+    // set from the client thread on config change
+    private ProfitTrackerRateWindow rateWindow = ProfitTrackerRateWindow.SESSION;
+    private boolean showProfitGraph;
+    private boolean showSupplyCost;
+
+    // values the components above currently display
+    private long renderedSecondsElapsed;
+    private long renderedProfitValue;
+    private long renderedSupplyCost;
+    private boolean renderedShowSupplyCost;
+    private long renderedProfitRateValue;
+    private ProfitTrackerRateWindow renderedRateWindow = ProfitTrackerRateWindow.SESSION;
+    private boolean renderedInProfitTrackSession;
+    private ProfitTrackerBreakdown renderedBreakdown;
+    private BufferedImage renderedProfitGraphImage;
+    private boolean renderedShowProfitGraph;
+    private boolean renderedPaused;
+
+    // state all of the above came from, null until the first frame
+    private ProfitTrackerOverlayState renderedState;
+
+    // frames that showed exactly what the previous one did
+    private long skippedFrameCount;
+
+    // panel width depends only on the font
+    private Font renderedFont;
+    private final Dimension preferredSize = new Dimension();
+
+    // reused when formatting HH:MM:SS
+    private final char[] timeChars = new char[16];
+
     public static String FormatIntegerWithCommas(long value) {
-        DecimalFormat df = new DecimalFormat("###,###,###");
-        return df.format(value);
+        synchronized (COMMAS_FORMAT)
+        {
+            return COMMAS_FORMAT.format(value);
+        }
     }
     @Inject
-    private ProfitTrackerOverlay(ProfitTrackerConfig config)
+    ProfitTrackerOverlay(ProfitTrackerConfig config, ItemManager itemManager)
     {
         setPosition(OverlayPosition.ABOVE_CHATBOX_RIGHT);
-        profitValue = 0L;
         ptConfig = config;
-        startTimeMillies = 0;
-        inProfitTrackSession = false;
+        this.itemManager = itemManager;
+        state = ProfitTrackerOverlayState.NO_SESSION;
+
+        // right click the overlay to start a new session
+        getMenuEntries().add(new OverlayMenuEntry(RUNELITE_OVERLAY, RESET_OPTION, "Profit Tracker"));
+
+        titleComponent = TitleComponent.builder()
+                .text(TITLE_TEXT)
+                .color(Color.GREEN)
+                .build();
+
+        // notify user to reset plugin in order to start
+        notInSessionComponent = TitleComponent.builder()
+                .text("Reset plugin to start")
+                .color(Color.RED)
+                .build();
+
+        timeLineComponent = buildTimeLine(0, false);
+        profitLineComponent = buildProfitLine(state.getProfitValue());
+        lootLineComponent = buildLootLine(state.getProfitValue() + state.getSupplyCost());
+        supplyLineComponent = buildSupplyLine(state.getSupplyCost());
+        rateLineComponent = buildRateLine(renderedRateWindow, 0);
+
+        renderedSecondsElapsed = 0;
+        renderedProfitValue = state.getProfitValue();
+        renderedSupplyCost = state.getSupplyCost();
+        renderedProfitRateValue = 0;
+        renderedInProfitTrackSession = state.isInProfitTrackSession();
+        renderedBreakdown = state.getBreakdown();
+
+        rebuildPanel();
     }
 
     /**
@@ -42,124 +135,341 @@ public class ProfitTrackerOverlay extends Overlay {
      */
     @Override
     public Dimension render(Graphics2D graphics) {
-        String titleText = "Profit Tracker:";
+        final long startNanos = ProfitTrackerInstrumentation.start(ProfitTrackerProbe.OVERLAY_RENDER);
+
+        final Dimension dimension = renderPanel(graphics);
+
+        ProfitTrackerInstrumentation.stop(ProfitTrackerProbe.OVERLAY_RENDER, startNanos);
+
+        return dimension;
+    }
+
+    private Dimension renderPanel(Graphics2D graphics) {
         long secondsElapsed;
         long profitRateValue;
+        boolean panelChanged = false;
+
+        // one volatile read, everything below comes from the same consistent state
+        final ProfitTrackerOverlayState state = this.state;
+        final Font font = graphics.getFont();
 
-        if (startTimeMillies > 0)
+        // time paused while idle doesn't count
+        secondsElapsed = state.getActiveMillis(System.currentTimeMillis()) / 1000;
+
+        if (state == renderedState && secondsElapsed == renderedSecondsElapsed && font == renderedFont
+                && rateWindow == renderedRateWindow && showProfitGraph == renderedShowProfitGraph
+                && showSupplyCost == renderedShowSupplyCost)
         {
-            secondsElapsed = (System.currentTimeMillis() - startTimeMillies) / 1000;
+            // nothing shown changed since last frame, which is most frames (and all of them while paused)
+            skippedFrameCount++;
+            return panelComponent.render(graphics);
+        }
+
+        renderedState = state;
+        renderedShowProfitGraph = showProfitGraph;
+
+        final long profitValue = state.getProfitValue();
+        final long supplyCost = state.getSupplyCost();
+        final boolean inProfitTrackSession = state.isInProfitTrackSession();
+        final boolean paused = state.isPaused();
+        final ProfitTrackerBreakdown breakdown = state.getBreakdown();
+
+        // Set the size of the overlay (width)
+        if (font != renderedFont)
+        {
+            preferredSize.setSize(graphics.getFontMetrics().stringWidth(TITLE_TEXT) + 40, 0);
+            panelComponent.setPreferredSize(preferredSize);
+            renderedFont = font;
+        }
+
+        if (rateWindow == ProfitTrackerRateWindow.SESSION)
+        {
+            profitRateValue = calculateProfitHourly(secondsElapsed, profitValue);
         }
         else
         {
-            // there was never any session
-            secondsElapsed = 0;
+            // recent rates are calculated on the valuation thread
+            profitRateValue = state.getRates().getHourlyRate(rateWindow) / 1000;
+        }
+
+        // only rebuild what changed since last frame
+        if (secondsElapsed != renderedSecondsElapsed || paused != renderedPaused)
+        {
+            timeLineComponent = buildTimeLine(secondsElapsed, paused);
+            renderedSecondsElapsed = secondsElapsed;
+            renderedPaused = paused;
+            panelChanged = true;
+        }
+
+        if (profitValue != renderedProfitValue)
+        {
+            profitLineComponent = buildProfitLine(profitValue);
+            panelChanged = true;
+        }
+
+        // loot is profit before supplies, so it changes with either
+        if (profitValue != renderedProfitValue || supplyCost != renderedSupplyCost)
+        {
+            lootLineComponent = buildLootLine(profitValue + supplyCost);
+            supplyLineComponent = buildSupplyLine(supplyCost);
+            renderedSupplyCost = supplyCost;
+            panelChanged = true;
+        }
+
+        renderedProfitValue = profitValue;
+
+        if (showSupplyCost != renderedShowSupplyCost)
+        {
+            renderedShowSupplyCost = showSupplyCost;
+            panelChanged = true;
+        }
+
+        if (profitRateValue != renderedProfitRateValue || rateWindow != renderedRateWindow)
+        {
+            rateLineComponent = buildRateLine(rateWindow, profitRateValue);
+            renderedProfitRateValue = profitRateValue;
+            renderedRateWindow = rateWindow;
+            panelChanged = true;
+        }
+
+        if (inProfitTrackSession != renderedInProfitTrackSession)
+        {
+            renderedInProfitTrackSession = inProfitTrackSession;
+            panelChanged = true;
+        }
+
+        if (breakdown != renderedBreakdown)
+        {
+            renderedBreakdown = breakdown;
+            rebuildBreakdownComponents();
+            panelChanged = true;
+        }
+
+        // the graph image is only drawn again when a new graph was published
+        final BufferedImage profitGraph = showProfitGraph && inProfitTrackSession
+                ? profitGraphImage.getImage(state.getProfitGraph(),
+                        Math.max(1, preferredSize.width - 2 * ComponentConstants.STANDARD_BORDER), PROFIT_GRAPH_HEIGHT)
+                : null;
+
+        if (profitGraph != renderedProfitGraphImage)
+        {
+            renderedProfitGraphImage = profitGraph;
+            profitGraphComponent = profitGraph != null ? new ImageComponent(profitGraph) : null;
+            panelChanged = true;
+        }
+
+        if (panelChanged)
+        {
+            rebuildPanel();
         }
 
-        profitRateValue = calculateProfitHourly(secondsElapsed, profitValue);
+        return panelComponent.render(graphics);
+    }
 
-        // Not sure how this can occur, but it was recommended to do so
+    private void rebuildPanel()
+    {
         panelComponent.getChildren().clear();
 
         // Build overlay title
-        panelComponent.getChildren().add(TitleComponent.builder()
-                .text(titleText)
-                .color(Color.GREEN)
-                .build());
+        panelComponent.getChildren().add(titleComponent);
 
-        if (!inProfitTrackSession)
+        if (!renderedInProfitTrackSession)
         {
             // not in session
-            // notify user to reset plugin in order to start
-            panelComponent.getChildren().add(TitleComponent.builder()
-                    .text("Reset plugin to start")
-                    .color(Color.RED)
+            panelComponent.getChildren().add(notInSessionComponent);
+        }
+
+        // elapsed time
+        panelComponent.getChildren().add(timeLineComponent);
+
+        // loot and supplies, when some were used
+        if (renderedShowSupplyCost && renderedSupplyCost != 0)
+        {
+            panelComponent.getChildren().add(lootLineComponent);
+            panelComponent.getChildren().add(supplyLineComponent);
+        }
+
+        // Profit
+        panelComponent.getChildren().add(profitLineComponent);
+
+        // Profit Rate
+        panelComponent.getChildren().add(rateLineComponent);
+
+        // profit over time
+        if (profitGraphComponent != null)
+        {
+            panelComponent.getChildren().add(profitGraphComponent);
+        }
+
+        // top items
+        panelComponent.getChildren().addAll(breakdownComponents);
+    }
+
+    private void rebuildBreakdownComponents()
+    {
+        /*
+        runs on the client thread when a new breakdown arrives, so item names can be looked up here
+         */
+        breakdownComponents.clear();
+
+        if (renderedBreakdown.getGainerCount() > 0)
+        {
+            breakdownComponents.add(LineComponent.builder()
+                    .left("Top gains:")
                     .build());
 
+            for (int i = 0; i < renderedBreakdown.getGainerCount(); i++)
+            {
+                breakdownComponents.add(LineComponent.builder()
+                        .left(itemManager.getItemComposition(renderedBreakdown.getGainerItemId(i)).getName())
+                        .right(FormatIntegerWithCommas(renderedBreakdown.getGainerValue(i)))
+                        .rightColor(Color.GREEN)
+                        .build());
+            }
         }
 
-        // Set the size of the overlay (width)
-        panelComponent.setPreferredSize(new Dimension(
-                graphics.getFontMetrics().stringWidth(titleText) + 40,
-                0));
+        if (renderedBreakdown.getLoserCount() > 0)
+        {
+            breakdownComponents.add(LineComponent.builder()
+                    .left("Top losses:")
+                    .build());
 
-        // elapsed time
-        panelComponent.getChildren().add(LineComponent.builder()
-                .left("Time:")
+            for (int i = 0; i < renderedBreakdown.getLoserCount(); i++)
+            {
+                breakdownComponents.add(LineComponent.builder()
+                        .left(itemManager.getItemComposition(renderedBreakdown.getLoserItemId(i)).getName())
+                        .right(FormatIntegerWithCommas(renderedBreakdown.getLoserValue(i)))
+                        .rightColor(Color.RED)
+                        .build());
+            }
+        }
+    }
+
+    private LineComponent buildTimeLine(long secondsElapsed, boolean paused)
+    {
+        return LineComponent.builder()
+                .left(paused ? "Time (idle):" : "Time:")
                 .right(formatTimeIntervalFromSec(secondsElapsed))
-                .build());
+                .build();
+    }
 
-        // Profit
-        panelComponent.getChildren().add(LineComponent.builder()
+    private static LineComponent buildProfitLine(long profitValue)
+    {
+        return LineComponent.builder()
                 .left("Profit:")
                 .right(FormatIntegerWithCommas(profitValue))
-                .build());
+                .build();
+    }
 
-        // Profit Rate
-        panelComponent.getChildren().add(LineComponent.builder()
-                .left("Rate:")
-                .right(profitRateValue + "K/H")
-                .build());
+    private static LineComponent buildLootLine(long lootValue)
+    {
+        return LineComponent.builder()
+                .left("Loot:")
+                .right(FormatIntegerWithCommas(lootValue))
+                .build();
+    }
 
-        return panelComponent.render(graphics);
+    private static LineComponent buildSupplyLine(long supplyCost)
+    {
+        return LineComponent.builder()
+                .left("Supplies:")
+                .right(FormatIntegerWithCommas(-supplyCost))
+                .rightColor(Color.RED)
+                .build();
+    }
+
+    private static LineComponent buildRateLine(ProfitTrackerRateWindow rateWindow, long profitRateValue)
+    {
+        return LineComponent.builder()
+                .left(rateWindow == ProfitTrackerRateWindow.SESSION ? "Rate:" : "Rate (" + rateWindow.getShortName() + "):")
+                .right(profitRateValue + "K/H")
+                .build();
     }
 
     /**
-     * Updates profit value display
-     * @param newValue the value to update the profitValue's {{@link #panelComponent}} with.
+     * Replaces everything displayed at once, called from the valuation thread
+     * @param newState the state to render from the next frame on
      */
-    public void updateProfitValue(final long newValue) {
-        SwingUtilities.invokeLater(() ->
-            profitValue = newValue
-        );
+    public void publishState(final ProfitTrackerOverlayState newState) {
+        state = newState;
     }
 
+    public void setRateWindow(ProfitTrackerRateWindow rateWindow)
+    {
+        this.rateWindow = rateWindow;
+    }
 
-    /**
-     * Updates startTimeMillies display
-     */
-    public void updateStartTimeMillies(final long newValue) {
-        SwingUtilities.invokeLater(() ->
-                startTimeMillies = newValue
-        );
+    public void setShowProfitGraph(boolean showProfitGraph)
+    {
+        this.showProfitGraph = showProfitGraph;
+    }
+
+    public void setShowSupplyCost(boolean showSupplyCost)
+    {
+        this.showSupplyCost = showSupplyCost;
     }
 
-    public void startSession()
+    public long getSkippedFrameCount()
     {
-        SwingUtilities.invokeLater(() ->
-                inProfitTrackSession = true
-        );
+        return skippedFrameCount;
     }
 
-    private static String formatTimeIntervalFromSec(final long totalSecElapsed)
+    ProfitTrackerOverlayState getState()
+    {
+        return state;
+    }
+
+    private String formatTimeIntervalFromSec(final long totalSecElapsed)
     {
         /*
         elapsed seconds to format HH:MM:SS
+        written backwards into a reused buffer instead of String.format
          */
-        final long sec = totalSecElapsed % 60;
-        final long min = (totalSecElapsed / 60) % 60;
-        final long hr = totalSecElapsed / 3600;
+        final long totalSec = Math.max(0, totalSecElapsed);
+        final long sec = totalSec % 60;
+        final long min = (totalSec / 60) % 60;
+        long hr = totalSec / 3600;
+
+        int pos = timeChars.length;
 
-        return String.format("%02d:%02d:%02d", hr, min, sec);
+        timeChars[--pos] = (char) ('0' + sec % 10);
+        timeChars[--pos] = (char) ('0' + sec / 10);
+        timeChars[--pos] = ':';
+        timeChars[--pos] = (char) ('0' + min % 10);
+        timeChars[--pos] = (char) ('0' + min / 10);
+        timeChars[--pos] = ':';
+
+        // hours are at least 2 digits, more if needed
+        do
+        {
+            timeChars[--pos] = (char) ('0' + hr % 10);
+            hr /= 10;
+        }
+        while (hr > 0 && pos > 0);
+
+        if (timeChars.length - pos < 8)
+        {
+            timeChars[--pos] = '0';
+        }
+
+        return new String(timeChars, pos, timeChars.length - pos);
     }
 
     static long calculateProfitHourly(long secondsElapsed, long profit)
     {
         long averageProfitThousandForHour;
-        long averageProfitForSecond;
 
         if (secondsElapsed > 0)
         {
-            averageProfitForSecond = (profit) / secondsElapsed;
+            // scale up before dividing, profit / seconds alone truncates small rates to 0
+            averageProfitThousandForHour = profit * 3600 / secondsElapsed / 1000;
         }
         else
         {
             // can't divide by zero, not enough time has passed
-            averageProfitForSecond = 0;
+            averageProfitThousandForHour = 0;
         }
 
-        averageProfitThousandForHour = averageProfitForSecond * 3600 / 1000;
-
         return averageProfitThousandForHour;
     }
 }
@@ -0,0 +1,120 @@
+package com.profittracker;
+
+/**
+ * The ProfitTrackerOverlayState class is an immutable snapshot of everything ProfitTrackerOverlay displays.
+ */
+public class ProfitTrackerOverlayState {
+    /*
+    Published as a whole through a single volatile reference,
+    so render never sees profit of one session with the start time of another.
+     */
+
+    static final ProfitTrackerOverlayState NO_SESSION = new ProfitTrackerOverlayState(
+            0, 0, 0, false, ProfitTrackerBreakdown.EMPTY, ProfitTrackerRates.EMPTY,
+            ProfitTrackerProfitGraph.EMPTY, 0, 0);
+
+    private final long profitValue;
+
+    // value of supplies used up, already taken off profitValue
+    private final long supplyCost;
+
+    private final long startTimeMillies;
+    private final boolean inProfitTrackSession;
+    private final ProfitTrackerBreakdown breakdown;
+    private final ProfitTrackerRates rates;
+    private final ProfitTrackerProfitGraph profitGraph;
+
+    // session timer pauses while idle: paused time before, and since when it is paused now (0 running)
+    private final long pausedMillis;
+    private final long pausedSinceMillis;
+
+    ProfitTrackerOverlayState(long profitValue, long supplyCost, long startTimeMillies, boolean inProfitTrackSession,
+                              ProfitTrackerBreakdown breakdown, ProfitTrackerRates rates,
+                              ProfitTrackerProfitGraph profitGraph, long pausedMillis, long pausedSinceMillis)
+    {
+        this.profitValue = profitValue;
+        this.supplyCost = supplyCost;
+        this.startTimeMillies = startTimeMillies;
+        this.inProfitTrackSession = inProfitTrackSession;
+        this.breakdown = breakdown;
+        this.rates = rates;
+        this.profitGraph = profitGraph;
+        this.pausedMillis = pausedMillis;
+        this.pausedSinceMillis = pausedSinceMillis;
+    }
+
+    public long getProfitValue()
+    {
+        return profitValue;
+    }
+
+    public long getSupplyCost()
+    {
+        return supplyCost;
+    }
+
+    public long getStartTimeMillies()
+    {
+        return startTimeMillies;
+    }
+
+    public boolean isInProfitTrackSession()
+    {
+        return inProfitTrackSession;
+    }
+
+    public ProfitTrackerBreakdown getBreakdown()
+    {
+        return breakdown;
+    }
+
+    public ProfitTrackerRates getRates()
+    {
+        return rates;
+    }
+
+    public ProfitTrackerProfitGraph getProfitGraph()
+    {
+        return profitGraph;
+    }
+
+    public boolean isPaused()
+    {
+        return pausedSinceMillis > 0;
+    }
+
+    public long getActiveMillis(long nowMillis)
+    {
+        /*
+        session time up to nowMillis, without the time the timer was paused
+         */
+        if (startTimeMillies <= 0)
+        {
+            // there was never any session
+            return 0;
+        }
+
+        final long endMillis = pausedSinceMillis > 0 ? Math.min(pausedSinceMillis, nowMillis) : nowMillis;
+
+        return Math.max(0, endMillis - startTimeMillies - pausedMillis);
+    }
+
+    ProfitTrackerOverlayState withProfit(long newProfitValue, long newSupplyCost, ProfitTrackerBreakdown newBreakdown,
+                                         ProfitTrackerRates newRates, ProfitTrackerProfitGraph newProfitGraph)
+    {
+        if (newProfitValue == profitValue && newSupplyCost == supplyCost && newBreakdown == breakdown
+                && newRates == rates && newProfitGraph == profitGraph)
+        {
+            return this;
+        }
+
+        return new ProfitTrackerOverlayState(newProfitValue, newSupplyCost, startTimeMillies, inProfitTrackSession,
+                newBreakdown, newRates, newProfitGraph, pausedMillis, pausedSinceMillis);
+    }
+
+    ProfitTrackerOverlayState withPause(long newPausedMillis, long newPausedSinceMillis)
+    {
+        return new ProfitTrackerOverlayState(profitValue, supplyCost, startTimeMillies, inProfitTrackSession,
+                breakdown, rates, profitGraph, newPausedMillis, newPausedSinceMillis);
+    }
+}
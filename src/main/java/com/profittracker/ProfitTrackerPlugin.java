@@ -5,37 +5,83 @@ import javax.inject.Inject;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.*;
 
+import net.runelite.api.coords.WorldPoint;
 import net.runelite.api.events.*;
+import net.runelite.api.widgets.WidgetID;
 
+import net.runelite.client.RuneLite;
+import net.runelite.client.callback.ClientThread;
 import net.runelite.client.config.ConfigManager;
 import net.runelite.client.eventbus.Subscribe;
+import net.runelite.client.events.ConfigChanged;
+import net.runelite.client.events.OverlayMenuClicked;
 import net.runelite.client.game.ItemManager;
 import net.runelite.client.plugins.Plugin;
 import net.runelite.client.plugins.PluginDescriptor;
+import net.runelite.client.ui.ClientToolbar;
+import net.runelite.client.ui.NavigationButton;
 import net.runelite.client.ui.overlay.OverlayManager;
 
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
 @Slf4j
 @PluginDescriptor(
         name = "Profit Tracker"
 )
 public class ProfitTrackerPlugin extends Plugin
 {
+    private static final File PLUGIN_DIR = new File(RuneLite.RUNELITE_DIR, "profit-tracker");
+    private static final File JOURNAL_FILE = new File(PLUGIN_DIR, "session.journal");
+    private static final File RECORDINGS_DIR = new File(PLUGIN_DIR, "recordings");
+    private static final File HISTORY_DIR = new File(PLUGIN_DIR, "history");
+    private static final File EXPORTS_DIR = new File(PLUGIN_DIR, "exports");
+
+    // replays point these somewhere else, so they don't touch the real session and history
+    File journalFile = JOURNAL_FILE;
+    File historyDirectory = HISTORY_DIR;
+
     ProfitTrackerGoldDrops goldDropsObject;
     ProfitTrackerInventoryValue inventoryValueObject;
+    ProfitTrackerSessionJournal sessionJournal;
+    ProfitTrackerValuationPipeline valuationPipeline;
+    ProfitTrackerSessionHistory sessionHistory;
+    ProfitTrackerGroundItems groundItems;
+    ProfitTrackerDeposits deposits;
+
+    private NavigationButton historyNavigationButton;
+
+    // null unless recording events for replay
+    ProfitTrackerEventRecorder eventRecorder;
+
+    // null unless exporting item events
+    private ProfitTrackerEventExport eventExport;
 
-    // the profit will be calculated against this value
-    private long prevInventoryValue;
-    private long totalProfit;
+    // prices for the price mode, and the user's prices parsed from the config, see buildPriceSource
+    private ProfitTrackerPriceSource itemPrices;
+    private ProfitTrackerPriceTable priceOverrides = ProfitTrackerPriceTable.EMPTY;
+
+    // session read back from the journal at startUp, waiting to be resumed on login
+    private volatile ProfitTrackerRestoredSession restoredSession;
 
     private long startTickMillis;
 
-    private boolean skipTickForProfitCalculation;
     private boolean inventoryValueChanged;
     private boolean inProfitTrackSession;
 
+    // game ticks in session, and those with nothing to value
+    private long gameTickCount;
+    private long skippedTickCount;
+
     @Inject
     private Client client;
 
+    @Inject
+    private ClientThread clientThread;
+
     @Inject
     private ProfitTrackerConfig config;
 
@@ -45,43 +91,176 @@ public class ProfitTrackerPlugin extends Plugin
     @Inject
     private OverlayManager overlayManager;
 
+    @Inject
+    private ClientToolbar clientToolbar;
+
     @Inject
     private ProfitTrackerOverlay overlay;
 
+    @Inject
+    private ProfitTrackerGoldDropOverlay goldDropOverlay;
+
+    @Inject
+    private ProfitTrackerDebugOverlay debugOverlay;
+
     @Override
     protected void startUp() throws Exception
     {
         // Add the inventory overlay
         overlayManager.add(overlay);
+        overlayManager.add(goldDropOverlay);
+        overlayManager.add(debugOverlay);
 
-        goldDropsObject = new ProfitTrackerGoldDrops(client, itemManager);
+        startTracking(new ProfitTrackerItemPrices(itemManager, config.priceMode()));
 
-        inventoryValueObject = new ProfitTrackerInventoryValue(client, itemManager);
+        // finished sessions, in the side panel
+        historyNavigationButton = NavigationButton.builder()
+                .tooltip("Profit Tracker history")
+                .icon(buildHistoryIcon())
+                .priority(10)
+                .panel(new ProfitTrackerHistoryPanel(sessionHistory, clientThread, itemManager))
+                .build();
 
-        initializeVariables();
+        clientToolbar.addNavigation(historyNavigationButton);
+    }
+
+    private static BufferedImage buildHistoryIcon()
+    {
+        /*
+        three rising bars
+         */
+        final BufferedImage icon = new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D graphics = icon.createGraphics();
 
-        // start tracking only if plugin was re-started mid game
-        if (client.getGameState() == GameState.LOGGED_IN)
+        graphics.setColor(new Color(220, 180, 40));
+        graphics.fillRect(1, 10, 4, 5);
+        graphics.fillRect(6, 6, 4, 9);
+        graphics.fillRect(11, 2, 4, 13);
+        graphics.dispose();
+
+        return icon;
+    }
+
+    void startTracking(ProfitTrackerPriceSource itemPrices)
+    {
+        /*
+        everything startUp does except showing overlays, a replay runs this without a screen
+         */
+        goldDropsObject = new ProfitTrackerGoldDrops(client, itemManager, goldDropOverlay);
+        goldDropsObject.setStyle(config.goldDropStyle());
+        goldDropsObject.setCoalesceWindowMillis(config.goldDropCoalesceMillis());
+        goldDropsObject.setMaxDropsPerSecond(config.goldDropsPerSecond());
+
+        overlay.setRateWindow(config.rateWindow());
+        overlay.setShowProfitGraph(config.profitGraph());
+        overlay.setShowSupplyCost(config.supplyCost());
+
+        if (config.recordEvents())
         {
-            startProfitTrackingSession();
+            eventRecorder = new ProfitTrackerEventRecorder(
+                    new File(RECORDINGS_DIR, "session-" + System.currentTimeMillis() + ".ptrec"));
         }
 
+        this.itemPrices = itemPrices;
+        priceOverrides = ProfitTrackerPriceOverrides.parse(config.priceOverrides());
+
+        inventoryValueObject = new ProfitTrackerInventoryValue(client, buildPriceSource(),
+                TimeUnit.MINUTES.toMillis(config.priceRefreshMinutes()));
+
+        // dropping and picking up again is not a loss and a profit
+        groundItems = new ProfitTrackerGroundItems(this::onGroundChanged);
+
+        // with a deposit box, what was deposited is a transfer and the rest a loss
+        deposits = new ProfitTrackerDeposits();
+
+        ProfitTrackerTrace.setEnabled(config.debugTrace());
+
+        ProfitTrackerInstrumentation.reset();
+        ProfitTrackerInstrumentation.setSummaryIntervalMillis(
+                TimeUnit.MINUTES.toMillis(config.instrumentationSummaryMinutes()));
+        ProfitTrackerInstrumentation.setEnabled(config.instrumentation());
+
+        sessionJournal = new ProfitTrackerSessionJournal(journalFile);
+
+        restoredSession = config.resumeSession() ? sessionJournal.replay() : null;
+
+        sessionHistory = new ProfitTrackerSessionHistory(historyDirectory);
+
+        // profit is calculated on the valuation thread, gold drops are shown back on the client thread
+        valuationPipeline = new ProfitTrackerValuationPipeline(inventoryValueObject, sessionJournal, sessionHistory,
+                overlay, config, this::onTickProfit, this::onPriceRequest);
+
+        if (config.exportEvents())
+        {
+            eventExport = new ProfitTrackerEventExport(EXPORTS_DIR, config.exportFormat(),
+                    config.exportFileMegabytes() * 1024L * 1024L);
+            valuationPipeline.setEventExport(eventExport);
+        }
+
+        valuationPipeline.start();
+
+        initializeVariables();
+
+        // sessions feed the valuation pipeline, which only the client thread may do
+        clientThread.invoke(() ->
+        {
+            if (eventRecorder != null)
+            {
+                eventRecorder.recordStartUp(client);
+            }
+
+            // start tracking only if plugin was re-started mid game
+            if (client.getGameState() == GameState.LOGGED_IN)
+            {
+                if (restoredSession != null)
+                {
+                    resumeProfitTrackingSession();
+                }
+                else
+                {
+                    startProfitTrackingSession();
+                }
+            }
+        });
+
     }
 
-    private void initializeVariables()
+    private ProfitTrackerPriceSource buildPriceSource()
     {
-        // value here doesn't matter, will be overwritten
-        prevInventoryValue = -1;
+        /*
+        item prices with the user's prices over them, and recorded if recording
+         */
+        final ProfitTrackerPriceSource prices = new ProfitTrackerPriceOverrides(itemPrices, priceOverrides);
+
+        if (eventRecorder == null)
+        {
+            return prices;
+        }
+
+        final ProfitTrackerEventRecorder recorder = eventRecorder;
+
+        // prices and canonical ids loaded are recorded, a replay answers with the same
+        return new ProfitTrackerPriceSource()
+        {
+            @Override
+            public long getItemPrice(int itemId)
+            {
+                return recorder.recordPrice(itemId, prices.getItemPrice(itemId));
+            }
 
-        // profit begins at 0 of course
-        totalProfit = 0;
+            @Override
+            public int canonicalize(int itemId)
+            {
+                return recorder.recordCanonicalId(itemId, prices.canonicalize(itemId));
+            }
+        };
+    }
 
+    private void initializeVariables()
+    {
         // this will be filled with actual information in startProfitTrackingSession
         startTickMillis = 0;
 
-        // skip profit calculation for first tick, to initialize first inventory value
-        skipTickForProfitCalculation = true;
-
         inventoryValueChanged = false;
 
         inProfitTrackSession = false;
@@ -94,16 +273,84 @@ public class ProfitTrackerPlugin extends Plugin
         Start tracking profit from now on
          */
 
+        if (inProfitTrackSession)
+        {
+            // reset, the session so far goes to the history
+            valuationPipeline.submitSessionFinish(System.currentTimeMillis());
+        }
+
         initializeVariables();
 
         // initialize timer
         startTickMillis = System.currentTimeMillis();
 
-        overlay.updateStartTimeMillies(startTickMillis);
+        // profit begins at 0 of course, the journal starts over when the pipeline gets here
+        valuationPipeline.submitSessionStart(client.getTickCount(), startTickMillis);
+
+        groundItems.startSession();
 
-        overlay.startSession();
+        captureTrackedContainers();
 
         inProfitTrackSession = true;
+
+        // anything restored is replaced by this session
+        restoredSession = null;
+    }
+
+    private void resumeProfitTrackingSession()
+    {
+        /*
+        Continue the session restored from the journal
+         */
+
+        final ProfitTrackerRestoredSession session = restoredSession;
+
+        final long containerHash = inventoryValueObject.calculateContainerHash();
+
+        if (session.getSnapshotHash() != ProfitTrackerInventoryValue.NO_SNAPSHOT_HASH &&
+            session.getSnapshotHash() != containerHash)
+        {
+            // played while the plugin was off (or on another client), what changed since is not this session's profit
+            ProfitTrackerTrace.trace("Inventory or equipment changed since the journaled session, starting a new one");
+
+            startProfitTrackingSession();
+            return;
+        }
+
+        restoredSession = null;
+
+        initializeVariables();
+
+        startTickMillis = session.getStartMillis();
+
+        // only totals are journaled, the items breakdown starts over.
+        // The client was closed since the last record, that time doesn't count towards the rate
+        valuationPipeline.submitSessionResume(client.getTickCount(), session, System.currentTimeMillis());
+
+        groundItems.startSession();
+
+        captureTrackedContainers();
+
+        ProfitTrackerTrace.trace("Resuming session with profit {} from {} records, paused {} ms",
+                session.getTotalProfit(), session.getProfitRecords(), session.getPausedMillis(System.currentTimeMillis()));
+
+        inProfitTrackSession = true;
+    }
+
+    private void captureTrackedContainers()
+    {
+        /*
+        baseline for the session: current contents of every tracked container.
+        Containers are seen as a baseline first, so whatever is owned at the start is not profit.
+        Their prices are loaded first in one batch, the captures then only hit the price cache
+         */
+        final long warmUpStartNanos = System.nanoTime();
+        final int warmedUp = inventoryValueObject.warmUpBaselinePrices();
+
+        ProfitTrackerTrace.trace("Loaded {} prices for the session baseline in {} us",
+                warmedUp, (System.nanoTime() - warmUpStartNanos) / 1000);
+
+        inventoryValueObject.captureBaseline(valuationPipeline::submitCapture);
     }
 
     @Override
@@ -111,11 +358,82 @@ public class ProfitTrackerPlugin extends Plugin
     {
         // Remove the inventory overlay
         overlayManager.remove(overlay);
+        overlayManager.remove(goldDropOverlay);
+        overlayManager.remove(debugOverlay);
+        clientToolbar.removeNavigation(historyNavigationButton);
+
+        stopTracking();
+    }
+
+    long getGameTickCount()
+    {
+        return gameTickCount;
+    }
+
+    long getSkippedTickCount()
+    {
+        return skippedTickCount;
+    }
+
+    void stopTracking()
+    {
+        ProfitTrackerTrace.trace("Skipped {} of {} game ticks and {} overlay frames with nothing changed",
+                skippedTickCount, gameTickCount, overlay.getSkippedFrameCount());
+
+        // every miss is an ItemManager lookup, once warm there should be next to none
+        final ProfitTrackerPriceCache priceCache = inventoryValueObject.getPriceCache();
+        ProfitTrackerTrace.trace("Price cache: {} hits, {} misses, {} evictions, {} refreshes, {} warmed up",
+                priceCache.getHits(), priceCache.getMisses(), priceCache.getEvictions(),
+                priceCache.getRefreshes(), priceCache.getWarmedUp());
+
+        // requested = coalesced + dropped + shown, give or take the ones still queued
+        ProfitTrackerTrace.trace("Gold drops: {} requested, {} coalesced, {} dropped, {} shown",
+                goldDropsObject.getRequestedCount(), goldDropsObject.getCoalescedCount(),
+                goldDropsObject.getDroppedCount(), goldDropsObject.getShownCount());
+
+        // a session that won't be resumed is finished. Returns when the valuation thread
+        // processed the last tick and ended, nothing is written to the journal or history after
+        valuationPipeline.stop(inProfitTrackSession && !config.resumeSession());
+
+        // writes what is left off this thread
+        sessionJournal.close();
+        sessionHistory.close();
+
+        if (eventExport != null)
+        {
+            eventExport.close();
+            eventExport = null;
+        }
+
+        if (eventRecorder != null)
+        {
+            eventRecorder.close();
+            eventRecorder = null;
+        }
+
+        ProfitTrackerTrace.setEnabled(false);
+
+        if (ProfitTrackerInstrumentation.isEnabled())
+        {
+            ProfitTrackerInstrumentation.logSummary();
+            ProfitTrackerInstrumentation.setEnabled(false);
+        }
 
     }
 
     @Subscribe
     public void onGameTick(GameTick gameTick)
+    {
+        final long startNanos = ProfitTrackerInstrumentation.start(ProfitTrackerProbe.GAME_TICK);
+
+        processGameTick();
+
+        ProfitTrackerInstrumentation.stop(ProfitTrackerProbe.GAME_TICK, startNanos);
+
+        ProfitTrackerInstrumentation.summaryIfDue(System.currentTimeMillis());
+    }
+
+    private void processGameTick()
     {
         /*
         Main plugin logic here
@@ -126,112 +444,321 @@ public class ProfitTrackerPlugin extends Plugin
 
         2. Calculate profit rate and update in overlay
 
+        Both happen on the valuation thread, here we only mark the end of the tick,
+        see ProfitTrackerValuationPipeline.
         */
 
-        long tickProfit;
+        if (eventRecorder != null)
+        {
+            eventRecorder.recordTick(client.getTickCount(), System.currentTimeMillis());
+        }
+
+        // drops we didn't see go are lost once they must be gone, even between sessions to stay bounded
+        groundItems.expire(client.getTickCount());
 
         if (!inProfitTrackSession)
         {
             return;
         }
 
+        gameTickCount++;
+
+        // drop cached prices once they are old
+        inventoryValueObject.refreshPricesIfDue(System.currentTimeMillis());
+
         if (inventoryValueChanged)
         {
-            tickProfit = calculateTickProfit();
+            // items moved between containers are matched up on the valuation thread.
+            // With the deposit box the bank isn't loaded, what was deposited went to it
+            valuationPipeline.submitTick(client.getTickCount(), System.currentTimeMillis(),
+                    deposits.getDepositedItemIds(client.getTickCount()), currentRegionId());
 
-            // accumulate profit
-            totalProfit += tickProfit;
+            inventoryValueChanged = false;
+        }
+        else
+        {
+            // nothing tracked changed, no profit work this tick
+            skippedTickCount++;
+        }
 
-            overlay.updateProfitValue(totalProfit);
+    }
 
-            // generate gold drop
-            if (config.goldDrops() && tickProfit != 0)
-            {
-                goldDropsObject.requestGoldDrop(tickProfit);
-            }
+    private int currentRegionId()
+    {
+        final Player player = client.getLocalPlayer();
 
-            inventoryValueChanged = false;
+        return player != null ? player.getWorldLocation().getRegionID() : ProfitTrackerSessionHistory.NO_REGION;
+    }
+
+    private boolean isDepositBoxOpen()
+    {
+        return client.getWidget(WidgetID.DEPOSIT_BOX_GROUP_ID, 0) != null;
+    }
+
+    private void onTickProfit(long tickProfit)
+    {
+        /*
+        valuation thread, for every tick with profit and every revalue that changed it
+         */
+
+        if (eventRecorder != null)
+        {
+            eventRecorder.recordProfit(tickProfit);
         }
 
+        // generate gold drop, widgets are client thread only
+        if (config.goldDrops())
+        {
+            clientThread.invokeLater(() -> goldDropsObject.requestGoldDrop(tickProfit));
+        }
     }
 
-    private long calculateTickProfit()
+    private void onPriceRequest(int[] itemIds)
     {
         /*
-        Calculate and return the profit for this tick
-        if skipTickForProfitCalculation is set, meaning this tick was bank / deposit
-        so return 0
+        valuation thread, after the price source changed: price the session's items for the revalue,
+        prices are client thread only
+         */
+        clientThread.invokeLater(() -> valuationPipeline.submitRevalue(inventoryValueObject.buildPriceTable(itemIds),
+                client.getTickCount(), System.currentTimeMillis()));
+    }
 
+    @Subscribe
+    public void onItemContainerChanged(ItemContainerChanged event)
+    {
+        /*
+        this event tells us when any tracked container has changed.
+        Bank, looting bag etc. are tracked too, so moving items into them is a transfer, not a loss
          */
-        long newInventoryValue;
-        long newProfit;
+        final long startNanos = ProfitTrackerInstrumentation.start(ProfitTrackerProbe.ITEM_CONTAINER_CHANGED);
 
-        // calculate current inventory value
-        newInventoryValue = inventoryValueObject.calculateInventoryAndEquipmentValue();
+        int containerId = event.getContainerId();
+
+        ProfitTrackerTrace.trace("onItemContainerChanged container id: {}", containerId);
 
-        if (!skipTickForProfitCalculation)
+        if (eventRecorder != null)
         {
-            // calculate new profit
-            newProfit = newInventoryValue - prevInventoryValue;
+            eventRecorder.recordContainer(containerId, event.getItemContainer());
+        }
+
+        if (inProfitTrackSession && inventoryValueObject.isTrackedContainer(containerId)) {
+            // inventory has changed - need calculate profit in onGameTick
+            // copy it now, it is valued on the valuation thread
+            valuationPipeline.submitCapture(inventoryValueObject.captureContainer(containerId, event.getItemContainer()));
+
+            inventoryValueChanged = true;
 
         }
-        else
-        {
-            /* first time calculation / banking / equipping */
-            log.info("Skipping profit calculation!");
 
-            skipTickForProfitCalculation = false;
+        ProfitTrackerInstrumentation.stop(ProfitTrackerProbe.ITEM_CONTAINER_CHANGED, startNanos);
+    }
+
+    @Subscribe
+    public void onItemSpawned(ItemSpawned event)
+    {
+        final WorldPoint location = event.getTile().getWorldLocation();
+        final Player player = client.getLocalPlayer();
+
+        // dropped items appear under the player
+        final boolean onPlayerTile = player == null || location.equals(player.getWorldLocation());
 
-            // no profit this tick
-            newProfit = 0;
+        itemSpawned(location.getX(), location.getY(), location.getPlane(),
+                event.getItem().getId(), event.getItem().getQuantity(), onPlayerTile);
+    }
+
+    void itemSpawned(int x, int y, int plane, int itemId, int quantity, boolean onPlayerTile)
+    {
+        if (eventRecorder != null)
+        {
+            eventRecorder.recordItemSpawned(x, y, plane, itemId, quantity, onPlayerTile);
         }
 
-        // update prevInventoryValue for future calculations anyway!
-        prevInventoryValue = newInventoryValue;
+        groundItems.itemSpawned(ProfitTrackerGroundItems.packTile(x, y, plane), onPlayerTile,
+                itemId, quantity, client.getTickCount());
+    }
+
+    @Subscribe
+    public void onItemQuantityChanged(ItemQuantityChanged event)
+    {
+        final WorldPoint location = event.getTile().getWorldLocation();
+        final Player player = client.getLocalPlayer();
 
-        return newProfit;
+        // a stackable item dropped onto a stack of it only grows the stack
+        final boolean onPlayerTile = player == null || location.equals(player.getWorldLocation());
+
+        itemQuantityChanged(location.getX(), location.getY(), location.getPlane(),
+                event.getItem().getId(), event.getOldQuantity(), event.getNewQuantity(), onPlayerTile);
+    }
+
+    void itemQuantityChanged(int x, int y, int plane, int itemId, int oldQuantity, int newQuantity, boolean onPlayerTile)
+    {
+        if (eventRecorder != null)
+        {
+            eventRecorder.recordItemQuantityChanged(x, y, plane, itemId, oldQuantity, newQuantity, onPlayerTile);
+        }
+
+        groundItems.itemQuantityChanged(ProfitTrackerGroundItems.packTile(x, y, plane), onPlayerTile,
+                itemId, oldQuantity, newQuantity, client.getTickCount());
     }
 
     @Subscribe
-    public void onItemContainerChanged(ItemContainerChanged event)
+    public void onItemDespawned(ItemDespawned event)
+    {
+        final WorldPoint location = event.getTile().getWorldLocation();
+
+        itemDespawned(location.getX(), location.getY(), location.getPlane(),
+                event.getItem().getId(), event.getItem().getQuantity());
+    }
+
+    void itemDespawned(int x, int y, int plane, int itemId, int quantity)
+    {
+        if (eventRecorder != null)
+        {
+            eventRecorder.recordItemDespawned(x, y, plane, itemId, quantity);
+        }
+
+        // scene unloading despawns everything, only despawns while logged in are real
+        groundItems.itemDespawned(ProfitTrackerGroundItems.packTile(x, y, plane), itemId, quantity,
+                client.getGameState() == GameState.LOGGED_IN);
+    }
+
+    void dropClicked(int itemId)
+    {
+        if (eventRecorder != null)
+        {
+            eventRecorder.recordDrop(itemId);
+        }
+
+        groundItems.dropClicked(itemId, client.getTickCount());
+    }
+
+    void depositClicked(int itemId)
+    {
+        if (eventRecorder != null)
+        {
+            eventRecorder.recordDeposit(itemId);
+        }
+
+        deposits.depositClicked(inventoryValueObject.getPriceCache().canonicalize(itemId), client.getTickCount());
+    }
+
+    private void depositContainerClicked(InventoryID containerId)
     {
         /*
-        this event tells us when inventory has changed
-        and when banking/equipment event occured this tick
+        a whole container was deposited, every item in it
          */
-        log.info("onItemContainerChanged container id: " + event.getContainerId());
+        final ItemContainer container = client.getItemContainer(containerId);
 
-        int containerId = event.getContainerId();
+        if (container == null)
+        {
+            return;
+        }
 
-        if( containerId == InventoryID.INVENTORY.getId() ||
-            containerId == InventoryID.EQUIPMENT.getId()) {
-            // inventory has changed - need calculate profit in onGameTick
-            inventoryValueChanged = true;
+        for (Item item : container.getItems())
+        {
+            if (item.getId() != ProfitTrackerInventoryValue.EMPTY_SLOT_ITEMID && item.getQuantity() > 0)
+            {
+                depositClicked(item.getId());
+            }
+        }
+    }
+
+    private void onDepositBoxClicked(MenuOptionClicked event)
+    {
+        switch (event.getMenuOption())
+        {
+            case "Deposit inventory":
+                depositContainerClicked(InventoryID.INVENTORY);
+                break;
+            case "Deposit worn items":
+                depositContainerClicked(InventoryID.EQUIPMENT);
+                break;
+            case "Deposit loot":
+                depositContainerClicked(InventoryID.LOOTING_BAG);
+                break;
+            default:
+            {
+                // Deposit-1, -5, -All... on an item, the action param is its inventory slot
+                final ItemContainer inventory = client.getItemContainer(InventoryID.INVENTORY);
+                final int slot = event.getActionParam();
+
+                if (inventory != null && slot >= 0 && slot < inventory.getItems().length)
+                {
+                    depositClicked(inventory.getItems()[slot].getId());
+                }
+            }
+        }
+    }
 
+    private void onGroundChanged(int itemId, int quantityDelta)
+    {
+        /*
+        an item we dropped went onto or off the ground, it's matched against the inventory on the valuation thread
+         */
+        if (!inProfitTrackSession)
+        {
+            return;
         }
 
-        // in these events, inventory WILL be changed but we DON'T want to calculate profit!
-        if(     containerId == InventoryID.BANK.getId()) {
-            // this is a bank interaction.
-            // Don't take this into account
-            skipTickForProfitCalculation = true;
+        // by canonical id, like container changes
+        valuationPipeline.submitGroundChange(inventoryValueObject.getPriceCache().canonicalize(itemId), quantityDelta,
+                inventoryValueObject.calculateGroundValue(itemId, quantityDelta));
+
+        inventoryValueChanged = true;
+    }
 
+    @Subscribe
+    public void onVarbitChanged(VarbitChanged event)
+    {
+        /*
+        rune pouch contents are varbits, capture them when they change
+         */
+        if (!inProfitTrackSession)
+        {
+            return;
         }
 
+        final ProfitTrackerContainerCapture capture = inventoryValueObject.captureRunePouchIfChanged();
+
+        if (capture != null)
+        {
+            if (eventRecorder != null)
+            {
+                eventRecorder.recordRunePouch(client);
+            }
+
+            valuationPipeline.submitCapture(capture);
+
+            inventoryValueChanged = true;
+        }
     }
 
     @Subscribe
     public void onMenuOptionClicked(MenuOptionClicked event) {
-        /* for ignoring deposit in deposit box */
-        log.info(String.format("Click! ID: %d, actionParam: %d ,menuOption: %s, menuTarget: %s, widgetId: %d",
-                event.getId(), event.getActionParam(), event.getMenuOption(), event.getMenuTarget(), event.getWidgetId()));
+        final long startNanos = ProfitTrackerInstrumentation.start(ProfitTrackerProbe.MENU_OPTION_CLICKED);
 
-        if (event.getId() == ObjectID.BANK_DEPOSIT_BOX) {
-            // we've interacted with a deposit box. Don't take this tick into account for profit calculation
-            skipTickForProfitCalculation = true;
+        if (eventRecorder != null)
+        {
+            eventRecorder.recordMenu(event.getId(), event.getActionParam(), event.getWidgetId());
         }
 
+        // item ops carry the item id, the item spawns on the ground next
+        if ("Drop".equals(event.getMenuOption()))
+        {
+            dropClicked(event.getId());
+        }
+        else if (event.getMenuOption() != null && event.getMenuOption().startsWith("Deposit") && isDepositBoxOpen())
+        {
+            onDepositBoxClicked(event);
+        }
+
+        if (ProfitTrackerTrace.isEnabled())
+        {
+            ProfitTrackerTrace.trace("Click! ID: {}, actionParam: {} ,menuOption: {}, menuTarget: {}, widgetId: {}",
+                    event.getId(), event.getActionParam(), event.getMenuOption(), event.getMenuTarget(), event.getWidgetId());
+        }
 
+        ProfitTrackerInstrumentation.stop(ProfitTrackerProbe.MENU_OPTION_CLICKED, startNanos);
     }
 
     @Provides
@@ -241,9 +768,150 @@ public class ProfitTrackerPlugin extends Plugin
     }
 
 
+    @Subscribe
+    public void onGameStateChanged(GameStateChanged event)
+    {
+        if (eventRecorder != null)
+        {
+            eventRecorder.recordGameState(event.getGameState());
+        }
+
+        if (event.getGameState() == GameState.LOGIN_SCREEN && valuationPipeline != null)
+        {
+            // containers seen after logging in again are a new baseline
+            valuationPipeline.submitForgetContainers();
+        }
+
+        if (event.getGameState() == GameState.LOGGED_IN && inventoryValueObject != null)
+        {
+            // prices may have been loaded or updated while logged out
+            inventoryValueObject.getPriceCache().invalidate();
+
+            // plugin was started before login, continue the journaled session now
+            if (!inProfitTrackSession && restoredSession != null)
+            {
+                resumeProfitTrackingSession();
+            }
+        }
+    }
+
+    @Subscribe
+    public void onOverlayMenuClicked(OverlayMenuClicked event)
+    {
+        if (event.getOverlay() == overlay &&
+            ProfitTrackerOverlay.RESET_OPTION.equals(event.getEntry().getOption()))
+        {
+            if (eventRecorder != null)
+            {
+                eventRecorder.recordSessionReset();
+            }
+
+            startProfitTrackingSession();
+        }
+    }
+
+    @Subscribe
+    public void onConfigChanged(ConfigChanged event)
+    {
+        if (!event.getGroup().equals("ptconfig") || inventoryValueObject == null)
+        {
+            return;
+        }
+
+        if (event.getKey().equals("breakdownSize"))
+        {
+            // the ledger belongs to the valuation thread, which only the client thread may feed
+            clientThread.invoke(valuationPipeline::submitBreakdownRefresh);
+        }
+
+        if (event.getKey().equals("goldDropStyle")
+                || event.getKey().equals("goldDropCoalesceMillis") || event.getKey().equals("goldDropsPerSecond"))
+        {
+            // gold drops are client thread only
+            clientThread.invoke(() ->
+            {
+                goldDropsObject.setStyle(config.goldDropStyle());
+                goldDropsObject.setCoalesceWindowMillis(config.goldDropCoalesceMillis());
+                goldDropsObject.setMaxDropsPerSecond(config.goldDropsPerSecond());
+            });
+        }
+
+        if (event.getKey().equals("rateWindow") || event.getKey().equals("profitGraph")
+                || event.getKey().equals("supplyCost"))
+        {
+            // overlay renders on the client thread
+            clientThread.invoke(() ->
+            {
+                overlay.setRateWindow(config.rateWindow());
+                overlay.setShowProfitGraph(config.profitGraph());
+                overlay.setShowSupplyCost(config.supplyCost());
+            });
+        }
+
+        if (event.getKey().equals("debugTrace"))
+        {
+            ProfitTrackerTrace.setEnabled(config.debugTrace());
+        }
+
+        if (event.getKey().equals("instrumentation") || event.getKey().equals("instrumentationSummaryMinutes"))
+        {
+            // histograms are client thread only, start them over when timing is turned on
+            clientThread.invoke(() ->
+            {
+                if (config.instrumentation() && !ProfitTrackerInstrumentation.isEnabled())
+                {
+                    ProfitTrackerInstrumentation.reset();
+                }
+
+                ProfitTrackerInstrumentation.setSummaryIntervalMillis(
+                        TimeUnit.MINUTES.toMillis(config.instrumentationSummaryMinutes()));
+                ProfitTrackerInstrumentation.setEnabled(config.instrumentation());
+            });
+        }
+
+        if (event.getKey().equals("priceMode") || event.getKey().equals("priceOverrides"))
+        {
+            // overrides are parsed here once, not per lookup
+            final ProfitTrackerPriceTable overrides = ProfitTrackerPriceOverrides.parse(config.priceOverrides());
+
+            // prices are client thread only, and so is feeding the valuation pipeline
+            clientThread.invoke(() ->
+            {
+                itemPrices = new ProfitTrackerItemPrices(itemManager, config.priceMode());
+                priceOverrides = overrides;
+
+                inventoryValueObject.setPriceSource(buildPriceSource());
+                valuationPipeline.submitRevalueRequest();
+            });
+        }
+
+        if (event.getKey().equals("priceRefreshMinutes"))
+        {
+            // price cache is client thread only
+            clientThread.invoke(() -> inventoryValueObject.getPriceCache().setRefreshIntervalMillis(
+                    TimeUnit.MINUTES.toMillis(config.priceRefreshMinutes())));
+        }
+    }
+
+    @Subscribe
+    public void onClientTick(ClientTick clientTick)
+    {
+        // show queued gold drops
+        goldDropsObject.onClientTick();
+    }
+
     @Subscribe
     public void onScriptPreFired(ScriptPreFired scriptPreFired)
     {
+        final long startNanos = ProfitTrackerInstrumentation.start(ProfitTrackerProbe.SCRIPT_PRE_FIRED);
+
+        if (eventRecorder != null)
+        {
+            eventRecorder.recordScript(scriptPreFired.getScriptId());
+        }
+
         goldDropsObject.onScriptPreFired(scriptPreFired);
+
+        ProfitTrackerInstrumentation.stop(ProfitTrackerProbe.SCRIPT_PRE_FIRED, startNanos);
     }
 }
@@ -0,0 +1,377 @@
+package com.profittracker;
+
+import java.util.Arrays;
+
+/**
+ * The ProfitTrackerPriceCache class remembers item prices, so valuing the same items
+ * tick after tick does not go through ItemManager every time.
+ */
+public class ProfitTrackerPriceCache implements ProfitTrackerPriceSource {
+    /*
+    int -> long open addressing map (linear probing) over primitive arrays,
+    nothing is boxed or allocated on lookup.
+
+    Size is bounded, when full an entry is evicted using the clock (second chance) algorithm:
+    entries looked up since the hand last passed them survive one more round.
+
+    All prices are dropped when the refresh interval passes, so price changes are picked up.
+    Expiry is only checked when asked to (once per tick by the plugin), not per lookup.
+
+    Prices are kept by canonical id: a noted item or a placeholder shares the entry of the item itself,
+    so it is loaded once. Each id seen is canonicalized once, the result is kept in a second map
+    of the same kind, which is never refreshed (ids don't change) and simply cleared when full.
+
+    warmUp loads many prices in one pass, deduplicated, before they are needed.
+
+    Not thread safe, used from the client thread only.
+     */
+
+    static final int DEFAULT_MAX_SIZE = 2048;
+
+    // no item has this id, marks a free table slot
+    private static final int FREE_KEY = Integer.MIN_VALUE;
+
+    private ProfitTrackerPriceSource loader;
+
+    private final int[] keys;
+    private final long[] prices;
+    private final boolean[] referenced;
+    private final int mask;
+    private final int maxSize;
+
+    private int size;
+    private int clockHand;
+
+    // item id -> canonical id, same hashing as above
+    private final int[] aliasKeys;
+    private final int[] aliasValues;
+    private int aliasSize;
+
+    private long refreshIntervalMillis;
+    private long lastRefreshMillis;
+
+    /*
+    Statistics
+     */
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long refreshes;
+    private long warmedUp;
+
+    public ProfitTrackerPriceCache(ProfitTrackerPriceSource loader, int maxSize, long refreshIntervalMillis)
+    {
+        if (maxSize < 1)
+        {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+
+        this.loader = loader;
+        this.maxSize = maxSize;
+        this.refreshIntervalMillis = refreshIntervalMillis;
+
+        // keep load factor at most 0.5 so probe sequences stay short
+        final int capacity = Integer.highestOneBit(maxSize * 2 - 1) << 1;
+
+        keys = new int[capacity];
+        prices = new long[capacity];
+        referenced = new boolean[capacity];
+        mask = capacity - 1;
+
+        aliasKeys = new int[capacity];
+        aliasValues = new int[capacity];
+
+        Arrays.fill(keys, FREE_KEY);
+        Arrays.fill(aliasKeys, FREE_KEY);
+    }
+
+    @Override
+    public long getItemPrice(int itemId)
+    {
+        final int canonicalId = canonicalize(itemId);
+        final int slot = findSlot(canonicalId);
+
+        if (keys[slot] == canonicalId)
+        {
+            hits++;
+            referenced[slot] = true;
+            return prices[slot];
+        }
+
+        misses++;
+
+        return load(canonicalId, slot);
+    }
+
+    @Override
+    public int canonicalize(int itemId)
+    {
+        int slot = findAliasSlot(itemId);
+
+        if (aliasKeys[slot] == itemId)
+        {
+            return aliasValues[slot];
+        }
+
+        final int canonicalId = loader.canonicalize(itemId);
+
+        if (aliasSize >= maxSize)
+        {
+            // ids never change, there is nothing better to keep than the most recent
+            Arrays.fill(aliasKeys, FREE_KEY);
+            aliasSize = 0;
+            slot = findAliasSlot(itemId);
+        }
+
+        aliasKeys[slot] = itemId;
+        aliasValues[slot] = canonicalId;
+        aliasSize++;
+
+        return canonicalId;
+    }
+
+    public int warmUp(int[] itemIds, int count)
+    {
+        /*
+        load the prices of the first count itemIds not cached yet, in one pass.
+        itemIds is sorted in place so each distinct id is canonicalized once,
+        duplicates and variants of an already cached item cost a probe each.
+        At most maxSize prices are loaded, more would only evict each other.
+        Returns how many prices were loaded
+         */
+        Arrays.sort(itemIds, 0, count);
+
+        int loaded = 0;
+
+        for (int i = 0; i < count && loaded < maxSize; i++)
+        {
+            if (i > 0 && itemIds[i] == itemIds[i - 1])
+            {
+                continue;
+            }
+
+            final int canonicalId = canonicalize(itemIds[i]);
+            final int slot = findSlot(canonicalId);
+
+            if (keys[slot] != canonicalId)
+            {
+                load(canonicalId, slot);
+                loaded++;
+            }
+        }
+
+        warmedUp += loaded;
+
+        return loaded;
+    }
+
+    private long load(int canonicalId, int slot)
+    {
+        /*
+        ask the loader for a price missing from slot, and keep it
+         */
+        final long price = loader.getItemPrice(canonicalId);
+
+        if (size >= maxSize)
+        {
+            evictOne();
+
+            // eviction shifts entries around
+            slot = findSlot(canonicalId);
+        }
+
+        keys[slot] = canonicalId;
+        prices[slot] = price;
+        referenced[slot] = false;
+        size++;
+
+        return price;
+    }
+
+    public void refreshIfDue(long nowMillis)
+    {
+        /*
+        drop all prices if the refresh interval passed since last refresh.
+        0 interval means never refresh.
+         */
+
+        if (refreshIntervalMillis <= 0)
+        {
+            return;
+        }
+
+        if (lastRefreshMillis == 0)
+        {
+            // first call, start counting from now
+            lastRefreshMillis = nowMillis;
+            return;
+        }
+
+        if (nowMillis - lastRefreshMillis >= refreshIntervalMillis)
+        {
+            invalidate();
+            lastRefreshMillis = nowMillis;
+        }
+    }
+
+    public void setLoader(ProfitTrackerPriceSource loader)
+    {
+        /*
+        price from another source from now on, every price cached so far is dropped.
+        Canonical ids stay, they don't depend on the price source
+         */
+        this.loader = loader;
+        invalidate();
+    }
+
+    public void setRefreshIntervalMillis(long refreshIntervalMillis)
+    {
+        this.refreshIntervalMillis = refreshIntervalMillis;
+    }
+
+    public void invalidate()
+    {
+        /*
+        drop all prices, they will be loaded again on next lookup
+         */
+
+        Arrays.fill(keys, FREE_KEY);
+        Arrays.fill(referenced, false);
+
+        size = 0;
+        clockHand = 0;
+        refreshes++;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public long getHits()
+    {
+        return hits;
+    }
+
+    public long getMisses()
+    {
+        return misses;
+    }
+
+    public long getEvictions()
+    {
+        return evictions;
+    }
+
+    public long getRefreshes()
+    {
+        return refreshes;
+    }
+
+    public long getWarmedUp()
+    {
+        return warmedUp;
+    }
+
+    private static int hash(int key)
+    {
+        // item ids are sequential, spread them over the table
+        final int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int findSlot(int key)
+    {
+        /*
+        slot holding key, or the free slot where key should be inserted
+         */
+
+        int slot = hash(key) & mask;
+
+        while (keys[slot] != FREE_KEY && keys[slot] != key)
+        {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    private int findAliasSlot(int key)
+    {
+        int slot = hash(key) & mask;
+
+        while (aliasKeys[slot] != FREE_KEY && aliasKeys[slot] != key)
+        {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    private void evictOne()
+    {
+        /*
+        advance the clock hand to the first entry that wasn't looked up since the last pass
+         */
+
+        while (true)
+        {
+            if (keys[clockHand] != FREE_KEY)
+            {
+                if (referenced[clockHand])
+                {
+                    // second chance
+                    referenced[clockHand] = false;
+                }
+                else
+                {
+                    removeSlot(clockHand);
+                    evictions++;
+                    return;
+                }
+            }
+
+            clockHand = (clockHand + 1) & mask;
+        }
+    }
+
+    private void removeSlot(int slot)
+    {
+        /*
+        remove by shifting back following entries of the probe sequence,
+        so lookups never need tombstones
+         */
+
+        int gap = slot;
+        int next = slot;
+
+        while (true)
+        {
+            next = (next + 1) & mask;
+
+            if (keys[next] == FREE_KEY)
+            {
+                break;
+            }
+
+            final int home = hash(keys[next]) & mask;
+
+            // entry can move to the gap only if its home slot is not cyclically within (gap, next]
+            final boolean homeBetween = gap <= next
+                    ? (home > gap && home <= next)
+                    : (home > gap || home <= next);
+
+            if (!homeBetween)
+            {
+                keys[gap] = keys[next];
+                prices[gap] = prices[next];
+                referenced[gap] = referenced[next];
+                gap = next;
+            }
+        }
+
+        keys[gap] = FREE_KEY;
+        referenced[gap] = false;
+        size--;
+    }
+}
@@ -0,0 +1,29 @@
+package com.profittracker;
+
+/**
+ * The ProfitTrackerPriceMode enum selects what items are valued at, see ProfitTrackerItemPrices.
+ */
+public enum ProfitTrackerPriceMode
+{
+    // ItemManager's Grand Exchange price, 0 for untradeable items
+    GRAND_EXCHANGE("Grand Exchange"),
+
+    // what casting high level alchemy on the item gives, for ironmen and alching
+    HIGH_ALCHEMY("High alchemy"),
+
+    // the item's store value
+    STORE("Store value");
+
+    private final String name;
+
+    ProfitTrackerPriceMode(String name)
+    {
+        this.name = name;
+    }
+
+    @Override
+    public String toString()
+    {
+        return name;
+    }
+}
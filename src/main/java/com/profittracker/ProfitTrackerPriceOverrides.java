@@ -0,0 +1,103 @@
+package com.profittracker;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The ProfitTrackerPriceOverrides class prices items the user set a price for at that price,
+ * and everything else from another price source.
+ */
+@Slf4j
+public class ProfitTrackerPriceOverrides implements ProfitTrackerPriceSource {
+    /*
+    Overrides come from the config as text, "itemId=price" entries separated by commas or new lines.
+    The text is parsed once into a ProfitTrackerPriceTable when the config changes, a lookup is a binary search.
+    Item ids are of the unnoted item, noted items and placeholders are priced as the item itself.
+     */
+
+    private final ProfitTrackerPriceSource prices;
+    private final ProfitTrackerPriceTable overrides;
+
+    public ProfitTrackerPriceOverrides(ProfitTrackerPriceSource prices, ProfitTrackerPriceTable overrides)
+    {
+        this.prices = prices;
+        this.overrides = overrides;
+    }
+
+    public static ProfitTrackerPriceTable parse(String text)
+    {
+        /*
+        overrides in text, entries that don't parse are logged and left out. A repeated item id keeps its last price
+         */
+        if (text == null || text.trim().isEmpty())
+        {
+            return ProfitTrackerPriceTable.EMPTY;
+        }
+
+        final TreeMap<Integer, Long> parsed = new TreeMap<>();
+
+        for (String entry : text.split("[,\\n]"))
+        {
+            entry = entry.trim();
+
+            if (entry.isEmpty())
+            {
+                continue;
+            }
+
+            final int separator = entry.indexOf('=');
+
+            try
+            {
+                if (separator < 0)
+                {
+                    throw new NumberFormatException("no '='");
+                }
+
+                final int itemId = Integer.parseInt(entry.substring(0, separator).trim());
+                final long price = Long.parseLong(entry.substring(separator + 1).trim());
+
+                if (itemId < 0 || price < 0)
+                {
+                    throw new NumberFormatException("negative");
+                }
+
+                parsed.put(itemId, price);
+            }
+            catch (NumberFormatException e)
+            {
+                log.warn("Ignoring custom price \"{}\", expected itemId=price", entry);
+            }
+        }
+
+        final int[] itemIds = new int[parsed.size()];
+        final long[] overridePrices = new long[parsed.size()];
+
+        int index = 0;
+
+        for (Map.Entry<Integer, Long> override : parsed.entrySet())
+        {
+            itemIds[index] = override.getKey();
+            overridePrices[index] = override.getValue();
+            index++;
+        }
+
+        return new ProfitTrackerPriceTable(itemIds, overridePrices);
+    }
+
+    @Override
+    public long getItemPrice(int itemId)
+    {
+        final int index = overrides.indexOf(itemId);
+
+        return index >= 0 ? overrides.getPrice(index) : prices.getItemPrice(itemId);
+    }
+
+    @Override
+    public int canonicalize(int itemId)
+    {
+        return prices.canonicalize(itemId);
+    }
+}
@@ -0,0 +1,22 @@
+package com.profittracker;
+
+/**
+ * The ProfitTrackerPriceSource interface provides the price of a single item to ProfitTrackerInventoryValue.
+ */
+public interface ProfitTrackerPriceSource
+{
+    /**
+     * @param itemId id of the item to price
+     * @return value in gold of a single item of this id
+     */
+    long getItemPrice(int itemId);
+
+    /**
+     * @param itemId id of an item, possibly noted or a placeholder
+     * @return id of the item it is a variant of, priced the same, or itemId itself
+     */
+    default int canonicalize(int itemId)
+    {
+        return itemId;
+    }
+}
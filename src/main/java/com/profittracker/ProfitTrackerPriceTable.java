@@ -0,0 +1,70 @@
+package com.profittracker;
+
+/**
+ * The ProfitTrackerPriceTable class is an immutable set of item prices, looked up by item id.
+ */
+public class ProfitTrackerPriceTable {
+    /*
+    Item ids sorted ascending, prices in the same order, found by binary search.
+    Built once (user price overrides on config change, a batch of prices to revalue a session with)
+    and then only read, so it can be handed between threads as is.
+     */
+
+    static final ProfitTrackerPriceTable EMPTY = new ProfitTrackerPriceTable(new int[0], new long[0]);
+
+    private final int[] itemIds;
+    private final long[] prices;
+
+    ProfitTrackerPriceTable(int[] itemIds, long[] prices)
+    {
+        /*
+        itemIds sorted ascending without duplicates, the arrays are kept, not copied
+         */
+        this.itemIds = itemIds;
+        this.prices = prices;
+    }
+
+    public int size()
+    {
+        return itemIds.length;
+    }
+
+    public int indexOf(int itemId)
+    {
+        /*
+        index of itemId, negative if not in the table
+         */
+        int low = 0;
+        int high = itemIds.length - 1;
+
+        while (low <= high)
+        {
+            final int middle = (low + high) >>> 1;
+
+            if (itemIds[middle] < itemId)
+            {
+                low = middle + 1;
+            }
+            else if (itemIds[middle] > itemId)
+            {
+                high = middle - 1;
+            }
+            else
+            {
+                return middle;
+            }
+        }
+
+        return -1;
+    }
+
+    public int getItemId(int index)
+    {
+        return itemIds[index];
+    }
+
+    public long getPrice(int index)
+    {
+        return prices[index];
+    }
+}
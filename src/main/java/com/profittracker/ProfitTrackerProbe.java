@@ -0,0 +1,26 @@
+package com.profittracker;
+
+/**
+ * The ProfitTrackerProbe enum names the code ProfitTrackerInstrumentation times.
+ */
+public enum ProfitTrackerProbe
+{
+    GAME_TICK("onGameTick"),
+    ITEM_CONTAINER_CHANGED("onItemContainerChanged"),
+    MENU_OPTION_CLICKED("onMenuOptionClicked"),
+    SCRIPT_PRE_FIRED("onScriptPreFired"),
+    OVERLAY_RENDER("Overlay render");
+
+    private final String name;
+
+    ProfitTrackerProbe(String name)
+    {
+        this.name = name;
+    }
+
+    @Override
+    public String toString()
+    {
+        return name;
+    }
+}
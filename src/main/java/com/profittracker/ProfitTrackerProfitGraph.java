@@ -0,0 +1,41 @@
+package com.profittracker;
+
+/**
+ * The ProfitTrackerProfitGraph class holds the points of the session's profit graph, oldest first, for display.
+ */
+public class ProfitTrackerProfitGraph {
+    static final ProfitTrackerProfitGraph EMPTY = new ProfitTrackerProfitGraph(
+            new long[0], new long[0], new long[0]);
+
+    // profit range within each point's time, and the profit at its end
+    private final long[] mins;
+    private final long[] maxs;
+    private final long[] lasts;
+
+    ProfitTrackerProfitGraph(long[] mins, long[] maxs, long[] lasts)
+    {
+        this.mins = mins;
+        this.maxs = maxs;
+        this.lasts = lasts;
+    }
+
+    public int getPointCount()
+    {
+        return lasts.length;
+    }
+
+    public long getMin(int point)
+    {
+        return mins[point];
+    }
+
+    public long getMax(int point)
+    {
+        return maxs[point];
+    }
+
+    public long getLast(int point)
+    {
+        return lasts[point];
+    }
+}
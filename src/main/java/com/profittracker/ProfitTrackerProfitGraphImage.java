@@ -0,0 +1,114 @@
+package com.profittracker;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+/**
+ * The ProfitTrackerProfitGraphImage class draws the profit graph into an image, kept until the graph or size changes.
+ */
+public class ProfitTrackerProfitGraphImage {
+    /*
+    The graph changes at most once a tick, and mostly once a minute or less, but the overlay renders every frame.
+    So the graph is drawn once into an image, and the overlay shows that image until a new graph is published.
+
+    Client thread only.
+     */
+
+    private static final Color RANGE_COLOR = new Color(255, 255, 255, 60);
+    private static final Color ZERO_COLOR = new Color(128, 128, 128, 160);
+    private static final Color PROFIT_COLOR = Color.GREEN;
+    private static final Color LOSS_COLOR = Color.RED;
+
+    private BufferedImage image;
+    private ProfitTrackerProfitGraph drawnGraph;
+
+    public BufferedImage getImage(ProfitTrackerProfitGraph graph, int width, int height)
+    {
+        /*
+        image of graph, the same image object as long as neither graph nor size changed
+         */
+        if (image != null && graph == drawnGraph && image.getWidth() == width && image.getHeight() == height)
+        {
+            return image;
+        }
+
+        // a new image rather than drawing over the one the overlay's image component still holds
+        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        drawnGraph = graph;
+
+        final int points = graph.getPointCount();
+
+        if (points == 0)
+        {
+            return image;
+        }
+
+        // always include 0, so profit and loss can be told apart
+        long low = 0;
+        long high = 0;
+
+        for (int i = 0; i < points; i++)
+        {
+            low = Math.min(low, graph.getMin(i));
+            high = Math.max(high, graph.getMax(i));
+        }
+
+        final double range = Math.max(1, high - low);
+        final int bottom = height - 1;
+
+        final int[] xs = new int[points];
+        final int[] ys = new int[points];
+
+        for (int i = 0; i < points; i++)
+        {
+            xs[i] = points > 1 ? (int) ((long) i * (width - 1) / (points - 1)) : width - 1;
+            ys[i] = bottom - (int) Math.round((graph.getLast(i) - low) / range * bottom);
+        }
+
+        final Graphics2D graphics = image.createGraphics();
+
+        try
+        {
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+            // zero line
+            final int zeroY = bottom - (int) Math.round(-low / range * bottom);
+            graphics.setColor(ZERO_COLOR);
+            graphics.drawLine(0, zeroY, width - 1, zeroY);
+
+            // how far profit went up and down within each point
+            graphics.setColor(RANGE_COLOR);
+
+            for (int i = 0; i < points; i++)
+            {
+                if (graph.getMin(i) != graph.getMax(i))
+                {
+                    graphics.drawLine(xs[i],
+                            bottom - (int) Math.round((graph.getMax(i) - low) / range * bottom),
+                            xs[i],
+                            bottom - (int) Math.round((graph.getMin(i) - low) / range * bottom));
+                }
+            }
+
+            // profit at the end of each point, colored by where the session is now
+            graphics.setColor(graph.getLast(points - 1) >= 0 ? PROFIT_COLOR : LOSS_COLOR);
+
+            if (points > 1)
+            {
+                graphics.drawPolyline(xs, ys, points);
+            }
+            else
+            {
+                graphics.drawLine(0, ys[0], width - 1, ys[0]);
+            }
+        }
+        finally
+        {
+            graphics.dispose();
+        }
+
+        return image;
+    }
+}
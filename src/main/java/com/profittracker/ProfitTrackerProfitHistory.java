@@ -0,0 +1,208 @@
+package com.profittracker;
+
+/**
+ * The ProfitTrackerProfitHistory class keeps the session's cumulative profit over time,
+ * at a few resolutions, for the overlay's profit graph.
+ */
+public class ProfitTrackerProfitHistory {
+    /*
+    Each level splits the session into fixed length buckets, counted from the session start,
+    and keeps the min, max and last profit of each in primitive rings:
+
+        level      bucket      buckets   covers
+        tick       600 ms      1000      10 minutes
+        minute     1 minute    720       12 hours
+        10 minute  10 minutes  1008      7 days
+
+    Every profit goes to the open bucket of every level. When time moves past a bucket it is closed,
+    and the next one opens at the last profit (profit only changes when recorded, in between it is flat).
+    About 65 KB, however long the session.
+
+    The graph shows the finest level that still covers the whole session (or the last 7 days),
+    squeezed into at most GRAPH_POINTS points. It is built again only when a bucket of that level closes.
+
+    Valuation thread only.
+     */
+
+    static final int GRAPH_POINTS = 120;
+
+    private static final long[] BUCKET_MILLIS = {600, 60 * 1000, 10 * 60 * 1000};
+    private static final int[] BUCKET_COUNTS = {1000, 720, 1008};
+
+    private static final int LEVELS = BUCKET_MILLIS.length;
+
+    // by level, then by bucket number % bucket count
+    private final long[][] mins = new long[LEVELS][];
+    private final long[][] maxs = new long[LEVELS][];
+    private final long[][] lasts = new long[LEVELS][];
+
+    // by level, bucket number (from the session start) of the open bucket
+    private final long[] openBuckets = new long[LEVELS];
+
+    private long startMillis;
+    private long lastProfit;
+
+    private ProfitTrackerProfitGraph graph = ProfitTrackerProfitGraph.EMPTY;
+    private boolean graphChanged;
+
+    public ProfitTrackerProfitHistory()
+    {
+        for (int level = 0; level < LEVELS; level++)
+        {
+            mins[level] = new long[BUCKET_COUNTS[level]];
+            maxs[level] = new long[BUCKET_COUNTS[level]];
+            lasts[level] = new long[BUCKET_COUNTS[level]];
+        }
+    }
+
+    public void reset(long startMillis, long initialProfit)
+    {
+        /*
+        new session, starting at initialProfit
+         */
+        this.startMillis = startMillis;
+        lastProfit = initialProfit;
+
+        for (int level = 0; level < LEVELS; level++)
+        {
+            openBuckets[level] = 0;
+            setBucket(level, 0, initialProfit);
+        }
+
+        graphChanged = true;
+    }
+
+    public void record(long timeMillis, long profit)
+    {
+        /*
+        session profit (cumulative) at timeMillis
+         */
+        advance(timeMillis);
+
+        for (int level = 0; level < LEVELS; level++)
+        {
+            final int index = (int) (openBuckets[level] % BUCKET_COUNTS[level]);
+
+            mins[level][index] = Math.min(mins[level][index], profit);
+            maxs[level][index] = Math.max(maxs[level][index], profit);
+            lasts[level][index] = profit;
+        }
+
+        lastProfit = profit;
+    }
+
+    public boolean advance(long timeMillis)
+    {
+        /*
+        close buckets timeMillis is past, true if the graph has to be built again
+         */
+        final long elapsedMillis = timeMillis - startMillis;
+
+        if (elapsedMillis < 0)
+        {
+            // clock went backwards, keep filling the open buckets
+            return false;
+        }
+
+        final int shownLevel = shownLevel();
+
+        for (int level = 0; level < LEVELS; level++)
+        {
+            final long bucket = elapsedMillis / BUCKET_MILLIS[level];
+
+            if (bucket <= openBuckets[level])
+            {
+                continue;
+            }
+
+            // a long gap only needs the ring filled once
+            for (long next = Math.max(openBuckets[level] + 1, bucket - BUCKET_COUNTS[level] + 1); next <= bucket; next++)
+            {
+                setBucket(level, next, lastProfit);
+            }
+
+            openBuckets[level] = bucket;
+
+            if (level == shownLevel)
+            {
+                graphChanged = true;
+            }
+        }
+
+        return graphChanged;
+    }
+
+    private void setBucket(int level, long bucket, long profit)
+    {
+        final int index = (int) (bucket % BUCKET_COUNTS[level]);
+
+        mins[level][index] = profit;
+        maxs[level][index] = profit;
+        lasts[level][index] = profit;
+    }
+
+    private int shownLevel()
+    {
+        for (int level = 0; level < LEVELS - 1; level++)
+        {
+            if (openBuckets[level] < BUCKET_COUNTS[level])
+            {
+                return level;
+            }
+        }
+
+        return LEVELS - 1;
+    }
+
+    public ProfitTrackerProfitGraph getGraph()
+    {
+        /*
+        graph of the session so far, a new object only after a shown bucket closed
+         */
+        if (!graphChanged)
+        {
+            return graph;
+        }
+
+        final int level = shownLevel();
+        final int bucketCount = BUCKET_COUNTS[level];
+
+        // buckets in the ring, oldest first, the open one last
+        final long lastBucket = openBuckets[level];
+        final long firstBucket = Math.max(0, lastBucket - bucketCount + 1);
+        final int buckets = (int) (lastBucket - firstBucket + 1);
+
+        final int points = Math.min(buckets, GRAPH_POINTS);
+
+        final long[] pointMins = new long[points];
+        final long[] pointMaxs = new long[points];
+        final long[] pointLasts = new long[points];
+
+        int point = -1;
+
+        for (int i = 0; i < buckets; i++)
+        {
+            final int index = (int) ((firstBucket + i) % bucketCount);
+            final int bucketPoint = (int) ((long) i * points / buckets);
+
+            if (bucketPoint != point)
+            {
+                point = bucketPoint;
+                pointMins[point] = mins[level][index];
+                pointMaxs[point] = maxs[level][index];
+            }
+            else
+            {
+                pointMins[point] = Math.min(pointMins[point], mins[level][index]);
+                pointMaxs[point] = Math.max(pointMaxs[point], maxs[level][index]);
+            }
+
+            pointLasts[point] = lasts[level][index];
+        }
+
+        graph = new ProfitTrackerProfitGraph(pointMins, pointMaxs, pointLasts);
+        graphChanged = false;
+
+        return graph;
+    }
+}
@@ -0,0 +1,182 @@
+package com.profittracker;
+
+import java.util.Arrays;
+
+/**
+ * The ProfitTrackerRateEngine class keeps the profit of the last hour per second,
+ * to calculate recent profit rates without going over the whole session.
+ */
+public class ProfitTrackerRateEngine {
+    /*
+    Profit is added to one bucket per second, in a ring of HISTORY_SECONDS buckets.
+    Each rolling window (ProfitTrackerRateWindow with seconds) keeps a running sum:
+      - profit added goes to the current bucket and to every sum
+      - when time moves on a second, every sum loses the bucket that just left its window,
+        then the bucket of the new second is emptied for reuse
+    So adding is O(windows) and moving on is O(windows) per second passed, at most HISTORY_SECONDS of them,
+    and memory is the same after 10 minutes or 10 hours.
+
+    The moving average is over completed seconds:
+        average = decay * average + (1 - decay) * second's profit
+    It starts at 0, so it is divided by the weight of the seconds seen so far (bias correction),
+    otherwise the first minutes read far too low. A run of empty seconds is folded in at once with decay^n.
+
+    Valuation thread only.
+     */
+
+    private static final int HISTORY_SECONDS = 60 * 60;
+
+    // profit from more than this long ago weighs less than 1/e in the moving average
+    private static final double AVERAGE_SECONDS = 5 * 60;
+
+    private static final double DECAY = Math.exp(-1 / AVERAGE_SECONDS);
+
+    private static final ProfitTrackerRateWindow[] WINDOWS = ProfitTrackerRateWindow.values();
+
+    private final long[] buckets = new long[HISTORY_SECONDS];
+
+    // by ProfitTrackerRateWindow ordinal, 0 for windows that are not rolling
+    private final long[] windowSums = new long[WINDOWS.length];
+
+    private long startSecond;
+    private long currentSecond;
+
+    private double average;
+    private double averageWeight;
+
+    // last calculated, handed out again while unchanged
+    private final long[] hourlyRates = new long[WINDOWS.length];
+    private ProfitTrackerRates rates = ProfitTrackerRates.EMPTY;
+
+    public ProfitTrackerRateEngine()
+    {
+        reset(0);
+    }
+
+    public void reset(long startMillis)
+    {
+        /*
+        new session, nothing was earned before startMillis
+         */
+        Arrays.fill(buckets, 0);
+        Arrays.fill(windowSums, 0);
+
+        startSecond = startMillis / 1000;
+        currentSecond = startSecond;
+
+        average = 0;
+        averageWeight = 0;
+    }
+
+    public void add(long timeMillis, long profit)
+    {
+        advance(timeMillis);
+
+        buckets[bucketIndex(currentSecond)] += profit;
+
+        for (ProfitTrackerRateWindow window : WINDOWS)
+        {
+            if (window.getSeconds() > 0)
+            {
+                windowSums[window.ordinal()] += profit;
+            }
+        }
+    }
+
+    public boolean advance(long timeMillis)
+    {
+        /*
+        move on to the second of timeMillis, true if that is a new second.
+        time going backwards (clock adjusted) is ignored, profit goes to the current second
+         */
+        final long second = timeMillis / 1000;
+
+        if (second <= currentSecond)
+        {
+            return false;
+        }
+
+        // the current second is complete
+        foldIntoAverage(buckets[bucketIndex(currentSecond)], 1);
+
+        if (second - currentSecond > 1)
+        {
+            foldIntoAverage(0, second - currentSecond - 1);
+        }
+
+        if (second - currentSecond >= HISTORY_SECONDS)
+        {
+            // everything left every window
+            Arrays.fill(buckets, 0);
+            Arrays.fill(windowSums, 0);
+            currentSecond = second;
+            return true;
+        }
+
+        while (currentSecond < second)
+        {
+            currentSecond++;
+
+            for (ProfitTrackerRateWindow window : WINDOWS)
+            {
+                if (window.getSeconds() > 0)
+                {
+                    // windows are at most HISTORY_SECONDS, the bucket is still there
+                    windowSums[window.ordinal()] -= buckets[bucketIndex(currentSecond - window.getSeconds())];
+                }
+            }
+
+            buckets[bucketIndex(currentSecond)] = 0;
+        }
+
+        return true;
+    }
+
+    private static int bucketIndex(long second)
+    {
+        return (int) Math.floorMod(second, (long) HISTORY_SECONDS);
+    }
+
+    private void foldIntoAverage(long secondProfit, long seconds)
+    {
+        if (currentSecond < startSecond)
+        {
+            return;
+        }
+
+        final double decay = seconds == 1 ? DECAY : Math.pow(DECAY, seconds);
+
+        // secondProfit is only ever non zero for a single second
+        average = average * decay + (1 - decay) * secondProfit;
+        averageWeight = averageWeight * decay + (1 - decay);
+    }
+
+    public ProfitTrackerRates getRates()
+    {
+        /*
+        rates as of the current second, a new object only when a rate changed
+         */
+        final long elapsedSeconds = Math.max(1, currentSecond - startSecond + 1);
+
+        for (ProfitTrackerRateWindow window : WINDOWS)
+        {
+            if (window.getSeconds() > 0)
+            {
+                // early in a session a window is only as long as the session
+                final long windowSeconds = Math.min(window.getSeconds(), elapsedSeconds);
+
+                hourlyRates[window.ordinal()] = windowSums[window.ordinal()] * 3600 / windowSeconds;
+            }
+        }
+
+        hourlyRates[ProfitTrackerRateWindow.MOVING_AVERAGE.ordinal()] =
+                averageWeight > 0 ? (long) (average / averageWeight * 3600) : 0;
+
+        if (!rates.hasRates(hourlyRates))
+        {
+            rates = new ProfitTrackerRates(hourlyRates.clone());
+        }
+
+        return rates;
+    }
+}
@@ -0,0 +1,47 @@
+package com.profittracker;
+
+/**
+ * The ProfitTrackerRateWindow enum selects over what time the overlay's profit rate is calculated.
+ */
+public enum ProfitTrackerRateWindow
+{
+    // whole session, profit / elapsed time
+    SESSION("Session", "", 0),
+
+    // rolling windows, see ProfitTrackerRateEngine
+    LAST_MINUTE("Last minute", "1m", 60),
+    LAST_5_MINUTES("Last 5 minutes", "5m", 5 * 60),
+    LAST_15_MINUTES("Last 15 minutes", "15m", 15 * 60),
+    LAST_HOUR("Last hour", "1h", 60 * 60),
+
+    // exponential moving average, recent profit counts the most
+    MOVING_AVERAGE("Moving average", "avg", 0);
+
+    private final String name;
+    private final String shortName;
+    private final int seconds;
+
+    ProfitTrackerRateWindow(String name, String shortName, int seconds)
+    {
+        this.name = name;
+        this.shortName = shortName;
+        this.seconds = seconds;
+    }
+
+    public String getShortName()
+    {
+        return shortName;
+    }
+
+    public int getSeconds()
+    {
+        // 0 when not a rolling window
+        return seconds;
+    }
+
+    @Override
+    public String toString()
+    {
+        return name;
+    }
+}
@@ -0,0 +1,35 @@
+package com.profittracker;
+
+/**
+ * The ProfitTrackerRates class holds recent profit rates, in GP per hour, for display.
+ */
+public class ProfitTrackerRates {
+    static final ProfitTrackerRates EMPTY = new ProfitTrackerRates(
+            new long[ProfitTrackerRateWindow.values().length]);
+
+    // by ProfitTrackerRateWindow ordinal, SESSION is not calculated here and always 0
+    private final long[] hourlyRates;
+
+    ProfitTrackerRates(long[] hourlyRates)
+    {
+        this.hourlyRates = hourlyRates;
+    }
+
+    public long getHourlyRate(ProfitTrackerRateWindow window)
+    {
+        return hourlyRates[window.ordinal()];
+    }
+
+    boolean hasRates(long[] otherHourlyRates)
+    {
+        for (int i = 0; i < hourlyRates.length; i++)
+        {
+            if (hourlyRates[i] != otherHourlyRates[i])
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,67 @@
+package com.profittracker;
+
+/**
+ * The ProfitTrackerRestoredSession class holds a profit session read back from the session journal.
+ */
+public class ProfitTrackerRestoredSession {
+    private final long startMillis;
+    private final long totalProfit;
+    private final long lastRecordMillis;
+
+    // time the session timer was paused, up to lastRecordMillis
+    private final long pausedMillis;
+
+    private final int profitRecords;
+
+    // inventory + equipment contents at the last record, NO_SNAPSHOT_HASH if no tick was journaled
+    private final long snapshotHash;
+
+    ProfitTrackerRestoredSession(long startMillis, long totalProfit, long lastRecordMillis,
+                                 long pausedMillis, int profitRecords, long snapshotHash)
+    {
+        this.startMillis = startMillis;
+        this.totalProfit = totalProfit;
+        this.lastRecordMillis = lastRecordMillis;
+        this.pausedMillis = pausedMillis;
+        this.profitRecords = profitRecords;
+        this.snapshotHash = snapshotHash;
+    }
+
+    public long getStartMillis()
+    {
+        return startMillis;
+    }
+
+    public long getTotalProfit()
+    {
+        return totalProfit;
+    }
+
+    public long getLastRecordMillis()
+    {
+        return lastRecordMillis;
+    }
+
+    public long getPausedMillis()
+    {
+        return pausedMillis;
+    }
+
+    public long getPausedMillis(long resumeMillis)
+    {
+        /*
+        paused time when resumed at resumeMillis: the client was closed since the last record
+         */
+        return pausedMillis + Math.max(0, resumeMillis - lastRecordMillis);
+    }
+
+    public int getProfitRecords()
+    {
+        return profitRecords;
+    }
+
+    public long getSnapshotHash()
+    {
+        return snapshotHash;
+    }
+}
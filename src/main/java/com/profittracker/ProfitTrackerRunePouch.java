@@ -0,0 +1,101 @@
+package com.profittracker;
+
+import net.runelite.api.Client;
+import net.runelite.api.ItemID;
+import net.runelite.api.Varbits;
+
+/**
+ * The ProfitTrackerRunePouch class reads the rune pouch contents, which are kept in varbits instead of an item container.
+ */
+public class ProfitTrackerRunePouch {
+    /*
+    Rune pouch slots are a rune type varbit and an amount varbit each.
+    Rune type is an index into the table below, same as RunepouchPlugin's.
+
+    Client thread only.
+     */
+
+    static final int SLOTS = 3;
+
+    // rune type varbit value -> rune item id, 0 is an empty slot
+    private static final int[] RUNE_ITEM_IDS = {
+            ProfitTrackerInventoryValue.EMPTY_SLOT_ITEMID,
+            ItemID.AIR_RUNE,
+            ItemID.WATER_RUNE,
+            ItemID.EARTH_RUNE,
+            ItemID.FIRE_RUNE,
+            ItemID.MIND_RUNE,
+            ItemID.CHAOS_RUNE,
+            ItemID.DEATH_RUNE,
+            ItemID.BLOOD_RUNE,
+            ItemID.COSMIC_RUNE,
+            ItemID.NATURE_RUNE,
+            ItemID.LAW_RUNE,
+            ItemID.BODY_RUNE,
+            ItemID.SOUL_RUNE,
+            ItemID.ASTRAL_RUNE,
+            ItemID.MIST_RUNE,
+            ItemID.MUD_RUNE,
+            ItemID.DUST_RUNE,
+            ItemID.LAVA_RUNE,
+            ItemID.STEAM_RUNE,
+            ItemID.SMOKE_RUNE,
+            ItemID.WRATH_RUNE,
+    };
+
+    private static final Varbits[] RUNE_VARBITS = {
+            Varbits.RUNE_POUCH_RUNE1, Varbits.RUNE_POUCH_RUNE2, Varbits.RUNE_POUCH_RUNE3
+    };
+
+    private static final Varbits[] AMOUNT_VARBITS = {
+            Varbits.RUNE_POUCH_AMOUNT1, Varbits.RUNE_POUCH_AMOUNT2, Varbits.RUNE_POUCH_AMOUNT3
+    };
+
+    private final int[] itemIds = new int[SLOTS];
+    private final int[] quantities = new int[SLOTS];
+
+    ProfitTrackerRunePouch()
+    {
+        for (int slot = 0; slot < SLOTS; slot++)
+        {
+            itemIds[slot] = ProfitTrackerInventoryValue.EMPTY_SLOT_ITEMID;
+        }
+    }
+
+    public boolean update(Client client)
+    {
+        /*
+        read the varbits again, returns true if the contents changed since the last update.
+        Called for every varbit change, so only 6 varbit reads and no allocation
+         */
+        boolean changed = false;
+
+        for (int slot = 0; slot < SLOTS; slot++)
+        {
+            final int runeType = client.getVar(RUNE_VARBITS[slot]);
+            final int itemId = runeType > 0 && runeType < RUNE_ITEM_IDS.length
+                    ? RUNE_ITEM_IDS[runeType] : ProfitTrackerInventoryValue.EMPTY_SLOT_ITEMID;
+            final int quantity = itemId == ProfitTrackerInventoryValue.EMPTY_SLOT_ITEMID
+                    ? 0 : client.getVar(AMOUNT_VARBITS[slot]);
+
+            if (itemIds[slot] != itemId || quantities[slot] != quantity)
+            {
+                itemIds[slot] = itemId;
+                quantities[slot] = quantity;
+                changed = true;
+            }
+        }
+
+        return changed;
+    }
+
+    public int getItemId(int slot)
+    {
+        return itemIds[slot];
+    }
+
+    public int getQuantity(int slot)
+    {
+        return quantities[slot];
+    }
+}
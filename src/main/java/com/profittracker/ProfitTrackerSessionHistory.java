@@ -0,0 +1,472 @@
+package com.profittracker;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The ProfitTrackerSessionHistory class keeps finished sessions on disk, with an index to list and sum them
+ * without reading their items.
+ */
+@Slf4j
+public class ProfitTrackerSessionHistory {
+    /*
+    Two append only files:
+
+        sessions.idx   one fixed width entry per session, in the order they finished, which is also start order:
+                           long startMillis, long endMillis, long activeMillis, long profit,
+                           int regionId, int itemCount, long itemsOffset
+        sessions.dat   each session's items, itemCount * (int itemId, long quantity, long value) at itemsOffset
+
+    Listing and totals only read the index, a chunk of INDEX_CHUNK_ENTRIES at a time, so hundreds of sessions
+    cost a few KB to go through and nothing stays in memory. Sessions within a date range are found
+    with a binary search on start time, area is a filter while going through them.
+    Items of a session are read only when asked for.
+
+    A session's items are written before its index entry, an entry only half written (crash) is ignored,
+    so the index never points at items that aren't there.
+
+    Everything runs on the history thread: archive hands the session to it, queries must be run on it (execute).
+     */
+
+    static final int NO_REGION = -1;
+
+    static final int INDEX_ENTRY_SIZE = 8 + 8 + 8 + 8 + 4 + 4 + 8;
+    static final int ITEM_SIZE = 4 + 8 + 8;
+
+    // fields of an index entry read without reading the whole entry
+    private static final int ACTIVE_OFFSET = 16;
+    private static final int PROFIT_OFFSET = 24;
+    private static final int REGION_OFFSET = 32;
+
+    private static final int INDEX_CHUNK_ENTRIES = 128;
+
+    private final File indexFile;
+    private final File dataFile;
+    private final ExecutorService executor;
+
+    // called on the history thread after a session was archived
+    private volatile Runnable archivedListener;
+
+    /*
+    History thread only
+     */
+    private FileChannel indexChannel;
+    private FileChannel dataChannel;
+    private final ByteBuffer indexChunk = ByteBuffer.allocate(INDEX_CHUNK_ENTRIES * INDEX_ENTRY_SIZE);
+
+    public ProfitTrackerSessionHistory(File directory)
+    {
+        indexFile = new File(directory, "sessions.idx");
+        dataFile = new File(directory, "sessions.dat");
+
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "profit-tracker-history");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void setArchivedListener(Runnable archivedListener)
+    {
+        this.archivedListener = archivedListener;
+    }
+
+    public void execute(Runnable query)
+    {
+        /*
+        run a query on the history thread
+         */
+        executor.execute(() -> {
+            try
+            {
+                query.run();
+            }
+            catch (RuntimeException e)
+            {
+                log.warn("Session history query failed", e);
+            }
+        });
+    }
+
+    public void archive(long startMillis, long endMillis, long activeMillis, long profit, int regionId,
+                        int[] itemIds, long[] quantities, long[] values, int itemCount)
+    {
+        /*
+        any thread: copy a finished session and write it on the history thread
+         */
+        final ByteBuffer items = ByteBuffer.allocate(itemCount * ITEM_SIZE);
+
+        for (int i = 0; i < itemCount; i++)
+        {
+            items.putInt(itemIds[i]).putLong(quantities[i]).putLong(values[i]);
+        }
+
+        items.flip();
+
+        executor.execute(() -> write(startMillis, endMillis, activeMillis, profit, regionId, itemCount, items));
+    }
+
+    private void write(long startMillis, long endMillis, long activeMillis, long profit, int regionId,
+                       int itemCount, ByteBuffer items)
+    {
+        try
+        {
+            open();
+
+            final long itemsOffset = dataChannel.size();
+
+            while (items.hasRemaining())
+            {
+                dataChannel.write(items, itemsOffset + items.position());
+            }
+
+            dataChannel.force(false);
+
+            final ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+
+            entry.putLong(startMillis).putLong(endMillis).putLong(activeMillis).putLong(profit)
+                    .putInt(regionId).putInt(itemCount).putLong(itemsOffset);
+            entry.flip();
+
+            final long entryOffset = (long) getSessionCount() * INDEX_ENTRY_SIZE;
+
+            while (entry.hasRemaining())
+            {
+                indexChannel.write(entry, entryOffset + entry.position());
+            }
+
+            indexChannel.force(false);
+        }
+        catch (IOException e)
+        {
+            log.warn("Unable to write session history {}", indexFile.getParentFile(), e);
+            return;
+        }
+
+        final Runnable listener = archivedListener;
+
+        if (listener != null)
+        {
+            listener.run();
+        }
+    }
+
+    private void open() throws IOException
+    {
+        if (indexChannel != null)
+        {
+            return;
+        }
+
+        final File directory = indexFile.getParentFile();
+
+        if (directory != null && !directory.exists() && !directory.mkdirs())
+        {
+            throw new IOException("unable to create " + directory);
+        }
+
+        dataChannel = FileChannel.open(dataFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        indexChannel = FileChannel.open(indexFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /*
+    Queries, history thread only
+     */
+
+    public int getSessionCount()
+    {
+        try
+        {
+            open();
+
+            // a half written last entry doesn't count
+            return (int) (indexChannel.size() / INDEX_ENTRY_SIZE);
+        }
+        catch (IOException e)
+        {
+            log.warn("Unable to read session history {}", indexFile, e);
+            return 0;
+        }
+    }
+
+    public List<ProfitTrackerSessionSummary> listSessions(long fromMillis, long toMillis, int regionId,
+                                                          int skip, int limit)
+    {
+        /*
+        sessions started in [fromMillis, toMillis), in regionId unless NO_REGION, newest first.
+        skip and limit page through them
+         */
+        final List<ProfitTrackerSessionSummary> sessions = new ArrayList<>(Math.min(limit, INDEX_CHUNK_ENTRIES));
+
+        int skipped = 0;
+        int index = firstStartedAtOrAfter(toMillis) - 1;
+
+        while (index >= 0 && sessions.size() < limit)
+        {
+            // the chunk ending at index
+            final int chunkStart = Math.max(0, index - INDEX_CHUNK_ENTRIES + 1);
+
+            if (!readIndexChunk(chunkStart, index - chunkStart + 1))
+            {
+                break;
+            }
+
+            for (; index >= chunkStart && sessions.size() < limit; index--)
+            {
+                final int position = (index - chunkStart) * INDEX_ENTRY_SIZE;
+
+                if (indexChunk.getLong(position) < fromMillis)
+                {
+                    return sessions;
+                }
+
+                if (regionId != NO_REGION && indexChunk.getInt(position + REGION_OFFSET) != regionId)
+                {
+                    continue;
+                }
+
+                if (skipped < skip)
+                {
+                    skipped++;
+                    continue;
+                }
+
+                sessions.add(readEntry(index, position));
+            }
+        }
+
+        return sessions;
+    }
+
+    public ProfitTrackerSessionTotals sumSessions(long fromMillis, long toMillis, int regionId)
+    {
+        /*
+        totals of sessions started in [fromMillis, toMillis), in regionId unless NO_REGION
+         */
+        final int end = firstStartedAtOrAfter(toMillis);
+
+        int sessionCount = 0;
+        long profit = 0;
+        long activeMillis = 0;
+
+        for (int chunkStart = firstStartedAtOrAfter(fromMillis); chunkStart < end; chunkStart += INDEX_CHUNK_ENTRIES)
+        {
+            final int entries = Math.min(INDEX_CHUNK_ENTRIES, end - chunkStart);
+
+            if (!readIndexChunk(chunkStart, entries))
+            {
+                break;
+            }
+
+            for (int i = 0; i < entries; i++)
+            {
+                final int position = i * INDEX_ENTRY_SIZE;
+
+                if (regionId == NO_REGION || indexChunk.getInt(position + REGION_OFFSET) == regionId)
+                {
+                    sessionCount++;
+                    activeMillis += indexChunk.getLong(position + ACTIVE_OFFSET);
+                    profit += indexChunk.getLong(position + PROFIT_OFFSET);
+                }
+            }
+        }
+
+        return new ProfitTrackerSessionTotals(sessionCount, profit, activeMillis);
+    }
+
+    public int[] listRegions()
+    {
+        /*
+        distinct areas sessions were in, ascending
+         */
+        int[] regions = new int[16];
+        int regionCount = 0;
+
+        final int sessionCount = getSessionCount();
+
+        for (int chunkStart = 0; chunkStart < sessionCount; chunkStart += INDEX_CHUNK_ENTRIES)
+        {
+            final int entries = Math.min(INDEX_CHUNK_ENTRIES, sessionCount - chunkStart);
+
+            if (!readIndexChunk(chunkStart, entries))
+            {
+                break;
+            }
+
+            for (int i = 0; i < entries; i++)
+            {
+                final int regionId = indexChunk.getInt(i * INDEX_ENTRY_SIZE + REGION_OFFSET);
+
+                if (regionId == NO_REGION || Arrays.binarySearch(regions, 0, regionCount, regionId) >= 0)
+                {
+                    continue;
+                }
+
+                if (regionCount == regions.length)
+                {
+                    regions = Arrays.copyOf(regions, regionCount * 2);
+                }
+
+                // kept sorted for the search above, there are only a few areas
+                int insert = -Arrays.binarySearch(regions, 0, regionCount, regionId) - 1;
+                System.arraycopy(regions, insert, regions, insert + 1, regionCount - insert);
+                regions[insert] = regionId;
+                regionCount++;
+            }
+        }
+
+        return Arrays.copyOf(regions, regionCount);
+    }
+
+    public int readItems(ProfitTrackerSessionSummary session, int[] outItemIds, long[] outQuantities, long[] outValues)
+    {
+        /*
+        the session's items, the arrays must hold getItemCount() entries. Returns how many were read
+         */
+        final ByteBuffer items = ByteBuffer.allocate(session.getItemCount() * ITEM_SIZE);
+
+        try
+        {
+            open();
+
+            while (items.hasRemaining())
+            {
+                if (dataChannel.read(items, session.getItemsOffset() + items.position()) < 0)
+                {
+                    break;
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            log.warn("Unable to read session history {}", dataFile, e);
+            return 0;
+        }
+
+        items.flip();
+
+        final int count = items.remaining() / ITEM_SIZE;
+
+        for (int i = 0; i < count; i++)
+        {
+            outItemIds[i] = items.getInt();
+            outQuantities[i] = items.getLong();
+            outValues[i] = items.getLong();
+        }
+
+        return count;
+    }
+
+    private int firstStartedAtOrAfter(long millis)
+    {
+        /*
+        index of the first session started at or after millis, binary search over the index file
+         */
+        int low = 0;
+        int high = getSessionCount();
+
+        final ByteBuffer startMillis = ByteBuffer.allocate(8);
+
+        while (low < high)
+        {
+            final int middle = (low + high) >>> 1;
+
+            startMillis.clear();
+
+            try
+            {
+                indexChannel.read(startMillis, (long) middle * INDEX_ENTRY_SIZE);
+            }
+            catch (IOException e)
+            {
+                log.warn("Unable to read session history {}", indexFile, e);
+                return high;
+            }
+
+            if (startMillis.getLong(0) < millis)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    private boolean readIndexChunk(int firstEntry, int entries)
+    {
+        indexChunk.clear();
+        indexChunk.limit(entries * INDEX_ENTRY_SIZE);
+
+        try
+        {
+            while (indexChunk.hasRemaining())
+            {
+                if (indexChannel.read(indexChunk, (long) firstEntry * INDEX_ENTRY_SIZE + indexChunk.position()) < 0)
+                {
+                    return false;
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            log.warn("Unable to read session history {}", indexFile, e);
+            return false;
+        }
+
+        return true;
+    }
+
+    private ProfitTrackerSessionSummary readEntry(int index, int position)
+    {
+        return new ProfitTrackerSessionSummary(index,
+                indexChunk.getLong(position),
+                indexChunk.getLong(position + 8),
+                indexChunk.getLong(position + ACTIVE_OFFSET),
+                indexChunk.getLong(position + PROFIT_OFFSET),
+                indexChunk.getInt(position + REGION_OFFSET),
+                indexChunk.getInt(position + 36),
+                indexChunk.getLong(position + 40));
+    }
+
+    public void close()
+    {
+        /*
+        write what is left and stop the history thread
+         */
+        executor.execute(() -> {
+            try
+            {
+                if (indexChannel != null)
+                {
+                    indexChannel.close();
+                    dataChannel.close();
+                }
+            }
+            catch (IOException e)
+            {
+                log.warn("Unable to close session history {}", indexFile, e);
+            }
+
+            indexChannel = null;
+            dataChannel = null;
+        });
+
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,366 @@
+package com.profittracker;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ProfitTrackerSessionJournal class keeps the current profit session on disk,
+ * so it survives a client restart or a plugin toggle.
+ */
+@Slf4j
+public class ProfitTrackerSessionJournal {
+    /*
+    The journal is an append only file of fixed width records:
+
+        int  type          RECORD_SESSION_START, RECORD_PROFIT, RECORD_PAUSE or RECORD_SNAPSHOT
+        int  tick          client tick count when the record was made
+        long timeMillis    wall clock time, for a session start this is the session start time
+        long delta         profit of the tick, millis the session timer was paused for a pause, 0 otherwise
+        long snapshotHash  hash of inventory + equipment contents after the tick, 0 if not known or not a tick
+
+    A pause is recorded when it ends, so the time the timer stood still is still known after a restart.
+    A snapshot record is made when the contents changed without profit (banking), and when tracking stops.
+    The last hash tells a resumed session whether the contents changed while the plugin was off.
+
+    Records are appended to an in memory buffer by the valuation thread, which only takes a short lock.
+    Session starts come through the valuation pipeline too, so they are in order with the previous session's ticks.
+    A dedicated writer thread swaps the buffer out, writes it and fsyncs, in batches every FLUSH_INTERVAL_MILLIS.
+
+    Starting a new session truncates the file, so the journal only ever holds one session.
+    A record half written during a crash is ignored on replay.
+     */
+
+    static final int RECORD_SIZE = 4 + 4 + 8 + 8 + 8;
+
+    static final int RECORD_SESSION_START = 1;
+    static final int RECORD_PROFIT = 2;
+    static final int RECORD_PAUSE = 3;
+    static final int RECORD_SNAPSHOT = 4;
+
+    private static final long FLUSH_INTERVAL_MILLIS = 1000;
+
+    // longest close waits for the last write
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+    // records buffered between flushes before the buffer needs to grow
+    private static final int INITIAL_BUFFERED_RECORDS = 256;
+
+    private final File journalFile;
+    private final ScheduledExecutorService writerExecutor;
+
+    /*
+    Guarded by this
+     */
+    private ByteBuffer pendingBuffer;
+    private boolean truncatePending;
+
+    /*
+    Writer thread only
+     */
+    private ByteBuffer writingBuffer;
+    private FileChannel channel;
+
+    public ProfitTrackerSessionJournal(File journalFile)
+    {
+        this.journalFile = journalFile;
+
+        pendingBuffer = ByteBuffer.allocateDirect(INITIAL_BUFFERED_RECORDS * RECORD_SIZE);
+        writingBuffer = ByteBuffer.allocateDirect(INITIAL_BUFFERED_RECORDS * RECORD_SIZE);
+
+        writerExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "profit-tracker-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        writerExecutor.scheduleWithFixedDelay(this::flush,
+                FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public void recordSessionStart(int tick, long startMillis)
+    {
+        /*
+        a new session replaces whatever is in the journal
+         */
+        synchronized (this)
+        {
+            pendingBuffer.clear();
+            truncatePending = true;
+
+            appendRecord(RECORD_SESSION_START, tick, startMillis, 0, ProfitTrackerInventoryValue.NO_SNAPSHOT_HASH);
+        }
+    }
+
+    public void recordProfit(int tick, long timeMillis, long delta, long snapshotHash)
+    {
+        synchronized (this)
+        {
+            appendRecord(RECORD_PROFIT, tick, timeMillis, delta, snapshotHash);
+        }
+    }
+
+    public void recordSnapshot(int tick, long timeMillis, long snapshotHash)
+    {
+        /*
+        inventory + equipment contents changed without any profit, or tracking stops
+         */
+        synchronized (this)
+        {
+            appendRecord(RECORD_SNAPSHOT, tick, timeMillis, 0, snapshotHash);
+        }
+    }
+
+    public void recordPause(int tick, long timeMillis, long pausedMillis)
+    {
+        /*
+        the session timer stood still for pausedMillis, up to timeMillis
+         */
+        synchronized (this)
+        {
+            appendRecord(RECORD_PAUSE, tick, timeMillis, pausedMillis, ProfitTrackerInventoryValue.NO_SNAPSHOT_HASH);
+        }
+    }
+
+    private void appendRecord(int type, int tick, long timeMillis, long delta, long snapshotHash)
+    {
+        if (pendingBuffer.remaining() < RECORD_SIZE)
+        {
+            // writer fell behind, make room rather than block or lose records
+            ByteBuffer grown = ByteBuffer.allocateDirect(pendingBuffer.capacity() * 2);
+            pendingBuffer.flip();
+            grown.put(pendingBuffer);
+            pendingBuffer = grown;
+        }
+
+        pendingBuffer.putInt(type);
+        pendingBuffer.putInt(tick);
+        pendingBuffer.putLong(timeMillis);
+        pendingBuffer.putLong(delta);
+        pendingBuffer.putLong(snapshotHash);
+    }
+
+    private void flush()
+    {
+        /*
+        runs on the writer thread.
+        swap buffers under the lock, then write and fsync without holding it
+         */
+        final boolean truncate;
+
+        synchronized (this)
+        {
+            if (pendingBuffer.position() == 0 && !truncatePending)
+            {
+                return;
+            }
+
+            ByteBuffer swap = pendingBuffer;
+            pendingBuffer = writingBuffer;
+            writingBuffer = swap;
+
+            pendingBuffer.clear();
+
+            truncate = truncatePending;
+            truncatePending = false;
+        }
+
+        writingBuffer.flip();
+
+        try
+        {
+            if (channel == null)
+            {
+                File directory = journalFile.getParentFile();
+
+                if (directory != null && !directory.exists() && !directory.mkdirs())
+                {
+                    throw new IOException("unable to create " + directory);
+                }
+
+                channel = FileChannel.open(journalFile.toPath(),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+
+                // drop a record half written before a crash
+                channel.position(channel.size() - channel.size() % RECORD_SIZE);
+            }
+
+            if (truncate)
+            {
+                channel.truncate(0);
+                channel.position(0);
+            }
+
+            while (writingBuffer.hasRemaining())
+            {
+                channel.write(writingBuffer);
+            }
+
+            channel.force(false);
+        }
+        catch (IOException e)
+        {
+            log.warn("Unable to write profit session journal {}", journalFile, e);
+        }
+        finally
+        {
+            writingBuffer.clear();
+        }
+    }
+
+    public void close()
+    {
+        /*
+        write what is left and stop the writer thread
+         */
+        writerExecutor.execute(() -> {
+            flush();
+
+            if (channel != null)
+            {
+                try
+                {
+                    channel.close();
+                }
+                catch (IOException e)
+                {
+                    log.warn("Unable to close profit session journal {}", journalFile, e);
+                }
+
+                channel = null;
+            }
+        });
+
+        writerExecutor.shutdown();
+
+        // a new instance may open the same file right away, this one must be done with it
+        awaitWriter();
+    }
+
+    public ProfitTrackerRestoredSession replay()
+    {
+        /*
+        read back the session in the journal, null if there is none.
+
+        The whole file is read in one go into a direct buffer and scanned in place.
+        A memory mapping would avoid the copy, but a mapping stays open until garbage collected,
+        and on Windows that prevents truncating the journal when the next session starts.
+         */
+
+        if (!journalFile.exists())
+        {
+            return null;
+        }
+
+        try (FileChannel readChannel = FileChannel.open(journalFile.toPath(), StandardOpenOption.READ))
+        {
+            final long fileSize = readChannel.size();
+            final int completeSize = (int) (fileSize - fileSize % RECORD_SIZE);
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(completeSize);
+
+            while (buffer.hasRemaining() && readChannel.read(buffer) >= 0)
+            {
+                // read until full
+            }
+
+            buffer.flip();
+
+            return replayRecords(buffer);
+        }
+        catch (IOException e)
+        {
+            log.warn("Unable to read profit session journal {}", journalFile, e);
+            return null;
+        }
+    }
+
+    static ProfitTrackerRestoredSession replayRecords(ByteBuffer buffer)
+    {
+        boolean inSession = false;
+        long startMillis = 0;
+        long totalProfit = 0;
+        long lastRecordMillis = 0;
+        long pausedMillis = 0;
+        int profitRecords = 0;
+        long snapshotHash = ProfitTrackerInventoryValue.NO_SNAPSHOT_HASH;
+
+        while (buffer.remaining() >= RECORD_SIZE)
+        {
+            final int type = buffer.getInt();
+            final int tick = buffer.getInt();
+            final long timeMillis = buffer.getLong();
+            final long delta = buffer.getLong();
+            final long recordHash = buffer.getLong();
+
+            if (type == RECORD_SESSION_START)
+            {
+                inSession = true;
+                startMillis = timeMillis;
+                totalProfit = 0;
+                lastRecordMillis = timeMillis;
+                pausedMillis = 0;
+                profitRecords = 0;
+                snapshotHash = ProfitTrackerInventoryValue.NO_SNAPSHOT_HASH;
+            }
+            else if (type == RECORD_PROFIT && inSession)
+            {
+                totalProfit += delta;
+                lastRecordMillis = timeMillis;
+                profitRecords++;
+
+                // unknown when the contents weren't seen yet, the last hash known still holds
+                if (recordHash != ProfitTrackerInventoryValue.NO_SNAPSHOT_HASH)
+                {
+                    snapshotHash = recordHash;
+                }
+            }
+            else if (type == RECORD_SNAPSHOT && inSession)
+            {
+                lastRecordMillis = timeMillis;
+                snapshotHash = recordHash;
+            }
+            else if (type == RECORD_PAUSE && inSession)
+            {
+                pausedMillis += delta;
+                lastRecordMillis = timeMillis;
+            }
+            else
+            {
+                // garbage, probably a torn write. Trust nothing after it
+                log.warn("Unexpected profit session journal record type {} at tick {}", type, tick);
+                break;
+            }
+        }
+
+        if (!inSession)
+        {
+            return null;
+        }
+
+        return new ProfitTrackerRestoredSession(startMillis, totalProfit, lastRecordMillis, pausedMillis, profitRecords,
+                snapshotHash);
+    }
+
+    private void awaitWriter()
+    {
+        try
+        {
+            if (!writerExecutor.awaitTermination(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS))
+            {
+                log.warn("Timed out writing the end of the profit session journal {}", journalFile);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.profittracker;
+
+/**
+ * The ProfitTrackerSessionSummary class is a finished session as listed in the session history index.
+ */
+public class ProfitTrackerSessionSummary {
+    // position in the index, oldest session is 0
+    private final int index;
+
+    private final long startMillis;
+    private final long endMillis;
+    private final long activeMillis;
+    private final long profit;
+    private final int regionId;
+
+    // where its items are in the data file, read only when asked for
+    private final int itemCount;
+    private final long itemsOffset;
+
+    ProfitTrackerSessionSummary(int index, long startMillis, long endMillis, long activeMillis, long profit,
+                                int regionId, int itemCount, long itemsOffset)
+    {
+        this.index = index;
+        this.startMillis = startMillis;
+        this.endMillis = endMillis;
+        this.activeMillis = activeMillis;
+        this.profit = profit;
+        this.regionId = regionId;
+        this.itemCount = itemCount;
+        this.itemsOffset = itemsOffset;
+    }
+
+    public int getIndex()
+    {
+        return index;
+    }
+
+    public long getStartMillis()
+    {
+        return startMillis;
+    }
+
+    public long getEndMillis()
+    {
+        return endMillis;
+    }
+
+    public long getActiveMillis()
+    {
+        // duration without time paused while idle
+        return activeMillis;
+    }
+
+    public long getProfit()
+    {
+        return profit;
+    }
+
+    public int getRegionId()
+    {
+        // map region of the last item change, NO_REGION if unknown
+        return regionId;
+    }
+
+    public int getItemCount()
+    {
+        return itemCount;
+    }
+
+    long getItemsOffset()
+    {
+        return itemsOffset;
+    }
+}
@@ -0,0 +1,32 @@
+package com.profittracker;
+
+/**
+ * The ProfitTrackerSessionTotals class sums up a range of finished sessions from the session history.
+ */
+public class ProfitTrackerSessionTotals {
+    private final int sessionCount;
+    private final long profit;
+    private final long activeMillis;
+
+    ProfitTrackerSessionTotals(int sessionCount, long profit, long activeMillis)
+    {
+        this.sessionCount = sessionCount;
+        this.profit = profit;
+        this.activeMillis = activeMillis;
+    }
+
+    public int getSessionCount()
+    {
+        return sessionCount;
+    }
+
+    public long getProfit()
+    {
+        return profit;
+    }
+
+    public long getActiveMillis()
+    {
+        return activeMillis;
+    }
+}
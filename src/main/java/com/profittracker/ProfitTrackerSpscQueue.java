@@ -0,0 +1,92 @@
+package com.profittracker;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The ProfitTrackerSpscQueue class is a bounded lock free queue for exactly one producer thread and one consumer thread.
+ */
+public class ProfitTrackerSpscQueue<E> {
+    /*
+    Ring buffer indexed by ever increasing head (consumer) and tail (producer) counters.
+    Each side only writes its own counter, with an ordered (release) store that publishes the slot,
+    and caches the other side's counter so most calls don't read shared state.
+     */
+
+    private final Object[] buffer;
+    private final int mask;
+
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    // producer only
+    private long headCache;
+
+    // consumer only
+    private long tailCache;
+
+    public ProfitTrackerSpscQueue(int capacity)
+    {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1)
+        {
+            throw new IllegalArgumentException("capacity must be a power of 2: " + capacity);
+        }
+
+        buffer = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    public boolean offer(E element)
+    {
+        /*
+        producer thread only. returns false if the queue is full
+         */
+        final long currentTail = tail.get();
+
+        if (currentTail - headCache >= buffer.length)
+        {
+            headCache = head.get();
+
+            if (currentTail - headCache >= buffer.length)
+            {
+                return false;
+            }
+        }
+
+        buffer[(int) currentTail & mask] = element;
+        tail.lazySet(currentTail + 1);
+
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E poll()
+    {
+        /*
+        consumer thread only. returns null if the queue is empty
+         */
+        final long currentHead = head.get();
+
+        if (currentHead >= tailCache)
+        {
+            tailCache = tail.get();
+
+            if (currentHead >= tailCache)
+            {
+                return null;
+            }
+        }
+
+        final int index = (int) currentHead & mask;
+        final E element = (E) buffer[index];
+
+        buffer[index] = null;
+        head.lazySet(currentHead + 1);
+
+        return element;
+    }
+
+    public boolean isEmpty()
+    {
+        return head.get() >= tail.get();
+    }
+}
@@ -0,0 +1,371 @@
+package com.profittracker;
+
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.ItemID;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The ProfitTrackerSupplyClassifier class tells supplies used up from loot gained,
+ * among a tick's net item changes.
+ */
+@Slf4j
+public class ProfitTrackerSupplyClassifier {
+    /*
+    Supplies are known by name, from the ItemID constants, once when the classifier is built:
+      - potions and other dosed items, NAME1 to NAME4, one family per name (variant ids too)
+      - half eaten food, one family per whole item and its parts
+      - runes, ammo and a list of food, each item its own family
+
+    Drinking a dose is potion(4) lost and potion(3) gained in the same tick, so supplies are summed by family:
+    a family that lost anything this tick was used, its net value is supply cost. A family that only gained
+    is loot (picked up, bought). An empty vial is worth something, it counts against the cost
+    in ticks a potion was used.
+
+    Item id -> family is an open addressing map (linear probing) over primitive arrays, never changed after
+    it's built. Per tick sums are arrays by family, reset through the list of families used this tick.
+
+    Valuation thread only, after construction.
+     */
+
+    // no item has this id, marks a free table slot
+    private static final int FREE_KEY = Integer.MIN_VALUE;
+
+    // NAME4, NAME4_1234 (a variant id of the same item)
+    private static final Pattern DOSE_PATTERN = Pattern.compile("^(.*[A-Z])([1-4])(?:_\\d+)?$");
+
+    // variant id suffix
+    private static final Pattern VARIANT_PATTERN = Pattern.compile("_\\d+$");
+
+    // poisoned (P, _P, _PP), enchanted (_E) ammo is the same kind of ammo
+    private static final Pattern AMMO_MODIFIER_PATTERN = Pattern.compile("(?:_PP|_?P|_E)$");
+
+    private static final String[] AMMO_SUFFIXES = {
+            "_ARROW", "_ARROWS", "_BOLTS", "_DART", "_JAVELIN", "_KNIFE", "_THROWNAXE",
+    };
+
+    private static final String[] AMMO_NAMES = {
+            "CANNONBALL", "GRANITE_CANNONBALL", "CHINCHOMPA", "RED_CHINCHOMPA", "BLACK_CHINCHOMPA",
+    };
+
+    // ammo names that are something else
+    private static final String[] NOT_AMMO_NAMES = {
+            "HEADLESS_ARROW", "FLIGHTED_OGRE_ARROW",
+    };
+
+    private static final String[] FOOD_NAMES = {
+            "SHRIMPS", "TROUT", "SALMON", "TUNA", "LOBSTER", "BASS", "SWORDFISH", "MONKFISH", "COOKED_KARAMBWAN",
+            "SHARK", "SEA_TURTLE", "MANTA_RAY", "TUNA_POTATO", "DARK_CRAB", "ANGLERFISH",
+            "POTATO_WITH_CHEESE", "EGG_POTATO", "MUSHROOM_POTATO", "CHILLI_POTATO", "CURRY", "STEW",
+            "COOKED_CHOMPY", "PURPLE_SWEETS",
+    };
+
+    // whole food first, then what is left after a bite
+    private static final String[][] PARTIAL_FOOD_NAMES = {
+            {"CAKE", "_23_CAKE", "SLICE_OF_CAKE"},
+            {"CHOCOLATE_CAKE", "_23_CHOCOLATE_CAKE", "CHOCOLATE_SLICE"},
+            {"PLAIN_PIZZA", "_12_PLAIN_PIZZA"},
+            {"MEAT_PIZZA", "_12_MEAT_PIZZA"},
+            {"ANCHOVY_PIZZA", "_12_ANCHOVY_PIZZA"},
+            {"PINEAPPLE_PIZZA", "_12_PINEAPPLE_PIZZA"},
+            {"MEAT_PIE", "HALF_A_MEAT_PIE"},
+            {"REDBERRY_PIE", "HALF_A_REDBERRY_PIE"},
+            {"APPLE_PIE", "HALF_AN_APPLE_PIE"},
+            {"GARDEN_PIE", "HALF_A_GARDEN_PIE"},
+            {"FISH_PIE", "HALF_A_FISH_PIE"},
+            {"ADMIRAL_PIE", "HALF_AN_ADMIRAL_PIE"},
+            {"WILD_PIE", "HALF_A_WILD_PIE"},
+            {"SUMMER_PIE", "HALF_A_SUMMER_PIE"},
+            {"MUSHROOM_PIE", "HALF_A_MUSHROOM_PIE"},
+            {"BOTANICAL_PIE", "HALF_A_BOTANICAL_PIE"},
+            {"DRAGONFRUIT_PIE", "HALF_A_DRAGONFRUIT_PIE"},
+    };
+
+    /*
+    Built once
+     */
+    private final int[] keys;
+    private final int[] families;
+    private final int mask;
+
+    // by family
+    private final boolean[] potionFamilies;
+    private final int familyCount;
+
+    /*
+    This tick, by family
+     */
+    private final long[] familyValues;
+    private final boolean[] familyLosses;
+    private final boolean[] familyUsed;
+    private final int[] usedFamilies;
+    private int usedCount;
+
+    private long vialValue;
+    private boolean potionUsed;
+
+    public ProfitTrackerSupplyClassifier()
+    {
+        this(readItemIds());
+    }
+
+    ProfitTrackerSupplyClassifier(Map<String, Integer> itemIds)
+    {
+        /*
+        itemIds - ItemID constant name -> item id
+         */
+        final Map<Integer, Integer> itemFamilies = new HashMap<>();
+        final Map<String, Integer> familyIndexes = new HashMap<>();
+
+        /*
+        Dosed items, only names that have at least 2 doses, so a name merely ending in 1 to 4 isn't one
+         */
+        final Map<String, Integer> doseMasks = new HashMap<>();
+
+        for (String name : itemIds.keySet())
+        {
+            final Matcher matcher = DOSE_PATTERN.matcher(name);
+
+            if (matcher.matches())
+            {
+                doseMasks.merge(matcher.group(1), 1 << (matcher.group(2).charAt(0) - '0'), (a, b) -> a | b);
+            }
+        }
+
+        for (Map.Entry<String, Integer> entry : itemIds.entrySet())
+        {
+            final Matcher matcher = DOSE_PATTERN.matcher(entry.getKey());
+
+            if (matcher.matches() && Integer.bitCount(doseMasks.get(matcher.group(1))) >= 2)
+            {
+                itemFamilies.put(entry.getValue(), familyIndex(familyIndexes, matcher.group(1)));
+            }
+        }
+
+        final int potionFamilyCount = familyIndexes.size();
+
+        /*
+        Partly eaten food
+         */
+        for (String[] names : PARTIAL_FOOD_NAMES)
+        {
+            for (String name : names)
+            {
+                final Integer itemId = itemIds.get(name);
+
+                if (itemId != null)
+                {
+                    itemFamilies.putIfAbsent(itemId, familyIndex(familyIndexes, names[0]));
+                }
+            }
+        }
+
+        /*
+        Runes, ammo, food, one family each
+         */
+        for (Map.Entry<String, Integer> entry : itemIds.entrySet())
+        {
+            if (!itemFamilies.containsKey(entry.getValue()) && isSingleSupply(entry.getKey()))
+            {
+                itemFamilies.put(entry.getValue(), familyIndex(familyIndexes, entry.getKey()));
+            }
+        }
+
+        familyCount = familyIndexes.size();
+
+        potionFamilies = new boolean[familyCount];
+        Arrays.fill(potionFamilies, 0, potionFamilyCount, true);
+
+        familyValues = new long[familyCount];
+        familyLosses = new boolean[familyCount];
+        familyUsed = new boolean[familyCount];
+        usedFamilies = new int[familyCount];
+
+        // at most half full
+        final int capacity = Integer.highestOneBit(Math.max(16, itemFamilies.size() * 2)) << 1;
+
+        keys = new int[capacity];
+        families = new int[capacity];
+        mask = capacity - 1;
+
+        Arrays.fill(keys, FREE_KEY);
+
+        for (Map.Entry<Integer, Integer> entry : itemFamilies.entrySet())
+        {
+            final int slot = findSlot(entry.getKey());
+
+            keys[slot] = entry.getKey();
+            families[slot] = entry.getValue();
+        }
+
+        log.debug("Supply classifier: {} items in {} families", itemFamilies.size(), familyCount);
+    }
+
+    private static Map<String, Integer> readItemIds()
+    {
+        /*
+        every ItemID constant
+         */
+        final Map<String, Integer> itemIds = new HashMap<>();
+
+        for (Field field : ItemID.class.getFields())
+        {
+            if (field.getType() != int.class || !Modifier.isStatic(field.getModifiers()))
+            {
+                continue;
+            }
+
+            try
+            {
+                itemIds.put(field.getName(), field.getInt(null));
+            }
+            catch (IllegalAccessException e)
+            {
+                log.warn("Can't read item id {}", field.getName(), e);
+            }
+        }
+
+        return itemIds;
+    }
+
+    private static int familyIndex(Map<String, Integer> familyIndexes, String familyName)
+    {
+        return familyIndexes.computeIfAbsent(familyName, name -> familyIndexes.size());
+    }
+
+    private static boolean isSingleSupply(String name)
+    {
+        final String baseName = VARIANT_PATTERN.matcher(name).replaceFirst("");
+
+        if (baseName.endsWith("_RUNE") || Arrays.asList(FOOD_NAMES).contains(baseName))
+        {
+            return true;
+        }
+
+        if (baseName.contains("_UNF") || baseName.contains("_TIPS") || Arrays.asList(NOT_AMMO_NAMES).contains(baseName))
+        {
+            // unfinished ammo is made into ammo, not used up
+            return false;
+        }
+
+        final String ammoName = AMMO_MODIFIER_PATTERN.matcher(baseName).replaceFirst("");
+
+        if (Arrays.asList(AMMO_NAMES).contains(ammoName))
+        {
+            return true;
+        }
+
+        for (String suffix : AMMO_SUFFIXES)
+        {
+            if (ammoName.endsWith(suffix))
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static int hash(int key)
+    {
+        // item ids are sequential, spread them over the table
+        final int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int findSlot(int key)
+    {
+        int slot = hash(key) & mask;
+
+        while (keys[slot] != FREE_KEY && keys[slot] != key)
+        {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    public boolean isSupply(int itemId)
+    {
+        return itemId == ItemID.VIAL || keys[findSlot(itemId)] == itemId;
+    }
+
+    public void add(int itemId, long netQuantity, long netValue)
+    {
+        /*
+        an item's net change this tick, items that aren't supplies are ignored
+         */
+        if (itemId == ItemID.VIAL)
+        {
+            vialValue += netValue;
+            return;
+        }
+
+        final int slot = findSlot(itemId);
+
+        if (keys[slot] != itemId)
+        {
+            return;
+        }
+
+        final int family = families[slot];
+
+        if (!familyUsed[family])
+        {
+            familyUsed[family] = true;
+            usedFamilies[usedCount++] = family;
+        }
+
+        familyValues[family] += netValue;
+
+        if (netQuantity < 0)
+        {
+            familyLosses[family] = true;
+            potionUsed |= potionFamilies[family];
+        }
+    }
+
+    public long endTick()
+    {
+        /*
+        supply cost of the tick (positive when supplies were used), ready for the next tick
+         */
+        long supplyCost = 0;
+
+        for (int i = 0; i < usedCount; i++)
+        {
+            final int family = usedFamilies[i];
+
+            if (familyLosses[family])
+            {
+                supplyCost -= familyValues[family];
+            }
+
+            familyValues[family] = 0;
+            familyLosses[family] = false;
+            familyUsed[family] = false;
+        }
+
+        if (potionUsed)
+        {
+            supplyCost -= vialValue;
+        }
+
+        usedCount = 0;
+        vialValue = 0;
+        potionUsed = false;
+
+        return supplyCost;
+    }
+
+    public int getFamilyCount()
+    {
+        return familyCount;
+    }
+}
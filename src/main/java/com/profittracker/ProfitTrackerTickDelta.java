@@ -0,0 +1,72 @@
+package com.profittracker;
+
+import java.util.Arrays;
+
+/**
+ * The ProfitTrackerTickDelta class collects the item changes found while diffing containers during a single tick.
+ */
+public class ProfitTrackerTickDelta {
+    /*
+    Parallel primitive arrays, one entry per item change in a slot:
+    an item leaving a slot is a negative entry, an item entering a slot is a positive entry.
+    Arrays are kept between ticks and only grow, so a tick allocates nothing.
+     */
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    int[] itemIds = new int[INITIAL_CAPACITY];
+    long[] quantityDeltas = new long[INITIAL_CAPACITY];
+    long[] valueDeltas = new long[INITIAL_CAPACITY];
+    int[] containerIds = new int[INITIAL_CAPACITY];
+
+    int count;
+
+    public void add(int containerId, int itemId, long quantityDelta, long valueDelta)
+    {
+        if (count == itemIds.length)
+        {
+            final int newCapacity = count * 2;
+
+            itemIds = Arrays.copyOf(itemIds, newCapacity);
+            quantityDeltas = Arrays.copyOf(quantityDeltas, newCapacity);
+            valueDeltas = Arrays.copyOf(valueDeltas, newCapacity);
+            containerIds = Arrays.copyOf(containerIds, newCapacity);
+        }
+
+        itemIds[count] = itemId;
+        quantityDeltas[count] = quantityDelta;
+        valueDeltas[count] = valueDelta;
+        containerIds[count] = containerId;
+        count++;
+    }
+
+    public int size()
+    {
+        return count;
+    }
+
+    public int getItemId(int index)
+    {
+        return itemIds[index];
+    }
+
+    public long getQuantityDelta(int index)
+    {
+        return quantityDeltas[index];
+    }
+
+    public long getValueDelta(int index)
+    {
+        return valueDeltas[index];
+    }
+
+    public int getContainerId(int index)
+    {
+        return containerIds[index];
+    }
+
+    public void clear()
+    {
+        count = 0;
+    }
+}
@@ -0,0 +1,69 @@
+package com.profittracker;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The ProfitTrackerTrace class is the debug trace of the plugin, off unless enabled in the config.
+ */
+@Slf4j
+public final class ProfitTrackerTrace {
+    /*
+    Trace calls sit on hot paths (every slot, every click, every tick),
+    so when tracing is disabled they must cost nothing but a flag check:
+
+      - arguments are passed as primitives, boxing only happens after the check
+      - messages are slf4j patterns, formatted only when actually logged
+      - callers with more arguments than the overloads take check isEnabled() first
+
+    Trace is logged at INFO, so it shows up in the client log without changing log levels.
+     */
+
+    private static volatile boolean enabled;
+
+    private ProfitTrackerTrace()
+    {
+    }
+
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled)
+    {
+        ProfitTrackerTrace.enabled = enabled;
+    }
+
+    public static void trace(String message)
+    {
+        if (enabled)
+        {
+            log.info(message);
+        }
+    }
+
+    public static void trace(String format, long arg)
+    {
+        if (enabled)
+        {
+            log.info(format, arg);
+        }
+    }
+
+    public static void trace(String format, long arg1, long arg2)
+    {
+        if (enabled)
+        {
+            log.info(format, arg1, arg2);
+        }
+    }
+
+    public static void trace(String format, Object... args)
+    {
+        // varargs allocate, only call this behind isEnabled()
+        if (enabled)
+        {
+            log.info(format, args);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.profittracker;
+
+import java.util.Arrays;
+
+/**
+ * The ProfitTrackerTransferReconciler class turns a tick's item changes into profit,
+ * cancelling out items that only moved between containers.
+ */
+public class ProfitTrackerTransferReconciler {
+    /*
+    Per tick, items are summed by canonical item id into a small multiset, separately for what came in and what went out
+    (the item changes come canonicalized from the captures, a noted item is the item itself):
+      - quantity that both came in and went out (inventory -> bank, inventory -> equipment, ...) is a transfer, worth 0
+      - the rest is a real gain or loss, valued at the average price of its own side
+
+    Valuing the unmatched rest at its own price, instead of summing value deltas,
+    keeps transfers at 0 even when the two containers priced the item at different times.
+
+    With the deposit box open the bank isn't loaded, items deposited go out and nothing comes in.
+    Only items a deposit was clicked for count as moved, anything else that went out (food eaten,
+    runes cast) is still lost.
+
+    Net changes go to the ledger, to the supply classifier if there is one, and to the event export
+    if there is one, with the container the item came into (gain) or left (loss), the last one if several.
+
+    The multiset is an int -> 4 longs open addressing map (linear probing) over primitive arrays.
+    All entries are removed together at the end of the tick, by the list of used slots,
+    so no entry is ever removed alone and probing stays valid.
+
+    Valuation thread only.
+     */
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    // no item has this id, marks a free table slot
+    private static final int FREE_KEY = Integer.MIN_VALUE;
+
+    private int[] keys;
+    private long[] quantitiesIn;
+    private long[] valuesIn;
+    private long[] quantitiesOut;
+    private long[] valuesOut;
+    private int[] containersIn;
+    private int[] containersOut;
+    private boolean[] deposited;
+    private int mask;
+
+    // slots used this tick, in insertion order
+    private int[] usedSlots;
+    private int usedCount;
+
+    /*
+    Statistics
+     */
+    private long transferredQuantity;
+    private long unseenDepositQuantity;
+
+    // null unless exporting events
+    private ProfitTrackerEventExport eventExport;
+
+    // null unless tracking supply cost
+    private ProfitTrackerSupplyClassifier supplyClassifier;
+
+    public ProfitTrackerTransferReconciler()
+    {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    private void allocate(int capacity)
+    {
+        keys = new int[capacity];
+        quantitiesIn = new long[capacity];
+        valuesIn = new long[capacity];
+        quantitiesOut = new long[capacity];
+        valuesOut = new long[capacity];
+        containersIn = new int[capacity];
+        containersOut = new int[capacity];
+        deposited = new boolean[capacity];
+        usedSlots = new int[capacity];
+        mask = capacity - 1;
+
+        Arrays.fill(keys, FREE_KEY);
+    }
+
+    private static int hash(int key)
+    {
+        // item ids are sequential, spread them over the table
+        final int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int findSlot(int key)
+    {
+        int slot = hash(key) & mask;
+
+        while (keys[slot] != FREE_KEY && keys[slot] != key)
+        {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    public long reconcile(ProfitTrackerTickDelta tickDelta, int[] depositedItemIds, ProfitTrackerItemLedger ledger)
+    {
+        /*
+        profit of the tick, every item's net change is added to the ledger.
+        depositedItemIds - canonical ids of items deposited into a bank we can't see (deposit box), or null.
+                           Those that left and that nothing else received are transfers too
+         */
+
+        if (tickDelta.count * 2 > keys.length)
+        {
+            // every entry may be a different item, keep the table at most half full
+            allocate(Integer.highestOneBit(tickDelta.count * 2) << 1);
+        }
+
+        for (int i = 0; i < tickDelta.count; i++)
+        {
+            final long quantityDelta = tickDelta.quantityDeltas[i];
+
+            if (quantityDelta == 0)
+            {
+                continue;
+            }
+
+            final int itemId = tickDelta.itemIds[i];
+            final int slot = findSlot(itemId);
+
+            if (keys[slot] == FREE_KEY)
+            {
+                keys[slot] = itemId;
+                usedSlots[usedCount++] = slot;
+            }
+
+            if (quantityDelta > 0)
+            {
+                quantitiesIn[slot] += quantityDelta;
+                valuesIn[slot] += tickDelta.valueDeltas[i];
+                containersIn[slot] = tickDelta.containerIds[i];
+            }
+            else
+            {
+                quantitiesOut[slot] -= quantityDelta;
+                valuesOut[slot] -= tickDelta.valueDeltas[i];
+                containersOut[slot] = tickDelta.containerIds[i];
+            }
+        }
+
+        if (depositedItemIds != null)
+        {
+            for (int itemId : depositedItemIds)
+            {
+                final int slot = findSlot(itemId);
+
+                // a deposit of an item that didn't change this tick shows up in another tick, or not at all
+                deposited[slot] = keys[slot] == itemId;
+            }
+        }
+
+        long tickProfit = 0;
+
+        for (int i = 0; i < usedCount; i++)
+        {
+            final int slot = usedSlots[i];
+            final long quantityIn = quantitiesIn[slot];
+            final long quantityOut = quantitiesOut[slot];
+
+            transferredQuantity += Math.min(quantityIn, quantityOut);
+
+            final long netQuantity;
+            final long netValue;
+
+            if (quantityIn > quantityOut)
+            {
+                // gained, at the price it came in at
+                netQuantity = quantityIn - quantityOut;
+                netValue = valueOfPart(valuesIn[slot], quantityIn, netQuantity);
+            }
+            else if (quantityOut > quantityIn && !deposited[slot])
+            {
+                // lost, at the price it went out at
+                netQuantity = quantityIn - quantityOut;
+                netValue = -valueOfPart(valuesOut[slot], quantityOut, -netQuantity);
+            }
+            else
+            {
+                if (quantityOut > quantityIn)
+                {
+                    unseenDepositQuantity += quantityOut - quantityIn;
+                }
+
+                // moved, not gained or lost
+                netQuantity = 0;
+                netValue = 0;
+            }
+
+            if (netQuantity != 0)
+            {
+                ledger.add(keys[slot], netQuantity, netValue);
+                tickProfit += netValue;
+
+                if (supplyClassifier != null)
+                {
+                    supplyClassifier.add(keys[slot], netQuantity, netValue);
+                }
+
+                if (eventExport != null)
+                {
+                    eventExport.append(keys[slot], netQuantity > 0 ? containersIn[slot] : containersOut[slot],
+                            netQuantity, netValue);
+                }
+            }
+
+            keys[slot] = FREE_KEY;
+            quantitiesIn[slot] = 0;
+            valuesIn[slot] = 0;
+            quantitiesOut[slot] = 0;
+            valuesOut[slot] = 0;
+            deposited[slot] = false;
+        }
+
+        usedCount = 0;
+
+        return tickProfit;
+    }
+
+    private static long valueOfPart(long value, long quantity, long part)
+    {
+        /*
+        value * part / quantity, without overflowing on a big stack of an expensive item
+         */
+        return value / quantity * part + value % quantity * part / quantity;
+    }
+
+    public void setEventExport(ProfitTrackerEventExport eventExport)
+    {
+        this.eventExport = eventExport;
+    }
+
+    public void setSupplyClassifier(ProfitTrackerSupplyClassifier supplyClassifier)
+    {
+        this.supplyClassifier = supplyClassifier;
+    }
+
+    public long getTransferredQuantity()
+    {
+        return transferredQuantity;
+    }
+
+    public long getUnseenDepositQuantity()
+    {
+        return unseenDepositQuantity;
+    }
+}
@@ -0,0 +1,734 @@
+package com.profittracker;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * The ProfitTrackerValuationPipeline class values container changes and accumulates profit
+ * on its own thread, so the client thread only captures what changed.
+ */
+@Slf4j
+public class ProfitTrackerValuationPipeline {
+    /*
+    Flow:
+
+    client thread                                  valuation thread
+    -------------                                  ----------------
+    onItemContainerChanged -> capture  ---+
+    own drop spawned/gone  -> ground   ---+
+    onGameTick             -> tick     ---+--> SPSC queue --> diff captures against snapshots,
+    session (re)start      -> session  ---+                  on tick: reconcile transfers into profit, ledger, journal,
+    session finished       -> finish   ---+                  on finish: session and its ledger to the history,
+    price source changed   -> revalue  ---+                  on revalue: ask for the session's items to be priced again,
+                                                              then value snapshots and ledger at those prices,
+                                                              publish overlay state (volatile), export item events,
+                                                              gold drop callback
+                                                   idle   --> once a second: move rate windows on, publish new rates,
+                                                              close profit graph buckets, publish a new graph,
+                                                              pause the session timer after idlePauseMinutes without changes
+
+    Nothing is submitted on ticks where no tracked container changed, so an idle session costs the
+    valuation thread one check a second.
+
+    The client thread is the only producer, so everything submitted must be submitted from it.
+    Messages are handled in order, so a tick sums exactly the captures submitted before it.
+
+    Revaluing takes a round trip, only the client thread can price: a revalue request collects the item ids
+    of the ledger and snapshots, the price request callback prices them on the client thread into a
+    ProfitTrackerPriceTable, which comes back in a revalue message and is applied in one pass.
+     */
+
+    private static final int QUEUE_CAPACITY = 1024;
+
+    // worker wakes up this often even if nobody unparks it, to notice stop()
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final ProfitTrackerInventoryValue inventoryValue;
+    private final ProfitTrackerSessionJournal sessionJournal;
+    private final ProfitTrackerSessionHistory sessionHistory;
+    private final ProfitTrackerOverlay overlay;
+    private final ProfitTrackerConfig config;
+
+    // called on the valuation thread with every non zero tick profit, and profit change of a revalue
+    private final LongConsumer tickProfitCallback;
+
+    // called on the valuation thread with the item ids to price for a revalue, see submitRevalue
+    private final Consumer<int[]> priceRequestCallback;
+
+    private final ProfitTrackerSpscQueue<Object> queue;
+    private final Thread workerThread;
+
+    private volatile boolean running;
+
+    // null unless exporting item events, set before start
+    private ProfitTrackerEventExport eventExport;
+
+    // archive the session once the valuation thread stopped, see stop
+    private volatile boolean finishOnStop;
+
+    // messages submitted (client thread) and processed (valuation thread), see isDrained
+    private long submittedCount;
+    private final AtomicLong processedCount = new AtomicLong();
+
+    /*
+    Valuation thread only
+     */
+    private long totalProfit;
+    private long totalSupplyCost;
+    private ProfitTrackerOverlayState overlayState = ProfitTrackerOverlayState.NO_SESSION;
+    private final ProfitTrackerRateEngine rateEngine = new ProfitTrackerRateEngine();
+    private final ProfitTrackerProfitHistory profitHistory = new ProfitTrackerProfitHistory();
+
+    // session timer: last tick with container changes, paused time so far, and since when paused (0 running)
+    private long lastActivityMillis;
+    private long sessionPausedMillis;
+    private long pausedSinceMillis;
+    private long lastIdleCheckSecond;
+
+    // area of the last tick with changes, what the session is filed under in the history
+    private int activityRegionId = ProfitTrackerSessionHistory.NO_REGION;
+
+    // inventory + equipment contents last journaled, and the last tick with changes
+    private long journaledSnapshotHash = ProfitTrackerInventoryValue.NO_SNAPSHOT_HASH;
+    private int lastTick;
+
+    // scratch arrays for copying the ledger into the history
+    private int[] archiveItemIds = new int[0];
+    private long[] archiveQuantities = new long[0];
+    private long[] archiveValues = new long[0];
+
+    // scratch arrays for selecting the items breakdown
+    private int[] breakdownItemIds = new int[0];
+    private long[] breakdownQuantities = new long[0];
+    private long[] breakdownValues = new long[0];
+
+    /*
+    Messages other than captures
+     */
+    private static final class TickMessage
+    {
+        final int tick;
+        final long timeMillis;
+        final int[] depositedItemIds;
+        final int regionId;
+
+        TickMessage(int tick, long timeMillis, int[] depositedItemIds, int regionId)
+        {
+            this.tick = tick;
+            this.timeMillis = timeMillis;
+            this.depositedItemIds = depositedItemIds;
+            this.regionId = regionId;
+        }
+    }
+
+    private static final class SessionMessage
+    {
+        final int tick;
+        final long startMillis;
+        final long initialProfit;
+
+        // resumed sessions only: time paused so far, and of it what still has to be journaled
+        final long pausedMillis;
+        final long unjournaledPausedMillis;
+        final boolean resumed;
+
+        SessionMessage(int tick, long startMillis, long initialProfit, long pausedMillis, long unjournaledPausedMillis,
+                       boolean resumed)
+        {
+            this.tick = tick;
+            this.startMillis = startMillis;
+            this.initialProfit = initialProfit;
+            this.pausedMillis = pausedMillis;
+            this.unjournaledPausedMillis = unjournaledPausedMillis;
+            this.resumed = resumed;
+        }
+    }
+
+    private static final class SessionFinishMessage
+    {
+        final long endMillis;
+
+        SessionFinishMessage(long endMillis)
+        {
+            this.endMillis = endMillis;
+        }
+    }
+
+    private static final class RevalueMessage
+    {
+        final ProfitTrackerPriceTable priceTable;
+        final int tick;
+        final long timeMillis;
+
+        RevalueMessage(ProfitTrackerPriceTable priceTable, int tick, long timeMillis)
+        {
+            this.priceTable = priceTable;
+            this.tick = tick;
+            this.timeMillis = timeMillis;
+        }
+    }
+
+    private static final class GroundChangeMessage
+    {
+        final int itemId;
+        final int quantityDelta;
+        final long valueDelta;
+
+        GroundChangeMessage(int itemId, int quantityDelta, long valueDelta)
+        {
+            this.itemId = itemId;
+            this.quantityDelta = quantityDelta;
+            this.valueDelta = valueDelta;
+        }
+    }
+
+    // collect the session's item ids and ask for their prices, see submitRevalueRequest
+    private static final Object REVALUE_REQUEST_MESSAGE = new Object();
+
+    // select and publish the items breakdown again, after its size changed
+    private static final Object BREAKDOWN_REFRESH_MESSAGE = new Object();
+
+    // forget all container snapshots, next contents seen are a baseline
+    private static final Object FORGET_CONTAINERS_MESSAGE = new Object();
+
+    public ProfitTrackerValuationPipeline(ProfitTrackerInventoryValue inventoryValue,
+                                          ProfitTrackerSessionJournal sessionJournal,
+                                          ProfitTrackerSessionHistory sessionHistory,
+                                          ProfitTrackerOverlay overlay,
+                                          ProfitTrackerConfig config,
+                                          LongConsumer tickProfitCallback,
+                                          Consumer<int[]> priceRequestCallback)
+    {
+        this.inventoryValue = inventoryValue;
+        this.sessionJournal = sessionJournal;
+        this.sessionHistory = sessionHistory;
+        this.overlay = overlay;
+        this.config = config;
+        this.tickProfitCallback = tickProfitCallback;
+        this.priceRequestCallback = priceRequestCallback;
+
+        queue = new ProfitTrackerSpscQueue<>(QUEUE_CAPACITY);
+
+        workerThread = new Thread(this::run, "profit-tracker-valuation");
+        workerThread.setDaemon(true);
+    }
+
+    public void setEventExport(ProfitTrackerEventExport eventExport)
+    {
+        /*
+        before start: write every item gained or lost to eventExport
+         */
+        this.eventExport = eventExport;
+        inventoryValue.getTransferReconciler().setEventExport(eventExport);
+    }
+
+    public void start()
+    {
+        running = true;
+        workerThread.start();
+    }
+
+    public void stop(boolean finishSession)
+    {
+        /*
+        stop the valuation thread once it processed everything queued, the last tick's profit too.
+        Returns after the thread ended, so the journal and history it writes to can be closed.
+        finishSession - the session won't be resumed, archive it to the history
+         */
+        finishOnStop = finishSession;
+        running = false;
+        LockSupport.unpark(workerThread);
+
+        boolean interrupted = false;
+
+        while (workerThread.isAlive())
+        {
+            try
+            {
+                workerThread.join();
+            }
+            catch (InterruptedException e)
+            {
+                // closing the journal under a thread still writing to it would lose records, wait anyway
+                interrupted = true;
+            }
+        }
+
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /*
+    Client thread
+     */
+
+    public void submitCapture(ProfitTrackerContainerCapture capture)
+    {
+        submit(capture);
+    }
+
+    public void submitGroundChange(int itemId, int quantityDelta, long valueDelta)
+    {
+        /*
+        an item we dropped went onto (quantityDelta > 0) or off the ground, part of the next tick
+         */
+        submit(new GroundChangeMessage(itemId, quantityDelta, valueDelta));
+    }
+
+    public void submitTick(int tick, long timeMillis, int[] depositedItemIds, int regionId)
+    {
+        /*
+        end of a tick with container changes.
+        depositedItemIds - canonical ids of items recently deposited into a bank that is not loaded (deposit box), or null
+        regionId         - map region the player is in, or ProfitTrackerSessionHistory.NO_REGION
+         */
+        submit(new TickMessage(tick, timeMillis, depositedItemIds, regionId));
+    }
+
+    public void submitSessionFinish(long endMillis)
+    {
+        /*
+        the session is over (a new one follows), archive it to the history
+         */
+        submit(new SessionFinishMessage(endMillis));
+    }
+
+    public void submitSessionStart(int tick, long startMillis)
+    {
+        /*
+        start a new session from 0, it replaces the one in the journal
+         */
+        submit(new SessionMessage(tick, startMillis, 0, 0, 0, false));
+    }
+
+    public void submitSessionResume(int tick, ProfitTrackerRestoredSession session, long resumeMillis)
+    {
+        /*
+        continue the journaled session, forgetting the items breakdown.
+        The time since its last record the client was closed, it counts as paused
+         */
+        final long pausedMillis = session.getPausedMillis(resumeMillis);
+
+        submit(new SessionMessage(tick, session.getStartMillis(), session.getTotalProfit(), pausedMillis,
+                pausedMillis - session.getPausedMillis(), true));
+    }
+
+    public void submitBreakdownRefresh()
+    {
+        submit(BREAKDOWN_REFRESH_MESSAGE);
+    }
+
+    public void submitRevalueRequest()
+    {
+        /*
+        prices changed (price mode, overrides): value the session again at the new prices.
+        The item ids come back through the price request callback, their prices go to submitRevalue
+         */
+        submit(REVALUE_REQUEST_MESSAGE);
+    }
+
+    public void submitRevalue(ProfitTrackerPriceTable priceTable, int tick, long timeMillis)
+    {
+        submit(new RevalueMessage(priceTable, tick, timeMillis));
+    }
+
+    public void submitForgetContainers()
+    {
+        /*
+        logged out: what is seen after logging in again may belong to another account
+         */
+        submit(FORGET_CONTAINERS_MESSAGE);
+    }
+
+    private void submit(Object message)
+    {
+        while (!queue.offer(message))
+        {
+            // valuation fell a whole queue behind, should never happen. Wait rather than lose a change
+            if (!running)
+            {
+                return;
+            }
+
+            Thread.yield();
+        }
+
+        submittedCount++;
+
+        LockSupport.unpark(workerThread);
+    }
+
+    public boolean isDrained()
+    {
+        /*
+        client thread: everything submitted so far has been processed
+         */
+        return processedCount.get() == submittedCount;
+    }
+
+    /*
+    Valuation thread
+     */
+
+    private void run()
+    {
+        while (true)
+        {
+            // read before polling: whatever was submitted before stop() is seen by this poll
+            final boolean stopping = !running;
+            final Object message = queue.poll();
+
+            if (message == null)
+            {
+                if (stopping)
+                {
+                    // everything submitted is processed
+                    break;
+                }
+
+                // recent rates fall and the graph goes on while nothing is earned, not only when profit changes
+                if (overlayState.isInProfitTrackSession())
+                {
+                    final long now = System.currentTimeMillis();
+
+                    // both, not only the first that changed
+                    final boolean ratesChanged = rateEngine.advance(now);
+                    final boolean graphChanged = profitHistory.advance(now);
+
+                    if (ratesChanged || graphChanged)
+                    {
+                        publishState(overlayState.getBreakdown());
+                    }
+
+                    pauseIfIdle(now);
+                }
+
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+
+            try
+            {
+                process(message);
+            }
+            catch (RuntimeException e)
+            {
+                log.error("Profit valuation failed", e);
+            }
+
+            processedCount.lazySet(processedCount.get() + 1);
+        }
+
+        if (overlayState.isInProfitTrackSession())
+        {
+            // contents at the end, also when no tick changed them since the session's baseline
+            journalSnapshotIfChanged(lastTick, System.currentTimeMillis());
+        }
+
+        if (finishOnStop)
+        {
+            archiveSession(System.currentTimeMillis());
+        }
+    }
+
+    private void process(Object message)
+    {
+        if (message instanceof ProfitTrackerContainerCapture)
+        {
+            inventoryValue.applyCapture((ProfitTrackerContainerCapture) message);
+        }
+        else if (message instanceof GroundChangeMessage)
+        {
+            final GroundChangeMessage change = (GroundChangeMessage) message;
+
+            inventoryValue.addGroundChange(change.itemId, change.quantityDelta, change.valueDelta);
+        }
+        else if (message instanceof TickMessage)
+        {
+            processTick((TickMessage) message);
+        }
+        else if (message instanceof SessionMessage)
+        {
+            processSessionStart((SessionMessage) message);
+        }
+        else if (message instanceof SessionFinishMessage)
+        {
+            archiveSession(((SessionFinishMessage) message).endMillis);
+        }
+        else if (message == BREAKDOWN_REFRESH_MESSAGE)
+        {
+            publishState(selectBreakdown());
+        }
+        else if (message == FORGET_CONTAINERS_MESSAGE)
+        {
+            inventoryValue.forgetSnapshots();
+        }
+        else if (message == REVALUE_REQUEST_MESSAGE)
+        {
+            if (overlayState.isInProfitTrackSession())
+            {
+                priceRequestCallback.accept(inventoryValue.collectSessionItemIds());
+            }
+        }
+        else if (message instanceof RevalueMessage)
+        {
+            processRevalue((RevalueMessage) message);
+        }
+    }
+
+    private void processSessionStart(SessionMessage message)
+    {
+        totalProfit = message.initialProfit;
+
+        // not journaled, a resumed session counts supplies from here on
+        totalSupplyCost = 0;
+
+        // the session's baseline captures follow this message
+        inventoryValue.forgetSnapshots();
+        inventoryValue.discardTickDelta();
+        inventoryValue.getItemLedger().clear();
+
+        rateEngine.reset(message.startMillis);
+        profitHistory.reset(message.startMillis, totalProfit);
+
+        final long nowMillis = System.currentTimeMillis();
+
+        if (message.resumed)
+        {
+            if (message.unjournaledPausedMillis > 0)
+            {
+                sessionJournal.recordPause(message.tick, nowMillis, message.unjournaledPausedMillis);
+            }
+        }
+        else
+        {
+            // after the previous session's ticks, which are all processed by now
+            sessionJournal.recordSessionStart(message.tick, message.startMillis);
+        }
+
+        // a resumed session started long ago, it is idle from now on at the earliest
+        lastActivityMillis = Math.max(message.startMillis, nowMillis);
+        sessionPausedMillis = message.pausedMillis;
+        pausedSinceMillis = 0;
+        activityRegionId = ProfitTrackerSessionHistory.NO_REGION;
+        journaledSnapshotHash = ProfitTrackerInventoryValue.NO_SNAPSHOT_HASH;
+        lastTick = message.tick;
+
+        overlayState = new ProfitTrackerOverlayState(totalProfit, totalSupplyCost, message.startMillis, true,
+                ProfitTrackerBreakdown.EMPTY, ProfitTrackerRates.EMPTY, profitHistory.getGraph(), sessionPausedMillis, 0);
+
+        overlay.publishState(overlayState);
+    }
+
+    private void publishState(ProfitTrackerBreakdown breakdown)
+    {
+        /*
+        publish profit, breakdown, rates and graph to the overlay, one state object per tick (or second) at most
+         */
+        overlayState = overlayState.withProfit(totalProfit, totalSupplyCost, breakdown, rateEngine.getRates(),
+                profitHistory.getGraph());
+
+        overlay.publishState(overlayState);
+    }
+
+    private void pauseIfIdle(long nowMillis)
+    {
+        /*
+        pause the session timer once nothing changed for idlePauseMinutes, checked once a second
+         */
+        if (pausedSinceMillis > 0 || nowMillis / 1000 == lastIdleCheckSecond)
+        {
+            return;
+        }
+
+        lastIdleCheckSecond = nowMillis / 1000;
+
+        final long idlePauseMillis = TimeUnit.MINUTES.toMillis(config.idlePauseMinutes());
+
+        if (idlePauseMillis > 0 && nowMillis - lastActivityMillis >= idlePauseMillis)
+        {
+            // the idle period itself still counts, the timer stops at its end
+            pausedSinceMillis = lastActivityMillis + idlePauseMillis;
+
+            overlayState = overlayState.withPause(sessionPausedMillis, pausedSinceMillis);
+            overlay.publishState(overlayState);
+        }
+    }
+
+    private void resumeIfPaused(int tick, long timeMillis)
+    {
+        lastActivityMillis = Math.max(lastActivityMillis, timeMillis);
+
+        if (pausedSinceMillis > 0)
+        {
+            final long pausedMillis = Math.max(0, timeMillis - pausedSinceMillis);
+
+            sessionPausedMillis += pausedMillis;
+            pausedSinceMillis = 0;
+
+            // a resumed session is paused as long as it was before
+            sessionJournal.recordPause(tick, timeMillis, pausedMillis);
+
+            overlayState = overlayState.withPause(sessionPausedMillis, 0);
+        }
+    }
+
+    private void processTick(TickMessage message)
+    {
+        if (eventExport != null)
+        {
+            eventExport.beginTick(overlayState.getStartTimeMillies(), message.tick, message.timeMillis);
+        }
+
+        // item changes are the profit, except what only moved between containers
+        final long tickProfit = inventoryValue.reconcileTickDelta(message.depositedItemIds);
+
+        // containers changed, so not idle (published with the profit below)
+        resumeIfPaused(message.tick, message.timeMillis);
+
+        if (message.regionId != ProfitTrackerSessionHistory.NO_REGION)
+        {
+            activityRegionId = message.regionId;
+        }
+
+        // accumulate profit, and how much of it went on supplies
+        totalProfit += tickProfit;
+        totalSupplyCost += inventoryValue.getTickSupplyCost();
+        rateEngine.add(message.timeMillis, tickProfit);
+        profitHistory.record(message.timeMillis, totalProfit);
+
+        publishState(tickProfit != 0 ? selectBreakdown() : overlayState.getBreakdown());
+
+        lastTick = message.tick;
+
+        if (tickProfit != 0)
+        {
+            final long snapshotHash = inventoryValue.calculateSnapshotHash();
+
+            if (snapshotHash != ProfitTrackerInventoryValue.NO_SNAPSHOT_HASH)
+            {
+                journaledSnapshotHash = snapshotHash;
+            }
+
+            // only buffered here, written by the journal thread
+            sessionJournal.recordProfit(message.tick, message.timeMillis, tickProfit, snapshotHash);
+
+            tickProfitCallback.accept(tickProfit);
+        }
+        else
+        {
+            // items only moved, a resumed session must still see the contents as they are now
+            journalSnapshotIfChanged(message.tick, message.timeMillis);
+        }
+    }
+
+    private void journalSnapshotIfChanged(int tick, long timeMillis)
+    {
+        final long snapshotHash = inventoryValue.calculateSnapshotHash();
+
+        // unknown while logged out, the last hash journaled is what was there at the logout
+        if (snapshotHash != ProfitTrackerInventoryValue.NO_SNAPSHOT_HASH && snapshotHash != journaledSnapshotHash)
+        {
+            journaledSnapshotHash = snapshotHash;
+
+            sessionJournal.recordSnapshot(tick, timeMillis, snapshotHash);
+        }
+    }
+
+    private void processRevalue(RevalueMessage message)
+    {
+        /*
+        the session as if it had been valued at the new prices all along.
+        Rates are left alone, nothing was earned, they catch up as their windows move on.
+        Supply cost is too, it was summed per tick and the ledger doesn't know which items were supplies
+         */
+        final long profitDelta = inventoryValue.revalue(message.priceTable);
+
+        totalProfit += profitDelta;
+        profitHistory.record(message.timeMillis, totalProfit);
+
+        publishState(selectBreakdown());
+
+        if (profitDelta != 0)
+        {
+            // a resumed session adds it up again from the journal
+            sessionJournal.recordProfit(message.tick, message.timeMillis, profitDelta, journaledSnapshotHash);
+
+            // profit changed like on a tick, a recording must add it up too
+            tickProfitCallback.accept(profitDelta);
+        }
+    }
+
+    private void archiveSession(long endMillis)
+    {
+        /*
+        hand the session and its ledger to the history, which writes it on its own thread
+         */
+        final ProfitTrackerItemLedger ledger = inventoryValue.getItemLedger();
+
+        if (!overlayState.isInProfitTrackSession() || (totalProfit == 0 && ledger.size() == 0))
+        {
+            // nothing happened, nothing worth keeping
+            return;
+        }
+
+        if (archiveItemIds.length < ledger.size())
+        {
+            archiveItemIds = new int[ledger.size()];
+            archiveQuantities = new long[ledger.size()];
+            archiveValues = new long[ledger.size()];
+        }
+
+        final int itemCount = ledger.copyTo(archiveItemIds, archiveQuantities, archiveValues);
+
+        sessionHistory.archive(overlayState.getStartTimeMillies(), endMillis, overlayState.getActiveMillis(endMillis),
+                totalProfit, activityRegionId, archiveItemIds, archiveQuantities, archiveValues, itemCount);
+    }
+
+    private ProfitTrackerBreakdown selectBreakdown()
+    {
+        /*
+        select top gaining and losing items from the ledger
+         */
+        final int limit = config.breakdownSize();
+
+        if (limit <= 0)
+        {
+            return ProfitTrackerBreakdown.EMPTY;
+        }
+
+        if (breakdownItemIds.length < limit)
+        {
+            breakdownItemIds = new int[limit];
+            breakdownQuantities = new long[limit];
+            breakdownValues = new long[limit];
+        }
+
+        final ProfitTrackerItemLedger ledger = inventoryValue.getItemLedger();
+
+        int count = ledger.selectTopGainers(limit, breakdownItemIds, breakdownQuantities, breakdownValues);
+
+        final int[] gainerIds = new int[count];
+        final long[] gainerValues = new long[count];
+
+        System.arraycopy(breakdownItemIds, 0, gainerIds, 0, count);
+        System.arraycopy(breakdownValues, 0, gainerValues, 0, count);
+
+        count = ledger.selectTopLosers(limit, breakdownItemIds, breakdownQuantities, breakdownValues);
+
+        final int[] loserIds = new int[count];
+        final long[] loserValues = new long[count];
+
+        System.arraycopy(breakdownItemIds, 0, loserIds, 0, count);
+        System.arraycopy(breakdownValues, 0, loserValues, 0, count);
+
+        return new ProfitTrackerBreakdown(gainerIds, gainerValues, loserIds, loserValues);
+    }
+}
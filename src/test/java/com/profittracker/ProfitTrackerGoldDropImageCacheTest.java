@@ -0,0 +1,47 @@
+package com.profittracker;
+
+import net.runelite.client.util.AsyncBufferedImage;
+import org.junit.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ProfitTrackerGoldDropImageCacheTest
+{
+    private static final Font FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 12);
+
+    @Test
+    public void bigGainAndLossHaveTheirOwnColor()
+    {
+        final ProfitTrackerGoldDropImageCache imageCache = new ProfitTrackerGoldDropImageCache(
+                quantity -> new AsyncBufferedImage(8, 8, BufferedImage.TYPE_INT_ARGB));
+
+        // both are drawn as ALOT
+        final BufferedImage gain = imageCache.getDropImage(2_000_000, FONT);
+        final BufferedImage loss = imageCache.getDropImage(-2_000_000, FONT);
+
+        assertTrue(hasColor(gain, Color.GREEN));
+        assertFalse(hasColor(gain, Color.RED));
+        assertTrue(hasColor(loss, Color.RED));
+        assertFalse(hasColor(loss, Color.GREEN));
+    }
+
+    private static boolean hasColor(BufferedImage image, Color color)
+    {
+        for (int y = 0; y < image.getHeight(); y++)
+        {
+            for (int x = 0; x < image.getWidth(); x++)
+            {
+                if (image.getRGB(x, y) == color.getRGB())
+                {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+}
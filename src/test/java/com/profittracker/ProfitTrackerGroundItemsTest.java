@@ -0,0 +1,125 @@
+package com.profittracker;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ProfitTrackerGroundItemsTest
+{
+    private static final int LOGS = 1511;
+    private static final int COINS = 995;
+
+    private static final int TILE = ProfitTrackerGroundItems.packTile(3200, 3200, 0);
+
+    private ProfitTrackerGroundItems groundItems;
+
+    // sum of the quantity deltas reported, and how many reports
+    private long groundQuantity;
+    private int changes;
+
+    @Before
+    public void setUp()
+    {
+        groundItems = new ProfitTrackerGroundItems((itemId, quantityDelta) ->
+        {
+            groundQuantity += quantityDelta;
+            changes++;
+        });
+    }
+
+    @Test
+    public void sameItemDroppedSeveralTimesOnOneTile()
+    {
+        for (int tick = 0; tick < 27; tick++)
+        {
+            groundItems.dropClicked(LOGS, tick);
+            groundItems.itemSpawned(TILE, true, LOGS, 1, tick + 1);
+        }
+
+        assertEquals(27, groundItems.size());
+        assertEquals(27, groundQuantity);
+
+        for (int i = 0; i < 27; i++)
+        {
+            groundItems.itemDespawned(TILE, LOGS, 1, true);
+        }
+
+        assertEquals(0, groundItems.size());
+        assertEquals(0, groundQuantity);
+        assertEquals(54, changes);
+    }
+
+    @Test
+    public void dropSeenAgainAfterSceneLoadIsNotANewDrop()
+    {
+        groundItems.dropClicked(LOGS, 0);
+        groundItems.itemSpawned(TILE, true, LOGS, 1, 1);
+
+        // scene unloaded and loaded again
+        groundItems.itemDespawned(TILE, LOGS, 1, false);
+        groundItems.itemSpawned(TILE, true, LOGS, 1, 10);
+
+        assertEquals(1, groundItems.size());
+        assertEquals(1, groundQuantity);
+        assertEquals(1, changes);
+
+        // dropped again on the same tile after the reload, a second drop
+        groundItems.dropClicked(LOGS, 11);
+        groundItems.itemSpawned(TILE, true, LOGS, 1, 12);
+
+        assertEquals(2, groundItems.size());
+        assertEquals(2, groundQuantity);
+    }
+
+    @Test
+    public void stackableDropMergedIntoOurStack()
+    {
+        groundItems.dropClicked(COINS, 0);
+        groundItems.itemSpawned(TILE, true, COINS, 100, 1);
+
+        // dropped again on the same tile, the stack grows and nothing spawns
+        groundItems.dropClicked(COINS, 2);
+        groundItems.itemQuantityChanged(TILE, true, COINS, 100, 150, 3);
+
+        assertEquals(1, groundItems.size());
+        assertEquals(150, groundQuantity);
+
+        // picked up as one stack
+        groundItems.itemDespawned(TILE, COINS, 150, true);
+
+        assertEquals(0, groundItems.size());
+        assertEquals(0, groundQuantity);
+
+        // nothing left to expire
+        groundItems.expire(3 + ProfitTrackerGroundItems.GROUND_TICKS);
+        assertEquals(0, groundQuantity);
+    }
+
+    @Test
+    public void stackableDropMergedIntoSomeoneElsesStack()
+    {
+        // someone else's coins, then ours dropped onto them
+        groundItems.itemSpawned(TILE, true, COINS, 40, 1);
+        groundItems.dropClicked(COINS, 2);
+        groundItems.itemQuantityChanged(TILE, true, COINS, 40, 100, 3);
+
+        assertEquals(60, groundQuantity);
+
+        // picking the stack up gets ours back, the other 40 are a gain
+        groundItems.itemDespawned(TILE, COINS, 100, true);
+
+        assertEquals(0, groundItems.size());
+        assertEquals(0, groundQuantity);
+    }
+
+    @Test
+    public void spawnWithoutDropClickIsNotOurs()
+    {
+        groundItems.itemSpawned(TILE, true, LOGS, 1, 1);
+        groundItems.itemDespawned(TILE, LOGS, 1, true);
+
+        assertEquals(0, groundItems.size());
+        assertEquals(0, changes);
+    }
+}
@@ -0,0 +1,522 @@
+package com.profittracker;
+
+import net.runelite.api.Client;
+import net.runelite.api.GameState;
+import net.runelite.api.InventoryID;
+import net.runelite.api.Item;
+import net.runelite.api.ItemContainer;
+import net.runelite.api.Varbits;
+import net.runelite.api.events.GameStateChanged;
+import net.runelite.api.events.ItemContainerChanged;
+import net.runelite.api.events.MenuOptionClicked;
+import net.runelite.api.events.ScriptPreFired;
+import net.runelite.api.events.VarbitChanged;
+import net.runelite.client.callback.ClientThread;
+import net.runelite.client.events.OverlayMenuClicked;
+import net.runelite.client.ui.overlay.OverlayMenuEntry;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+
+import static net.runelite.api.MenuAction.RUNELITE_OVERLAY;
+
+/**
+ * Replays a session recorded by ProfitTrackerEventRecorder into ProfitTrackerPlugin, headless and at full speed,
+ * and reports throughput, allocation per tick and whether the end profit matches the recorded one.
+ *
+ * Usage: ProfitTrackerReplay &lt;recording.ptrec&gt;
+ */
+public class ProfitTrackerReplay
+{
+    /*
+    The plugin runs as it does in the client, with stand-ins for what it is injected with:
+      - Client is a proxy answering from the recorded containers, game state, tick and rune pouch
+      - ClientThread runs invoke() right away and invokeLater() after the current event
+      - prices and canonical ids come from the recorded ones instead of ItemManager
+    Overlays are created but never shown, see ProfitTrackerPlugin.startTracking.
+
+    Prices are recorded as they are looked up, so they follow the record of the event that looked them up.
+    They are read ahead of dispatching that event (readPrices), canonical ids too.
+    Prices are never refreshed during a replay, prices recorded after a refresh in the client
+    are only used for items not looked up before.
+     */
+
+    private final Map<Integer, Item[]> containers = new HashMap<>();
+    private final Map<Integer, Long> prices = new HashMap<>();
+    private final Map<Integer, Integer> canonicalIds = new HashMap<>();
+    private final Map<Varbits, Integer> varbits = new HashMap<>();
+    private final Queue<Runnable> invokeLaterQueue = new ArrayDeque<>();
+
+    private GameState gameState = GameState.LOGIN_SCREEN;
+    private int tickCount;
+
+    private ProfitTrackerPlugin plugin;
+    private ProfitTrackerOverlay overlay;
+
+    private long recordedProfit;
+    private long ticks;
+    private long events;
+
+    public static void main(String[] args) throws Exception
+    {
+        if (args.length != 1)
+        {
+            System.err.println("Usage: ProfitTrackerReplay <recording.ptrec>");
+            System.exit(2);
+        }
+
+        final boolean profitMatches = new ProfitTrackerReplay().replay(new File(args[0]));
+
+        System.exit(profitMatches ? 0 : 1);
+    }
+
+    private boolean replay(File recordingFile) throws Exception
+    {
+        final ByteBuffer recording = ByteBuffer.wrap(Files.readAllBytes(recordingFile.toPath()));
+
+        if (recording.getInt() != ProfitTrackerEventRecorder.MAGIC
+                || recording.getInt() > ProfitTrackerEventRecorder.VERSION)
+        {
+            throw new IllegalArgumentException("not a profit tracker recording: " + recordingFile);
+        }
+
+        final long recordingStartMillis = recording.getLong();
+
+        final File journalFile = File.createTempFile("profit-tracker-replay", ".journal");
+        journalFile.deleteOnExit();
+
+        final File historyDirectory = Files.createTempDirectory("profit-tracker-replay-history").toFile();
+        historyDirectory.deleteOnExit();
+
+        // deleted in reverse order, the files before their directory
+        new File(historyDirectory, "sessions.idx").deleteOnExit();
+        new File(historyDirectory, "sessions.dat").deleteOnExit();
+
+        createPlugin(journalFile, historyDirectory);
+
+        // state the plugin saw when it started
+        while (recording.hasRemaining())
+        {
+            final byte type = recording.get();
+
+            if (type == ProfitTrackerEventRecorder.RECORD_STARTUP)
+            {
+                break;
+            }
+
+            readState(type, recording);
+        }
+
+        readPrices(recording);
+        plugin.startTracking(new ProfitTrackerPriceSource()
+        {
+            @Override
+            public long getItemPrice(int itemId)
+            {
+                return prices.getOrDefault(itemId, 0L);
+            }
+
+            @Override
+            public int canonicalize(int itemId)
+            {
+                return canonicalIds.getOrDefault(itemId, itemId);
+            }
+        });
+
+        // handler timings, printed below
+        ProfitTrackerInstrumentation.setEnabled(true);
+
+        final com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        final long allocatedBefore = allocatedBytes(threads);
+        final long startNanos = System.nanoTime();
+
+        while (recording.hasRemaining())
+        {
+            final byte type = recording.get();
+            final int position = recording.position();
+
+            // skip over the event to read the prices it looked up, then come back to it
+            skipRecord(type, recording);
+            readPrices(recording);
+
+            final int pricesEnd = recording.position();
+
+            recording.position(position);
+            dispatch(type, recording);
+            recording.position(pricesEnd);
+            events++;
+
+            while (!invokeLaterQueue.isEmpty())
+            {
+                invokeLaterQueue.poll().run();
+            }
+        }
+
+        // profit is calculated on the valuation thread, wait for it to catch up
+        while (!plugin.valuationPipeline.isDrained())
+        {
+            Thread.yield();
+        }
+
+        final long elapsedNanos = System.nanoTime() - startNanos;
+        final long allocated = allocatedBytes(threads) - allocatedBefore;
+
+        final long replayedProfit = overlay.getState().getProfitValue();
+        final long skippedTicks = plugin.getSkippedTickCount();
+        final long sessionTicks = plugin.getGameTickCount();
+
+        ProfitTrackerInstrumentation.setEnabled(false);
+
+        plugin.stopTracking();
+
+        System.out.printf("recording        %s (started %tF %<tT)%n", recordingFile, recordingStartMillis);
+        System.out.printf("events           %d%n", events);
+        System.out.printf("ticks            %d%n", ticks);
+        System.out.printf("time             %.3f s%n", elapsedNanos / 1e9);
+        System.out.printf("ticks/second     %.0f%n", ticks * 1e9 / Math.max(1, elapsedNanos));
+        System.out.printf("allocated/tick   %d bytes%n", ticks > 0 ? allocated / ticks : 0);
+        System.out.printf("skipped ticks    %d of %d in session, nothing changed%n", skippedTicks, sessionTicks);
+
+        for (ProfitTrackerProbe probe : ProfitTrackerProbe.values())
+        {
+            final ProfitTrackerLatencyHistogram histogram = ProfitTrackerInstrumentation.getHistogram(probe);
+
+            if (histogram.getCount() > 0)
+            {
+                System.out.printf("%-24s %d calls, p50 %s us, p99 %s us, max %s us%n", probe, histogram.getCount(),
+                        ProfitTrackerInstrumentation.formatMicros(histogram.percentileNanos(50)),
+                        ProfitTrackerInstrumentation.formatMicros(histogram.percentileNanos(99)),
+                        ProfitTrackerInstrumentation.formatMicros(histogram.getMaxNanos()));
+            }
+        }
+
+        System.out.printf("recorded profit  %d%n", recordedProfit);
+        System.out.printf("replayed profit  %d%n", replayedProfit);
+
+        final boolean profitMatches = replayedProfit == recordedProfit;
+
+        System.out.println(profitMatches ? "profit matches" : "PROFIT MISMATCH");
+
+        return profitMatches;
+    }
+
+    private void createPlugin(File journalFile, File historyDirectory) throws ReflectiveOperationException
+    {
+        final ProfitTrackerConfig config = new ProfitTrackerConfig()
+        {
+            @Override
+            public boolean resumeSession()
+            {
+                return false;
+            }
+
+            @Override
+            public int priceRefreshMinutes()
+            {
+                return 0;
+            }
+        };
+
+        final ClientThread clientThread = new ClientThread()
+        {
+            @Override
+            public void invoke(Runnable runnable)
+            {
+                runnable.run();
+            }
+
+            @Override
+            public void invokeLater(Runnable runnable)
+            {
+                invokeLaterQueue.add(runnable);
+            }
+        };
+
+        overlay = new ProfitTrackerOverlay(config, null);
+
+        plugin = new ProfitTrackerPlugin();
+        plugin.journalFile = journalFile;
+        plugin.historyDirectory = historyDirectory;
+
+        inject(plugin, "client", createClient());
+        inject(plugin, "clientThread", clientThread);
+        inject(plugin, "config", config);
+        inject(plugin, "overlay", overlay);
+        inject(plugin, "goldDropOverlay", new ProfitTrackerGoldDropOverlay(null));
+    }
+
+    private static void inject(Object target, String fieldName, Object value) throws ReflectiveOperationException
+    {
+        final Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+
+    private Client createClient()
+    {
+        return (Client) Proxy.newProxyInstance(Client.class.getClassLoader(), new Class<?>[]{Client.class},
+                (proxy, method, args) ->
+                {
+                    switch (method.getName())
+                    {
+                        case "getItemContainer":
+                            return container(((InventoryID) args[0]).getId());
+                        case "getGameState":
+                            return gameState;
+                        case "getTickCount":
+                            return tickCount;
+                        case "isClientThread":
+                            return true;
+                        case "getVar":
+                            return args[0] instanceof Varbits ? varbits.getOrDefault(args[0], 0) : 0;
+                        default:
+                            return defaultValue(method.getReturnType());
+                    }
+                });
+    }
+
+    private static Object defaultValue(Class<?> type)
+    {
+        if (type == boolean.class)
+        {
+            return false;
+        }
+
+        if (type == int.class || type == long.class || type == short.class || type == byte.class
+                || type == float.class || type == double.class || type == char.class)
+        {
+            return java.lang.reflect.Array.get(java.lang.reflect.Array.newInstance(type, 1), 0);
+        }
+
+        return null;
+    }
+
+    private ItemContainer container(int containerId)
+    {
+        final Item[] items = containers.get(containerId);
+
+        if (items == null)
+        {
+            return null;
+        }
+
+        return (ItemContainer) Proxy.newProxyInstance(ItemContainer.class.getClassLoader(),
+                new Class<?>[]{ItemContainer.class},
+                (proxy, method, args) -> "getItems".equals(method.getName()) ? items : defaultValue(method.getReturnType()));
+    }
+
+    private void readPrices(ByteBuffer recording)
+    {
+        while (recording.hasRemaining() && (recording.get(recording.position()) == ProfitTrackerEventRecorder.RECORD_PRICE
+                || recording.get(recording.position()) == ProfitTrackerEventRecorder.RECORD_CANONICAL))
+        {
+            readState(recording.get(), recording);
+        }
+    }
+
+    private static void skipRecord(byte type, ByteBuffer recording)
+    {
+        final int size;
+
+        switch (type)
+        {
+            case ProfitTrackerEventRecorder.RECORD_TICK:
+            case ProfitTrackerEventRecorder.RECORD_PRICE:
+                size = 4 + 8;
+                break;
+            case ProfitTrackerEventRecorder.RECORD_CONTAINER:
+                size = 4 + 4 + recording.getInt(recording.position() + 4) * 8;
+                break;
+            case ProfitTrackerEventRecorder.RECORD_CANONICAL:
+                size = 4 + 4;
+                break;
+            case ProfitTrackerEventRecorder.RECORD_MENU:
+                size = 4 + 4 + 4;
+                break;
+            case ProfitTrackerEventRecorder.RECORD_SCRIPT:
+            case ProfitTrackerEventRecorder.RECORD_GAME_STATE:
+            case ProfitTrackerEventRecorder.RECORD_DROP:
+            case ProfitTrackerEventRecorder.RECORD_DEPOSIT:
+                size = 4;
+                break;
+            case ProfitTrackerEventRecorder.RECORD_ITEM_SPAWNED:
+                size = 5 * 4 + 1;
+                break;
+            case ProfitTrackerEventRecorder.RECORD_ITEM_DESPAWNED:
+                size = 5 * 4;
+                break;
+            case ProfitTrackerEventRecorder.RECORD_ITEM_QUANTITY_CHANGED:
+                size = 6 * 4 + 1;
+                break;
+            case ProfitTrackerEventRecorder.RECORD_PROFIT:
+                size = 8;
+                break;
+            case ProfitTrackerEventRecorder.RECORD_RUNE_POUCH:
+                size = ProfitTrackerEventRecorder.RUNE_POUCH_VARBITS.length * 4;
+                break;
+            case ProfitTrackerEventRecorder.RECORD_SESSION_RESET:
+            case ProfitTrackerEventRecorder.RECORD_STARTUP:
+                size = 0;
+                break;
+            default:
+                throw new IllegalStateException("unexpected record type " + type + " at " + (recording.position() - 1));
+        }
+
+        recording.position(recording.position() + size);
+    }
+
+    private void readState(byte type, ByteBuffer recording)
+    {
+        /*
+        records that only change what the client stand-in answers
+         */
+        switch (type)
+        {
+            case ProfitTrackerEventRecorder.RECORD_CONTAINER:
+            {
+                final int containerId = recording.getInt();
+                final Item[] items = new Item[recording.getInt()];
+
+                for (int slot = 0; slot < items.length; slot++)
+                {
+                    items[slot] = new Item(recording.getInt(), recording.getInt());
+                }
+
+                containers.put(containerId, items);
+                break;
+            }
+            case ProfitTrackerEventRecorder.RECORD_GAME_STATE:
+                gameState = GameState.of(recording.getInt());
+                break;
+            case ProfitTrackerEventRecorder.RECORD_PRICE:
+                prices.put(recording.getInt(), recording.getLong());
+                break;
+            case ProfitTrackerEventRecorder.RECORD_CANONICAL:
+                canonicalIds.put(recording.getInt(), recording.getInt());
+                break;
+            case ProfitTrackerEventRecorder.RECORD_RUNE_POUCH:
+                for (Varbits varbit : ProfitTrackerEventRecorder.RUNE_POUCH_VARBITS)
+                {
+                    varbits.put(varbit, recording.getInt());
+                }
+                break;
+            default:
+                throw new IllegalStateException("unexpected record type " + type + " at " + (recording.position() - 1));
+        }
+    }
+
+    private void dispatch(byte type, ByteBuffer recording)
+    {
+        switch (type)
+        {
+            case ProfitTrackerEventRecorder.RECORD_TICK:
+                tickCount = recording.getInt();
+                recording.getLong();
+                ticks++;
+
+                // neither event object is read by the plugin
+                plugin.onGameTick(null);
+                plugin.onClientTick(null);
+                break;
+            case ProfitTrackerEventRecorder.RECORD_CONTAINER:
+            {
+                final int position = recording.position();
+                final int containerId = recording.getInt();
+
+                recording.position(position);
+                readState(type, recording);
+
+                plugin.onItemContainerChanged(new ItemContainerChanged(containerId, container(containerId)));
+                break;
+            }
+            case ProfitTrackerEventRecorder.RECORD_MENU:
+            {
+                final MenuOptionClicked event = new MenuOptionClicked();
+
+                event.setId(recording.getInt());
+                event.setActionParam(recording.getInt());
+                event.setWidgetId(recording.getInt());
+
+                plugin.onMenuOptionClicked(event);
+                break;
+            }
+            case ProfitTrackerEventRecorder.RECORD_SCRIPT:
+                plugin.onScriptPreFired(new ScriptPreFired(recording.getInt()));
+                break;
+            case ProfitTrackerEventRecorder.RECORD_DROP:
+                plugin.dropClicked(recording.getInt());
+                break;
+            case ProfitTrackerEventRecorder.RECORD_DEPOSIT:
+                plugin.depositClicked(recording.getInt());
+                break;
+            case ProfitTrackerEventRecorder.RECORD_ITEM_SPAWNED:
+                // whether it was on the player's tile was recorded, there is no player here
+                plugin.itemSpawned(recording.getInt(), recording.getInt(), recording.getInt(),
+                        recording.getInt(), recording.getInt(), recording.get() != 0);
+                break;
+            case ProfitTrackerEventRecorder.RECORD_ITEM_QUANTITY_CHANGED:
+                plugin.itemQuantityChanged(recording.getInt(), recording.getInt(), recording.getInt(),
+                        recording.getInt(), recording.getInt(), recording.getInt(), recording.get() != 0);
+                break;
+            case ProfitTrackerEventRecorder.RECORD_ITEM_DESPAWNED:
+                plugin.itemDespawned(recording.getInt(), recording.getInt(), recording.getInt(),
+                        recording.getInt(), recording.getInt());
+                break;
+            case ProfitTrackerEventRecorder.RECORD_GAME_STATE:
+            {
+                readState(type, recording);
+
+                final GameStateChanged event = new GameStateChanged();
+                event.setGameState(gameState);
+
+                plugin.onGameStateChanged(event);
+                break;
+            }
+            case ProfitTrackerEventRecorder.RECORD_RUNE_POUCH:
+                readState(type, recording);
+                plugin.onVarbitChanged(new VarbitChanged());
+                break;
+            case ProfitTrackerEventRecorder.RECORD_SESSION_RESET:
+                // profits recorded so far are of the old session, let the valuation thread finish them first
+                while (!plugin.valuationPipeline.isDrained())
+                {
+                    Thread.yield();
+                }
+
+                recordedProfit = 0;
+                plugin.onOverlayMenuClicked(new OverlayMenuClicked(
+                        new OverlayMenuEntry(RUNELITE_OVERLAY, ProfitTrackerOverlay.RESET_OPTION, "Profit Tracker"), overlay));
+                break;
+            case ProfitTrackerEventRecorder.RECORD_PROFIT:
+                recordedProfit += recording.getLong();
+                break;
+            default:
+                readState(type, recording);
+        }
+    }
+
+    private static long allocatedBytes(com.sun.management.ThreadMXBean threads)
+    {
+        /*
+        bytes allocated so far by all live threads, client (this one) and valuation thread alike
+         */
+        long allocated = 0;
+
+        for (long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds()))
+        {
+            allocated += Math.max(0, bytes);
+        }
+
+        return allocated;
+    }
+}
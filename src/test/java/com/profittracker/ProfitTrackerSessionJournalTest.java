@@ -0,0 +1,109 @@
+package com.profittracker;
+
+import net.runelite.api.Client;
+import net.runelite.api.InventoryID;
+import net.runelite.api.Item;
+import net.runelite.api.ItemContainer;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class ProfitTrackerSessionJournalTest
+{
+    private static final int SHARK = 385;
+    private static final int RUNE_SCIMITAR = 1333;
+
+    @Test
+    public void lastKnownSnapshotHashIsRestored()
+    {
+        final ByteBuffer buffer = ByteBuffer.allocate(4 * ProfitTrackerSessionJournal.RECORD_SIZE);
+
+        putRecord(buffer, ProfitTrackerSessionJournal.RECORD_SESSION_START, 1, 1000, 0, 0);
+        putRecord(buffer, ProfitTrackerSessionJournal.RECORD_PROFIT, 2, 1600, 500, 11);
+        putRecord(buffer, ProfitTrackerSessionJournal.RECORD_SNAPSHOT, 3, 2200, 0, 22);
+
+        // revalued before the contents were seen again, the hash is not known
+        putRecord(buffer, ProfitTrackerSessionJournal.RECORD_PROFIT, 4, 2800, -100,
+                ProfitTrackerInventoryValue.NO_SNAPSHOT_HASH);
+
+        buffer.flip();
+
+        final ProfitTrackerRestoredSession session = ProfitTrackerSessionJournal.replayRecords(buffer);
+
+        assertEquals(400, session.getTotalProfit());
+        assertEquals(2, session.getProfitRecords());
+        assertEquals(2800, session.getLastRecordMillis());
+        assertEquals(22, session.getSnapshotHash());
+    }
+
+    @Test
+    public void containerHashMatchesSnapshotHash()
+    {
+        final ItemContainer[] inventory = {container(new Item(SHARK, 5))};
+
+        // equipment has more empty slots than what was captured
+        final ItemContainer equipment = container(new Item(-1, 0), new Item(RUNE_SCIMITAR, 1), new Item(-1, 0));
+
+        final Client client = (Client) Proxy.newProxyInstance(Client.class.getClassLoader(),
+                new Class<?>[]{Client.class},
+                (proxy, method, args) -> "getItemContainer".equals(method.getName()) ?
+                        (args[0] == InventoryID.INVENTORY ? inventory[0] : equipment) : null);
+
+        final ProfitTrackerInventoryValue inventoryValue = new ProfitTrackerInventoryValue(client,
+                new ProfitTrackerPriceSource()
+                {
+                    @Override
+                    public long getItemPrice(int itemId)
+                    {
+                        return 1000;
+                    }
+
+                    @Override
+                    public int canonicalize(int itemId)
+                    {
+                        return itemId;
+                    }
+                }, Long.MAX_VALUE);
+
+        // nothing seen yet
+        assertEquals(ProfitTrackerInventoryValue.NO_SNAPSHOT_HASH, inventoryValue.calculateSnapshotHash());
+
+        inventoryValue.applyCapture(inventoryValue.captureContainer(InventoryID.INVENTORY.getId(), inventory[0]));
+        inventoryValue.applyCapture(inventoryValue.captureContainer(InventoryID.EQUIPMENT.getId(),
+                container(new Item(-1, 0), new Item(RUNE_SCIMITAR, 1))));
+
+        final long snapshotHash = inventoryValue.calculateSnapshotHash();
+
+        assertEquals(snapshotHash, inventoryValue.calculateContainerHash());
+
+        // a shark eaten while the plugin was off
+        inventory[0] = container(new Item(SHARK, 4));
+
+        assertFalse(snapshotHash == inventoryValue.calculateContainerHash());
+
+        // logged out, the contents are not known
+        inventoryValue.forgetSnapshots();
+
+        assertEquals(ProfitTrackerInventoryValue.NO_SNAPSHOT_HASH, inventoryValue.calculateSnapshotHash());
+    }
+
+    private static void putRecord(ByteBuffer buffer, int type, int tick, long timeMillis, long delta, long snapshotHash)
+    {
+        buffer.putInt(type);
+        buffer.putInt(tick);
+        buffer.putLong(timeMillis);
+        buffer.putLong(delta);
+        buffer.putLong(snapshotHash);
+    }
+
+    private static ItemContainer container(Item... items)
+    {
+        return (ItemContainer) Proxy.newProxyInstance(ItemContainer.class.getClassLoader(),
+                new Class<?>[]{ItemContainer.class},
+                (proxy, method, args) -> "getItems".equals(method.getName()) ? items : null);
+    }
+}
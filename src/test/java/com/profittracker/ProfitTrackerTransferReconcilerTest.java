@@ -0,0 +1,127 @@
+package com.profittracker;
+
+import net.runelite.api.InventoryID;
+import net.runelite.api.Item;
+import net.runelite.api.ItemContainer;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+
+import static org.junit.Assert.assertEquals;
+
+public class ProfitTrackerTransferReconcilerTest
+{
+    private static final int INVENTORY = InventoryID.INVENTORY.getId();
+    private static final int BANK = InventoryID.BANK.getId();
+
+    private static final int SHARK = 385;
+    private static final int NOTED_SHARK = 386;
+    private static final int LOBSTER = 379;
+
+    private ProfitTrackerTransferReconciler reconciler;
+    private ProfitTrackerTickDelta tickDelta;
+    private ProfitTrackerItemLedger ledger;
+
+    @Before
+    public void setUp()
+    {
+        reconciler = new ProfitTrackerTransferReconciler();
+        tickDelta = new ProfitTrackerTickDelta();
+        ledger = new ProfitTrackerItemLedger();
+    }
+
+    @Test
+    public void matchedItemsAreATransfer()
+    {
+        // banked, the bank priced them later at another price
+        tickDelta.add(INVENTORY, SHARK, -5, -5000);
+        tickDelta.add(BANK, SHARK, 5, 5500);
+
+        assertEquals(0, reconciler.reconcile(tickDelta, null, ledger));
+        assertEquals(0, ledger.size());
+        assertEquals(5, reconciler.getTransferredQuantity());
+    }
+
+    @Test
+    public void unmatchedRestIsValuedAtItsOwnPrice()
+    {
+        tickDelta.add(INVENTORY, SHARK, -5, -5000);
+        tickDelta.add(BANK, SHARK, 3, 3300);
+
+        // 2 lost at the price they went out at
+        assertEquals(-2000, reconciler.reconcile(tickDelta, null, ledger));
+        assertEquals(3, reconciler.getTransferredQuantity());
+
+        tickDelta.clear();
+        tickDelta.add(INVENTORY, SHARK, -1, -1000);
+        tickDelta.add(BANK, SHARK, 4, 4400);
+
+        // 3 gained at the price they came in at
+        assertEquals(3300, reconciler.reconcile(tickDelta, null, ledger));
+    }
+
+    @Test
+    public void notedItemsMatchTheItemItself()
+    {
+        final ProfitTrackerInventoryValue inventoryValue = new ProfitTrackerInventoryValue(null,
+                new ProfitTrackerPriceSource()
+                {
+                    @Override
+                    public long getItemPrice(int itemId)
+                    {
+                        return 1000;
+                    }
+
+                    @Override
+                    public int canonicalize(int itemId)
+                    {
+                        return itemId == NOTED_SHARK ? SHARK : itemId;
+                    }
+                }, Long.MAX_VALUE);
+
+        // baseline: 10 noted sharks in the inventory, empty bank
+        inventoryValue.applyCapture(inventoryValue.captureContainer(INVENTORY, container(new Item(NOTED_SHARK, 10))));
+        inventoryValue.applyCapture(inventoryValue.captureContainer(BANK, container()));
+
+        // deposited, the bank holds them unnoted
+        inventoryValue.applyCapture(inventoryValue.captureContainer(INVENTORY, container()));
+        inventoryValue.applyCapture(inventoryValue.captureContainer(BANK, container(new Item(SHARK, 10))));
+
+        assertEquals(0, inventoryValue.reconcileTickDelta(null));
+        assertEquals(0, inventoryValue.getItemLedger().size());
+    }
+
+    @Test
+    public void depositBoxOnlyMovesDepositedItems()
+    {
+        // shark deposited and lobster eaten while the deposit box was open
+        tickDelta.add(INVENTORY, SHARK, -1, -1000);
+        tickDelta.add(INVENTORY, LOBSTER, -1, -200);
+
+        assertEquals(-200, reconciler.reconcile(tickDelta, new int[]{SHARK}, ledger));
+        assertEquals(1, ledger.size());
+        assertEquals(1, reconciler.getUnseenDepositQuantity());
+    }
+
+    @Test
+    public void depositBoxFlagIsPerTick()
+    {
+        tickDelta.add(INVENTORY, SHARK, -1, -1000);
+
+        assertEquals(0, reconciler.reconcile(tickDelta, new int[]{SHARK}, ledger));
+
+        // no deposit clicked this time, the shark was eaten
+        tickDelta.clear();
+        tickDelta.add(INVENTORY, SHARK, -1, -1000);
+
+        assertEquals(-1000, reconciler.reconcile(tickDelta, null, ledger));
+    }
+
+    private static ItemContainer container(Item... items)
+    {
+        return (ItemContainer) Proxy.newProxyInstance(ItemContainer.class.getClassLoader(),
+                new Class<?>[]{ItemContainer.class},
+                (proxy, method, args) -> "getItems".equals(method.getName()) ? items : null);
+    }
+}